@@ -32,6 +32,7 @@ import com.excelsiorjet.api.util.Txt;
 import com.excelsiorjet.api.util.Utils;
 
 import java.io.File;
+import java.util.function.Consumer;
 
 /**
  * This class represents a facade for the Excelsior JET toolchain.
@@ -43,6 +44,7 @@ public class ExcelsiorJet {
     private final JetHome jetHome;
     private final Log logger;
 
+    private String versionString;
     private JetEdition edition;
     private OS targetOS;
     private CpuArch targetCpu;
@@ -106,9 +108,18 @@ public class ExcelsiorJet {
      * @param args command line arguments that will be passed to {@code xjava}.
      */
     public int testRun(File workingDirectory, Log logger, boolean errToOut, String... args) throws CmdLineToolException {
+        return testRun(workingDirectory, logger, errToOut, null, args);
+    }
+
+    /**
+     * Invokes the {@code xjava} command line tool as {@link #testRun(File, Log, boolean, String...)} does,
+     * notifying {@code onStart} of the {@code xjava} process right after it is started.
+     */
+    public int testRun(File workingDirectory, Log logger, boolean errToOut, Consumer<Process> onStart, String... args) throws CmdLineToolException {
         return new XJava(jetHome, args)
                 .workingDirectory(workingDirectory)
                 .withLog(logger, errToOut)
+                .onStart(onStart)
                 .execute();
     }
 
@@ -137,6 +148,7 @@ public class ExcelsiorJet {
     private void detectEditionAndTargetPlatform() throws JetHomeException {
         if (edition == null) {
             String version = obtainVersionString();
+            versionString = version;
             edition = JetEdition.retrieveEdition(version);
             if (edition == null) {
                 throw new JetHomeException(Txt.s("JetHome.UnableToDetectEdition.Error"));
@@ -156,6 +168,15 @@ public class ExcelsiorJet {
         }
     }
 
+    /**
+     * @return the version banner printed by the Excelsior JET compiler, which includes its version, edition
+     *         and target platform. It changes whenever the compiler is updated, including maintenance packs
+     *         installed in place.
+     */
+    public String getVersionString() {
+        return versionString;
+    }
+
     public JetEdition getEdition() {
         return edition;
     }
@@ -28,6 +28,7 @@ import com.excelsiorjet.api.util.Utils;
 import java.io.*;
 import java.lang.ProcessBuilder.Redirect;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * A wrapper around {@link ProcessBuilder} that redirects output to given log {@link Log}.
@@ -41,6 +42,7 @@ public class CmdLineTool {
     private File workDir;
     private boolean errToOut = false;
     private HashMap<String, String> env = new HashMap<>();
+    private Consumer<Process> onStart;
 
     public CmdLineTool(String... args) {
         this.args = new ArrayList<>(Arrays.asList(args));
@@ -71,6 +73,14 @@ public class CmdLineTool {
         return this;
     }
 
+    /**
+     * Sets the listener that is notified of the process right after it is started.
+     */
+    public CmdLineTool onStart(Consumer<Process> onStart) {
+        this.onStart = onStart;
+        return this;
+    }
+
     private class OutputReader extends Thread {
 
         BufferedReader reader;
@@ -118,6 +128,9 @@ public class CmdLineTool {
                 penv.putAll(env);
             }
             Process process = pb.start();
+            if (onStart != null) {
+                onStart.accept(process);
+            }
             OutputReader inreader = new OutputReader(process.getInputStream(),false);
             inreader.start();
             OutputReader errreader = new OutputReader(process.getErrorStream(), true);
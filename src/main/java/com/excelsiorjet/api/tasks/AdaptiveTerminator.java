@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.log.Log;
+import com.excelsiorjet.api.tasks.config.compiler.AdaptiveTerminationConfig;
+import com.excelsiorjet.api.tasks.config.compiler.ExecProfilesConfig;
+import com.excelsiorjet.api.util.ProcFs;
+import com.excelsiorjet.api.util.Txt;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+import static com.excelsiorjet.api.log.Log.logger;
+
+/**
+ * Terminates a running application according to {@link AdaptiveTerminationConfig}:
+ * once the application has become ready and reached a steady state, or when the maximum timeout expires.
+ * <p>
+ * The application output is observed through the {@link Log} returned by {@link #observe(Log)},
+ * and the CPU usage of the launched process is sampled in a background thread.
+ * </p>
+ */
+class AdaptiveTerminator {
+
+    private static final int SAMPLE_INTERVAL = 250;
+    private static final int CONNECT_TIMEOUT = 200;
+
+    private final AdaptiveTerminationConfig config;
+    private final Runnable stopAction;
+    private final LongSupplier cpuTicks;
+    private final Pattern readinessPattern;
+
+    private volatile boolean readinessLineSeen;
+    private volatile long lastOutput;
+    private volatile boolean finished;
+    private Thread thread;
+
+    AdaptiveTerminator(AdaptiveTerminationConfig config, Runnable stopAction, LongSupplier cpuTicks) {
+        this.config = config;
+        this.stopAction = stopAction;
+        this.cpuTicks = cpuTicks;
+        this.readinessPattern = (config.readinessPattern != null) ? Pattern.compile(config.readinessPattern) : null;
+    }
+
+    /**
+     * Starts the adaptive termination of a run if it is configured and no workload is defined.
+     * The run is stopped by creating its given {@link RunStopSupport} termination file.
+     * The CPU usage of the given launched process is monitored.
+     *
+     * @return the started terminator, or {@code null} if the adaptive termination is not configured
+     */
+    static AdaptiveTerminator startIfDefined(ExecProfilesConfig execProfiles, File termFile, LaunchedProcess process) {
+        AdaptiveTerminationConfig config = execProfiles.adaptiveTermination;
+        if ((config == null) || !config.isDefined() || ((execProfiles.workload != null) && execProfiles.workload.isDefined())) {
+            return null;
+        }
+        AdaptiveTerminator terminator = new AdaptiveTerminator(config, () -> {
+            try {
+                termFile.createNewFile();
+            } catch (IOException e) {
+                logger.error(e.getMessage());
+            }
+        }, process::cpuTicks);
+        terminator.start();
+        return terminator;
+    }
+
+    /**
+     * @return log that passes the application output to the given log, observing it on the way
+     */
+    Log observe(Log log) {
+        return new Log() {
+            @Override
+            public void debug(String msg, Throwable t) {
+                log.debug(msg, t);
+            }
+
+            @Override
+            public void info(String msg) {
+                output(msg);
+                log.info(msg);
+            }
+
+            @Override
+            public void warn(String msg) {
+                output(msg);
+                log.warn(msg);
+            }
+
+            @Override
+            public void warn(String msg, Throwable t) {
+                output(msg);
+                log.warn(msg, t);
+            }
+
+            @Override
+            public void error(String msg) {
+                output(msg);
+                log.error(msg);
+            }
+        };
+    }
+
+    private void output(String line) {
+        lastOutput = System.currentTimeMillis();
+        if ((readinessPattern != null) && !readinessLineSeen && readinessPattern.matcher(line).find()) {
+            readinessLineSeen = true;
+        }
+    }
+
+    void start() {
+        lastOutput = System.currentTimeMillis();
+        thread = new Thread(this::monitor);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops monitoring, e.g. because the application has terminated by itself.
+     */
+    void finish() {
+        finished = true;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    void join(long millis) throws InterruptedException {
+        thread.join(millis);
+    }
+
+    private boolean isReady() {
+        if ((readinessPattern == null) && (config.readinessPort <= 0)) {
+            return true;
+        }
+        if (readinessLineSeen) {
+            return true;
+        }
+        if (config.readinessPort > 0) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("localhost", config.readinessPort), CONNECT_TIMEOUT);
+                return true;
+            } catch (IOException ignore) {
+            }
+        }
+        return false;
+    }
+
+    private void monitor() {
+        long start = System.currentTimeMillis();
+        long deadline = start + TimeUnit.SECONDS.toMillis(config.maxTimeout);
+        long steadyStatePeriod = TimeUnit.SECONDS.toMillis(config.steadyStatePeriod);
+        long quietPeriod = TimeUnit.SECONDS.toMillis(config.quietPeriod);
+        long readyTime = -1;
+        long windowStart = 0;
+        long windowTicks = 0;
+        while (!finished) {
+            long now = System.currentTimeMillis();
+            if (now >= deadline) {
+                logger.info(Txt.s("AdaptiveTerminator.MaxTimeout.Info", config.maxTimeout));
+                break;
+            }
+            if (readyTime < 0) {
+                if (isReady()) {
+                    logger.info(Txt.s("AdaptiveTerminator.Ready.Info"));
+                    readyTime = now;
+                    windowStart = now;
+                    windowTicks = cpuTicks.getAsLong();
+                }
+            } else if (isSteady(now, readyTime, quietPeriod)) {
+                logger.info(Txt.s("AdaptiveTerminator.SteadyState.Info"));
+                break;
+            } else if ((config.cpuThreshold > 0) && (now - windowStart >= steadyStatePeriod)) {
+                long ticks = cpuTicks.getAsLong();
+                // no sample if the process is not running or has been replaced, which is not idleness
+                if ((ticks >= 0) && (windowTicks >= 0) && (ticks >= windowTicks)) {
+                    // percent of a single core: CPU seconds per wall-clock second times 100
+                    double usage = (ticks - windowTicks) * 100.0 * 1000 / ProcFs.CLOCK_TICKS / (now - windowStart);
+                    if (usage < config.cpuThreshold) {
+                        logger.info(Txt.s("AdaptiveTerminator.SteadyState.Info"));
+                        break;
+                    }
+                }
+                windowStart = now;
+                windowTicks = ticks;
+            }
+            try {
+                Thread.sleep(SAMPLE_INTERVAL);
+            } catch (InterruptedException e) {
+                // finished
+            }
+        }
+        if (!finished) {
+            stopAction.run();
+        }
+    }
+
+    private boolean isSteady(long now, long readyTime, long quietPeriod) {
+        return (quietPeriod > 0) && (now - readyTime >= quietPeriod) && (now - lastOutput >= quietPeriod);
+    }
+}
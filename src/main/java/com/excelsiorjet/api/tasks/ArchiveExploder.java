@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.util.FileUpdater;
+import com.excelsiorjet.api.util.Json;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Extracts an archive, such as a Spring Boot jar or a war, to a directory incrementally.
+ * <p>
+ * Every extracted entry is stamped with its size and CRC-32 taken from the central directory of the archive,
+ * so the entries that did not change since the previous extraction are reused without even being inflated,
+ * and the entries that disappeared from the archive are removed.
+ * The stamps are kept next to the target directory, not inside it.
+ * Nested archives, such as {@code BOOT-INF/lib} or {@code WEB-INF/lib} jars, are extracted in parallel,
+ * the rest of the entries are extracted by a single job.
+ * </p>
+ */
+class ArchiveExploder {
+
+    private static final String STAMPS_SUFFIX = ".stamps.json";
+    private static final String JAR_EXT = ".jar";
+
+    /**
+     * Outcome of an extraction.
+     */
+    static class Result {
+        /**
+         * Entries that have been (re)extracted, i.e. that are new or changed since the previous extraction.
+         */
+        final List<String> extracted;
+
+        /**
+         * Number of entries reused from the previous extraction.
+         */
+        final int reused;
+
+        /**
+         * Entries removed from the target directory, as they are no longer in the archive.
+         */
+        final List<String> removed;
+
+        Result(List<String> extracted, int reused, List<String> removed) {
+            this.extracted = extracted;
+            this.reused = reused;
+            this.removed = removed;
+        }
+
+        boolean isUpToDate() {
+            return extracted.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    private final File archive;
+    private final File targetDir;
+    private final File stampsFile;
+
+    /**
+     * @param archive archive to extract
+     * @param targetDir directory to extract the archive to. If it is a file, such as a copy of the archive
+     *                  made by a non-incremental staging, it is replaced with the directory
+     * @param stampsFile file to keep the stamps of the extracted entries in
+     */
+    ArchiveExploder(File archive, File targetDir, File stampsFile) {
+        this.archive = archive;
+        this.targetDir = targetDir;
+        this.stampsFile = stampsFile;
+    }
+
+    /**
+     * Creates an exploder keeping the stamps next to {@code targetDir}.
+     */
+    ArchiveExploder(File archive, File targetDir) {
+        this(archive, targetDir, new File(targetDir.getParentFile(), targetDir.getName() + STAMPS_SUFFIX));
+    }
+
+    File stampsFile() {
+        return stampsFile;
+    }
+
+    Result explode() throws IOException {
+        if (targetDir.isFile()) {
+            Files.delete(targetDir.toPath());
+        }
+        Files.createDirectories(targetDir.toPath());
+        Path target = targetDir.toPath().toAbsolutePath().normalize();
+        Map<String, Object> stamps = readStamps();
+        Map<String, Object> newStamps = new TreeMap<>();
+        List<String> extracted = new ArrayList<>();
+        int reused = 0;
+        try (ZipFile zip = new ZipFile(archive)) {
+            List<ZipEntry> nestedArchives = new ArrayList<>();
+            List<ZipEntry> otherEntries = new ArrayList<>();
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                Path file = target.resolve(entry.getName()).normalize();
+                if (!file.startsWith(target)) {
+                    throw new IOException(s("JetApi.ArchiveExploder.UnsafeEntry.Error", entry.getName(), archive));
+                }
+                String stamp = entry.getSize() + ":" + Long.toHexString(entry.getCrc());
+                newStamps.put(entry.getName(), stamp);
+                if (stamp.equals(stamps.get(entry.getName())) && Files.isRegularFile(file)) {
+                    reused++;
+                } else {
+                    extracted.add(entry.getName());
+                    (entry.getName().endsWith(JAR_EXT) ? nestedArchives : otherEntries).add(entry);
+                }
+            }
+
+            List<Callable<Void>> jobs = new ArrayList<>();
+            for (ZipEntry nestedArchive : nestedArchives) {
+                jobs.add(() -> {
+                    extract(zip, nestedArchive, target);
+                    return null;
+                });
+            }
+            if (!otherEntries.isEmpty()) {
+                jobs.add(() -> {
+                    for (ZipEntry entry : otherEntries) {
+                        extract(zip, entry, target);
+                    }
+                    return null;
+                });
+            }
+            if (!jobs.isEmpty()) {
+                try {
+                    ResourceAwareScheduler.run(jobs, Math.max(1, Math.min(jobs.size(), Runtime.getRuntime().availableProcessors())));
+                } catch (IllegalStateException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (String name : stamps.keySet()) {
+            if (!newStamps.containsKey(name)) {
+                Path file = target.resolve(name).normalize();
+                if (file.startsWith(target) && Files.deleteIfExists(file)) {
+                    removed.add(name);
+                }
+            }
+        }
+        if (!newStamps.equals(stamps)) {
+            Files.createDirectories(stampsFile.getAbsoluteFile().getParentFile().toPath());
+            FileUpdater.writeIfChanged(stampsFile(), out -> out.print(Json.toJson(newStamps)));
+        }
+        return new Result(extracted, reused, removed);
+    }
+
+    private static void extract(ZipFile zip, ZipEntry entry, Path target) throws IOException {
+        Path file = target.resolve(entry.getName());
+        Files.createDirectories(file.getParent());
+        try (InputStream in = zip.getInputStream(entry)) {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (entry.getTime() != -1) {
+            file.toFile().setLastModified(entry.getTime());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readStamps() {
+        if (stampsFile.isFile()) {
+            try {
+                Object stamps = Json.parse(new String(Files.readAllBytes(stampsFile.toPath()), "UTF-8"));
+                if (stamps instanceof Map) {
+                    return new LinkedHashMap<>((Map<String, Object>) stamps);
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                // extract everything anew
+            }
+        }
+        return Collections.emptyMap();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary statistics of benchmark measurements.
+ */
+class BenchmarkStatistics {
+
+    /**
+     * Returns the given percentile of the sorted values using the nearest-rank method.
+     */
+    static long percentile(List<Long> sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    /**
+     * @return min, median, p90, p99, max, and mean of the given non-empty measurements, in the order of insertion
+     */
+    static Map<String, Long> summarize(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        Map<String, Long> summary = new LinkedHashMap<>();
+        summary.put("min", sorted.get(0));
+        summary.put("median", percentile(sorted, 50));
+        summary.put("p90", percentile(sorted, 90));
+        summary.put("p99", percentile(sorted, 99));
+        summary.put("max", sorted.get(sorted.size() - 1));
+        long sum = 0;
+        for (long value : sorted) {
+            sum += value;
+        }
+        summary.put("mean", sum / sorted.size());
+        return summary;
+    }
+}
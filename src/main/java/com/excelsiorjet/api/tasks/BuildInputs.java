@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * Declared inputs of an Excelsior JET build, which a host build tool may use to decide whether
+ * the build is up-to-date or can be taken from a build cache.
+ * <p>
+ * The inputs consist of the files the build reads and the normalized configuration values that affect
+ * the generated compiler project file and packager arguments.
+ * </p>
+ *
+ * @see JetProject#buildInputs(com.excelsiorjet.api.ExcelsiorJet)
+ * @see JetProject#buildOutputs(com.excelsiorjet.api.ExcelsiorJet)
+ */
+public class BuildInputs {
+
+    private final List<File> files;
+    private final SortedMap<String, String> properties;
+
+    BuildInputs(List<File> files, SortedMap<String, String> properties) {
+        this.files = Collections.unmodifiableList(files);
+        this.properties = Collections.unmodifiableSortedMap(properties);
+    }
+
+    /**
+     * @return input files and directories of the build. Some of them, such as execution profiles,
+     *         may not exist: their appearance should also invalidate the build.
+     */
+    public List<File> files() {
+        return files;
+    }
+
+    /**
+     * @return normalized configuration values affecting the build, sorted by name.
+     */
+    public SortedMap<String, String> properties() {
+        return properties;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Extracts the names of the classes a class file may refer to from its constant pool.
+ * <p>
+ * Besides the class constants, the class names are collected from all descriptors and signatures
+ * found in the pool (which covers field and method types, including those of annotations),
+ * and from string constants that look like class names, so that classes loaded by name via
+ * {@code Class.forName("...")} are taken into account. The result may thus contain names that are not classes;
+ * callers are expected to match it against the set of known classes.
+ * </p>
+ */
+class ClassReferences {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int FLOAT = 4;
+    private static final int LONG = 5;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int INTERFACE_METHOD_REF = 11;
+    private static final int NAME_AND_TYPE = 12;
+    private static final int METHOD_HANDLE = 15;
+    private static final int METHOD_TYPE = 16;
+    private static final int DYNAMIC = 17;
+    private static final int INVOKE_DYNAMIC = 18;
+    private static final int MODULE = 19;
+    private static final int PACKAGE = 20;
+
+    /**
+     * @return internal names of the classes the given class file may refer to
+     * @throws IOException if the bytes are not a valid class file
+     */
+    static Set<String> of(byte[] classFile) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a class file");
+        }
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        boolean[] isClass = new boolean[count];
+        boolean[] isString = new boolean[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case UTF8:
+                    utf8[i] = in.readUTF();
+                    break;
+                case CLASS:
+                    isClass[in.readUnsignedShort()] = true;
+                    break;
+                case STRING:
+                    isString[in.readUnsignedShort()] = true;
+                    break;
+                case METHOD_TYPE:
+                case MODULE:
+                case PACKAGE:
+                    in.readUnsignedShort();
+                    break;
+                case METHOD_HANDLE:
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                    break;
+                case INTEGER:
+                case FLOAT:
+                case FIELD_REF:
+                case METHOD_REF:
+                case INTERFACE_METHOD_REF:
+                case NAME_AND_TYPE:
+                case DYNAMIC:
+                case INVOKE_DYNAMIC:
+                    in.readInt();
+                    break;
+                case LONG:
+                case DOUBLE:
+                    in.readLong();
+                    // 8-byte constants take two pool slots
+                    i++;
+                    break;
+                default:
+                    throw new IOException("unknown constant pool tag " + tag);
+            }
+        }
+
+        Set<String> refs = new HashSet<>();
+        for (int i = 1; i < count; i++) {
+            String value = utf8[i];
+            if (value == null) {
+                continue;
+            }
+            if (isClass[i]) {
+                if (value.startsWith("[")) {
+                    addDescriptorClasses(value, refs);
+                } else {
+                    refs.add(value);
+                }
+            } else if (isString[i]) {
+                if ((value.indexOf('.') > 0) && (value.indexOf(' ') < 0) && (value.indexOf('/') < 0)) {
+                    refs.add(value.replace('.', '/'));
+                }
+            } else if (value.indexOf(';') > 0) {
+                addDescriptorClasses(value, refs);
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * Adds the classes named in the given descriptor or signature, such as {@code (Ljava/lang/String;)V}
+     * or {@code Ljava/util/List<Lcom/example/Item;>;}.
+     */
+    private static void addDescriptorClasses(String descriptor, Set<String> refs) {
+        int start = descriptor.indexOf('L');
+        while (start >= 0) {
+            int end = start + 1;
+            while ((end < descriptor.length()) && (";<".indexOf(descriptor.charAt(end)) < 0)) {
+                end++;
+            }
+            if ((end < descriptor.length()) && (end > start + 1)) {
+                refs.add(descriptor.substring(start + 1, end));
+            }
+            start = descriptor.indexOf('L', end);
+        }
+    }
+}
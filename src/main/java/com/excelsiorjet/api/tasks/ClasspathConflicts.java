@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.tasks.config.ClasspathConflictsPolicy;
+import com.excelsiorjet.api.tasks.config.dependencies.ProjectDependency;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Finds classes that are present in more than one classpath entry and packages that are split across
+ * classpath entries, using {@link ClasspathIndex}.
+ * <p>
+ * For Spring Boot and Tomcat applications, the classes and the libraries packed into the main artifact
+ * ({@code BOOT-INF/classes}, {@code BOOT-INF/lib}, {@code WEB-INF/classes}, {@code WEB-INF/lib},
+ * and {@code WEB-INF/lib-provided}) are checked, as they are what the application actually loads.
+ * </p>
+ *
+ * @see ClasspathConflictsPolicy
+ */
+class ClasspathConflicts {
+
+    private static final int MAX_REPORTED = 20;
+    private static final int MAX_EXAMPLES = 3;
+    private static final String[] CLASSES_DIRS = {"BOOT-INF/classes/", "WEB-INF/classes/"};
+    private static final String[] LIB_DIRS = {"BOOT-INF/lib/", "WEB-INF/lib/", "WEB-INF/lib-provided/"};
+
+    /**
+     * Named set of classes: a classpath entry, the classes directory of an archive or a nested library.
+     * Project dependencies are named by their coordinates, other entries by their file names.
+     */
+    static class Unit {
+        final String name;
+        final Collection<String> classes;
+
+        Unit(String name, Collection<String> classes) {
+            this.name = name;
+            this.classes = classes;
+        }
+    }
+
+    /**
+     * Classes present in more than one unit, mapped to the names of those units.
+     */
+    final Map<String, List<String>> duplicateClasses = new TreeMap<>();
+
+    /**
+     * Packages that different units contribute different classes to, mapped to the names of those units.
+     */
+    final Map<String, List<String>> splitPackages = new TreeMap<>();
+
+    static ClasspathConflicts detect(List<Unit> units) {
+        Map<String, List<String>> classUnits = new HashMap<>();
+        for (Unit unit : units) {
+            for (String cls : unit.classes) {
+                List<String> names = classUnits.computeIfAbsent(cls, k -> new ArrayList<>(1));
+                if (!names.contains(unit.name)) {
+                    names.add(unit.name);
+                }
+            }
+        }
+
+        ClasspathConflicts conflicts = new ClasspathConflicts();
+        Map<String, Set<String>> packageUnits = new HashMap<>();
+        Set<String> packagesWithUniqueClasses = new HashSet<>();
+        for (Map.Entry<String, List<String>> entry : classUnits.entrySet()) {
+            String cls = entry.getKey();
+            String pkg = ClasspathIndex.packageOf(cls);
+            packageUnits.computeIfAbsent(pkg, k -> new LinkedHashSet<>()).addAll(entry.getValue());
+            if (entry.getValue().size() > 1) {
+                // package-info classes are routinely repeated in every part of a split package
+                if (!cls.endsWith("/package-info") && !cls.equals("package-info")) {
+                    conflicts.duplicateClasses.put(cls, entry.getValue());
+                }
+            } else {
+                packagesWithUniqueClasses.add(pkg);
+            }
+        }
+        for (Map.Entry<String, Set<String>> entry : packageUnits.entrySet()) {
+            // a package that is only present in several units due to duplicate classes is not reported twice
+            if ((entry.getValue().size() > 1) && packagesWithUniqueClasses.contains(entry.getKey())) {
+                List<String> names = new ArrayList<>(entry.getValue());
+                Collections.sort(names);
+                conflicts.splitPackages.put(entry.getKey(), names);
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Returns the units of the application classpath in the classpath order.
+     */
+    static List<Unit> units(JetProject project) throws IOException {
+        List<Unit> units = new ArrayList<>();
+        switch (project.appType()) {
+            case PLAIN:
+            case DYNAMIC_LIBRARY:
+            case WINDOWS_SERVICE:
+                Map<File, String> idByPath = new HashMap<>();
+                for (ProjectDependency dep : project.allProjectDependencies()) {
+                    idByPath.putIfAbsent(dep.path, dep.idStr(false));
+                }
+                List<ClasspathEntry> classpathEntries = project.classpathEntries();
+                List<ClasspathIndex.Archive> archives = project.indexClasspath();
+                for (int i = 0; i < classpathEntries.size(); i++) {
+                    File path = classpathEntries.get(i).path;
+                    units.add(new Unit(idByPath.getOrDefault(path, path.getName()), archives.get(i).classes));
+                }
+                break;
+            case TOMCAT:
+            case SPRING_BOOT:
+                File mainArtifact = project.mainArtifact();
+                ClasspathIndex.Archive archive = project.classpathIndex().scan(Collections.singletonList(mainArtifact),
+                        new File(project.jetOutputDir(), ClasspathIndex.INDEX_DIR)).get(0);
+                for (String classesDir : CLASSES_DIRS) {
+                    List<String> classes = new ArrayList<>();
+                    for (String cls : archive.classes) {
+                        if (cls.startsWith(classesDir)) {
+                            classes.add(cls.substring(classesDir.length()));
+                        }
+                    }
+                    if (!classes.isEmpty()) {
+                        units.add(new Unit(mainArtifact.getName() + "!" + classesDir, classes));
+                    }
+                }
+                // the libraries of the archive are the project dependencies of the same file names
+                Map<String, String> idByName = new HashMap<>();
+                for (ProjectDependency dep : project.allProjectDependencies()) {
+                    if (!dep.isMainArtifact) {
+                        idByName.putIfAbsent(dep.path.getName(), dep.idStr(false));
+                    }
+                }
+                for (Map.Entry<String, List<String>> nested : archive.nestedClasses.entrySet()) {
+                    for (String libDir : LIB_DIRS) {
+                        String name = nested.getKey();
+                        if (name.startsWith(libDir) && (name.indexOf('/', libDir.length()) < 0)) {
+                            String id = idByName.get(name.substring(libDir.length()));
+                            units.add(new Unit((id != null) ? id : mainArtifact.getName() + "!" + name, nested.getValue()));
+                        }
+                    }
+                }
+                break;
+            default:
+                throw new AssertionError("Unknown application type: " + project.appType());
+        }
+        return units;
+    }
+
+    /**
+     * Checks the classpath of the project according to its {@link ClasspathConflictsPolicy}.
+     *
+     * @throws JetTaskFailureException if duplicate classes are found and the policy is {@code fail}
+     */
+    static void check(JetProject project) throws JetTaskFailureException {
+        ClasspathConflictsPolicy policy = project.classpathConflicts();
+        if (policy == ClasspathConflictsPolicy.IGNORE) {
+            return;
+        }
+        ClasspathConflicts conflicts;
+        try {
+            conflicts = detect(units(project));
+        } catch (IOException e) {
+            if (policy == ClasspathConflictsPolicy.FAIL) {
+                throw new JetTaskFailureException(s("JetApi.ClasspathConflicts.ScanFailed.Failure", e.getMessage()), e);
+            }
+            logger.warn(s("JetApi.ClasspathConflicts.ScanFailed.Warning", e.getMessage()));
+            return;
+        }
+        if (!conflicts.splitPackages.isEmpty()) {
+            logger.warn(s("JetApi.ClasspathConflicts.SplitPackages.Warning", conflicts.splitPackagesReport()));
+        }
+        if (!conflicts.duplicateClasses.isEmpty()) {
+            if (policy == ClasspathConflictsPolicy.FAIL) {
+                throw new JetTaskFailureException(s("JetApi.ClasspathConflicts.DuplicateClasses.Failure",
+                        conflicts.duplicateClassesReport()));
+            }
+            logger.warn(s("JetApi.ClasspathConflicts.DuplicateClasses.Warning", conflicts.duplicateClassesReport()));
+        }
+    }
+
+    /**
+     * Reports duplicate classes grouped by the units they are found in.
+     */
+    String duplicateClassesReport() {
+        Map<List<String>, List<String>> byUnits = new LinkedHashMap<>();
+        duplicateClasses.forEach((cls, units) -> byUnits.computeIfAbsent(units, k -> new ArrayList<>()).add(cls));
+        List<String> lines = new ArrayList<>();
+        byUnits.forEach((units, classes) -> {
+            List<String> examples = classes.subList(0, Math.min(MAX_EXAMPLES, classes.size()));
+            lines.add(s("JetApi.ClasspathConflicts.DuplicateClasses.Line", String.valueOf(classes.size()),
+                    String.join(", ", units), String.join(", ", examples)));
+        });
+        return limit(lines);
+    }
+
+    String splitPackagesReport() {
+        List<String> lines = new ArrayList<>();
+        splitPackages.forEach((pkg, units) ->
+                lines.add(s("JetApi.ClasspathConflicts.SplitPackage.Line", pkg.replace('/', '.'), String.join(", ", units))));
+        return limit(lines);
+    }
+
+    private static String limit(List<String> lines) {
+        if (lines.size() > MAX_REPORTED) {
+            List<String> limited = new ArrayList<>(lines.subList(0, MAX_REPORTED));
+            limited.add(s("JetApi.ClasspathConflicts.More.Line", String.valueOf(lines.size() - MAX_REPORTED)));
+            lines = limited;
+        }
+        return String.join("\n", lines);
+    }
+}
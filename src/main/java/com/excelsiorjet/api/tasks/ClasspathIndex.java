@@ -0,0 +1,473 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.util.FileUpdater;
+import com.excelsiorjet.api.util.Json;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Index of the contents of classpath archives and directories: manifest attributes, packages and classes,
+ * nested archives, entry counts and sizes.
+ * <p>
+ * Every archive is opened at most once per index, so validation, staging and the analyses of the classpath
+ * share a single scan. When the index is given a cache directory, archive contents are persisted there
+ * keyed by the content hash of the archive, so that unchanged archives are not rescanned by subsequent builds.
+ * To avoid rehashing unchanged archives, the hashes are remembered along with the sizes and modification
+ * times of the archives.
+ * </p>
+ */
+class ClasspathIndex {
+
+    static final String INDEX_DIR = "classpath-index";
+    private static final String STAMPS_FILE = "stamps.json";
+    private static final String CLASS_EXT = ".class";
+    private static final String VERSIONS_DIR = "META-INF/versions/";
+    static final String SERVICES_DIR = "META-INF/services/";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    /**
+     * Contents of a single archive or directory.
+     */
+    static class Archive {
+        final File path;
+
+        /**
+         * SHA-256 of the archive contents in hex, or {@code null} for directories.
+         */
+        final String hash;
+
+        final long size;
+        final long lastModified;
+        final int entryCount;
+        final long uncompressedSize;
+
+        /**
+         * Main attributes of the manifest, empty if there is no manifest.
+         */
+        final Map<String, String> manifest;
+
+        final SortedSet<String> packages;
+
+        /**
+         * Names of the classes in the internal form (e.g. {@code com/example/Main}), relative to the archive root.
+         * Classes of the versioned directories of multi-release archives are not included.
+         */
+        final List<String> classes;
+
+        /**
+         * Names of the entries that are archives themselves, e.g. {@code BOOT-INF/lib/x.jar}.
+         */
+        final List<String> nestedArchives;
+
+        /**
+         * Classes of the nested archives in the internal form, relative to the root of the respective nested archive.
+         */
+        final Map<String, List<String>> nestedClasses;
+
+        /**
+         * Service providers declared in {@code META-INF/services}: service interfaces mapped to the provider classes,
+         * both in the internal form.
+         */
+        final Map<String, List<String>> services;
+
+        Archive(File path, String hash, long size, long lastModified, int entryCount, long uncompressedSize,
+                Map<String, String> manifest, List<String> classes, List<String> nestedArchives,
+                Map<String, List<String>> nestedClasses, Map<String, List<String>> services) {
+            this.path = path;
+            this.hash = hash;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.entryCount = entryCount;
+            this.uncompressedSize = uncompressedSize;
+            this.manifest = manifest;
+            this.classes = classes;
+            this.nestedArchives = nestedArchives;
+            this.nestedClasses = nestedClasses;
+            this.services = services;
+            this.packages = new TreeSet<>();
+            for (String cls : classes) {
+                packages.add(packageOf(cls));
+            }
+        }
+
+        /**
+         * Returns the value of the given main manifest attribute, or {@code null} if there is no such attribute.
+         */
+        String manifestAttribute(String name) {
+            for (Map.Entry<String, String> attr : manifest.entrySet()) {
+                if (attr.getKey().equalsIgnoreCase(name)) {
+                    return attr.getValue();
+                }
+            }
+            return null;
+        }
+
+        boolean isDirectory() {
+            return hash == null;
+        }
+
+        private boolean isUpToDate() {
+            return isDirectory() || ((path.length() == size) && (path.lastModified() == lastModified));
+        }
+
+        private Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("hash", hash);
+            json.put("size", size);
+            json.put("entryCount", entryCount);
+            json.put("uncompressedSize", uncompressedSize);
+            json.put("manifest", manifest);
+            json.put("classes", classes);
+            json.put("nestedArchives", nestedArchives);
+            json.put("nestedClasses", nestedClasses);
+            json.put("services", services);
+            return json;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Archive fromJson(File path, long lastModified, Map<String, Object> json) {
+            if (!json.containsKey("nestedClasses") || !json.containsKey("services")) {
+                // written by an older version, rescan
+                return null;
+            }
+            return new Archive(path, (String) json.get("hash"), ((Number) json.get("size")).longValue(), lastModified,
+                    ((Number) json.get("entryCount")).intValue(), ((Number) json.get("uncompressedSize")).longValue(),
+                    (Map<String, String>) json.get("manifest"), (List<String>) json.get("classes"),
+                    (List<String>) json.get("nestedArchives"), (Map<String, List<String>>) json.get("nestedClasses"),
+                    (Map<String, List<String>>) json.get("services"));
+        }
+    }
+
+    private final Map<File, Archive> archives = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the contents of the given archive or directory, scanning it if it has not been indexed yet
+     * or has changed since.
+     */
+    Archive get(File file) throws IOException {
+        File key = file.getAbsoluteFile();
+        Archive archive = archives.get(key);
+        if ((archive == null) || !archive.isUpToDate()) {
+            archive = scan(key, null);
+            archives.put(key, archive);
+        }
+        return archive;
+    }
+
+    /**
+     * Indexes the given archives and directories in parallel, reusing and updating the contents persisted
+     * in {@code cacheDir}, if it is not {@code null}.
+     *
+     * @return the contents of the given files in the order of the files
+     */
+    List<Archive> scan(Collection<File> files, File cacheDir) throws IOException {
+        if (cacheDir != null) {
+            Files.createDirectories(cacheDir.toPath());
+        }
+        Map<String, Object> stamps = (cacheDir != null) ? readStamps(cacheDir) : Collections.emptyMap();
+        Map<String, Object> newStamps = new ConcurrentHashMap<>(stamps);
+        List<Callable<Archive>> jobs = new ArrayList<>();
+        for (File file : files) {
+            File key = file.getAbsoluteFile();
+            jobs.add(() -> {
+                Archive archive = archives.get(key);
+                if ((archive == null) || !archive.isUpToDate()) {
+                    archive = (cacheDir != null) ? load(key, stamps, cacheDir) : null;
+                    if (archive == null) {
+                        archive = scan(key, cacheDir);
+                    }
+                    archives.put(key, archive);
+                }
+                if (!archive.isDirectory()) {
+                    Map<String, Object> stamp = new LinkedHashMap<>();
+                    stamp.put("size", archive.size);
+                    stamp.put("lastModified", archive.lastModified);
+                    stamp.put("hash", archive.hash);
+                    newStamps.put(key.getPath(), stamp);
+                }
+                return archive;
+            });
+        }
+        List<Archive> result;
+        try {
+            result = ResourceAwareScheduler.run(jobs, Math.max(1, Math.min(jobs.size(), Runtime.getRuntime().availableProcessors())));
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+        if ((cacheDir != null) && !newStamps.equals(stamps)) {
+            FileUpdater.writeIfChanged(new File(cacheDir, STAMPS_FILE), out -> out.print(Json.toJson(new TreeMap<>(newStamps))));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> readStamps(File cacheDir) {
+        File stampsFile = new File(cacheDir, STAMPS_FILE);
+        if (stampsFile.isFile()) {
+            try {
+                return (Map<String, Object>) Json.parse(new String(Files.readAllBytes(stampsFile.toPath()), "UTF-8"));
+            } catch (IOException | RuntimeException ignore) {
+                // the index is rebuilt
+            }
+        }
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Loads the persisted contents of the given archive if its size and modification time match the remembered ones.
+     */
+    @SuppressWarnings("unchecked")
+    private static Archive load(File file, Map<String, Object> stamps, File cacheDir) {
+        Map<String, Object> stamp = (Map<String, Object>) stamps.get(file.getPath());
+        if ((stamp == null) || !file.isFile() ||
+                (((Number) stamp.get("size")).longValue() != file.length()) ||
+                (((Number) stamp.get("lastModified")).longValue() != file.lastModified())) {
+            return null;
+        }
+        return loadByHash(file, (String) stamp.get("hash"), cacheDir);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Archive loadByHash(File file, String hash, File cacheDir) {
+        File cached = new File(cacheDir, hash + ".json");
+        if (!cached.isFile()) {
+            return null;
+        }
+        try {
+            Map<String, Object> json = (Map<String, Object>) Json.parse(new String(Files.readAllBytes(cached.toPath()), "UTF-8"));
+            return Archive.fromJson(file, file.lastModified(), json);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Archive scan(File file, File cacheDir) throws IOException {
+        if (file.isDirectory()) {
+            return scanDirectory(file);
+        }
+        long lastModified = file.lastModified();
+        String hash = contentHash(file);
+        if (cacheDir != null) {
+            Archive cached = loadByHash(file, hash, cacheDir);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Archive archive = scanArchive(file, hash, lastModified);
+        if (cacheDir != null) {
+            FileUpdater.writeIfChanged(new File(cacheDir, hash + ".json"), out -> out.print(Json.toJson(archive.toJson())));
+        }
+        return archive;
+    }
+
+    private static Archive scanArchive(File file, String hash, long lastModified) throws IOException {
+        int entryCount = 0;
+        long uncompressedSize = 0;
+        List<String> classes = new ArrayList<>();
+        List<String> nestedArchives = new ArrayList<>();
+        Map<String, List<String>> nestedClasses = new LinkedHashMap<>();
+        Map<String, List<String>> services = new LinkedHashMap<>();
+        Map<String, String> manifestAttributes = new LinkedHashMap<>();
+        try (JarFile jar = new JarFile(file, false)) {
+            Manifest manifest = jar.getManifest();
+            if (manifest != null) {
+                for (Map.Entry<Object, Object> attr : manifest.getMainAttributes().entrySet()) {
+                    manifestAttributes.put(attr.getKey().toString(), (String) attr.getValue());
+                }
+            }
+            Enumeration<? extends ZipEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                entryCount++;
+                if (entry.getSize() > 0) {
+                    uncompressedSize += entry.getSize();
+                }
+                if (addEntry(entry.getName(), classes, nestedArchives)) {
+                    nestedClasses.put(entry.getName(), nestedClasses(jar.getInputStream(entry)));
+                } else if (isServiceFile(entry.getName())) {
+                    try (InputStream in = jar.getInputStream(entry)) {
+                        addServices(entry.getName(), in, services);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IOException(s("JetApi.ClasspathIndex.ReadFailed.Error", file.getAbsolutePath(), e.getMessage()), e);
+        }
+        return new Archive(file, hash, file.length(), lastModified, entryCount, uncompressedSize,
+                manifestAttributes, classes, nestedArchives, nestedClasses, services);
+    }
+
+    private static List<String> nestedClasses(InputStream nestedArchive) throws IOException {
+        List<String> classes = new ArrayList<>();
+        try (ZipInputStream in = new ZipInputStream(nestedArchive)) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    addEntry(entry.getName(), classes, new ArrayList<>());
+                }
+            }
+        }
+        return classes;
+    }
+
+    private static Archive scanDirectory(File dir) throws IOException {
+        Path root = dir.toPath();
+        List<String> classes = new ArrayList<>();
+        List<String> nestedArchives = new ArrayList<>();
+        Map<String, List<String>> services = new LinkedHashMap<>();
+        long[] uncompressedSize = {0};
+        int entryCount;
+        try (Stream<Path> paths = Files.walk(root)) {
+            List<Path> files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            entryCount = files.size();
+            for (Path path : files) {
+                uncompressedSize[0] += Files.size(path);
+                String name = root.relativize(path).toString().replace(File.separatorChar, '/');
+                addEntry(name, classes, nestedArchives);
+                if (isServiceFile(name)) {
+                    try (InputStream in = Files.newInputStream(path)) {
+                        addServices(name, in, services);
+                    }
+                }
+            }
+        }
+        Map<String, String> manifestAttributes = new LinkedHashMap<>();
+        File manifestFile = new File(dir, JarFile.MANIFEST_NAME);
+        if (manifestFile.isFile()) {
+            try (InputStream in = Files.newInputStream(manifestFile.toPath())) {
+                for (Map.Entry<Object, Object> attr : new Manifest(in).getMainAttributes().entrySet()) {
+                    manifestAttributes.put(attr.getKey().toString(), (String) attr.getValue());
+                }
+            }
+        }
+        return new Archive(dir, null, 0, dir.lastModified(), entryCount, uncompressedSize[0],
+                manifestAttributes, classes, nestedArchives, Collections.emptyMap(), services);
+    }
+
+    private static boolean isServiceFile(String name) {
+        return name.startsWith(SERVICES_DIR) && (name.length() > SERVICES_DIR.length()) &&
+                (name.indexOf('/', SERVICES_DIR.length()) < 0);
+    }
+
+    /**
+     * Reads the provider-configuration file with the given name, ignoring comments and blank lines.
+     */
+    private static void addServices(String name, InputStream in, Map<String, List<String>> services) throws IOException {
+        String service = name.substring(SERVICES_DIR.length()).replace('.', '/');
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> providers = services.computeIfAbsent(service, k -> new ArrayList<>());
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int comment = line.indexOf('#');
+            String provider = ((comment >= 0) ? line.substring(0, comment) : line).trim();
+            if (!provider.isEmpty()) {
+                providers.add(provider.replace('.', '/'));
+            }
+        }
+    }
+
+    /**
+     * Records the entry with the given name as a class or a nested archive.
+     *
+     * @return {@code true} if the entry is a nested archive
+     */
+    private static boolean addEntry(String name, List<String> classes, List<String> nestedArchives) {
+        if (name.endsWith(CLASS_EXT)) {
+            if (!name.startsWith(VERSIONS_DIR) && !name.endsWith("module-info.class")) {
+                classes.add(name.substring(0, name.length() - CLASS_EXT.length()));
+            }
+        } else if (name.endsWith(".jar") || name.endsWith(".war") || name.endsWith(".zip")) {
+            nestedArchives.add(name);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the package of the class given in the internal form, {@code ""} for the unnamed package.
+     */
+    static String packageOf(String cls) {
+        int lastSlash = cls.lastIndexOf('/');
+        return lastSlash < 0 ? "" : cls.substring(0, lastSlash);
+    }
+
+    /**
+     * Returns the SHA-256 of the file contents in hex.
+     */
+    static String contentHash(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+            while (in.read(buffer) != -1) {
+                // digest is updated while reading
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -33,6 +33,7 @@ import java.io.StringWriter;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static java.util.stream.Collectors.joining;
@@ -45,18 +46,29 @@ import static java.util.stream.Collectors.joining;
  */
 class CompilerArgsGenerator {
 
+    static final String GENERATED_BY_PREFIX = "%%Generated by ";
+
     private final JetProject project;
 
     private final ExcelsiorJet excelsiorJet;
 
     private final boolean buildToProfile;
 
+    private List<File> componentProjects = Collections.emptyList();
+
     CompilerArgsGenerator(JetProject project, ExcelsiorJet excelsiorJet, boolean buildToProfile) {
         this.project = project;
         this.excelsiorJet = excelsiorJet;
         this.buildToProfile = buildToProfile;
     }
 
+    /**
+     * Sets the project files of the built {@link JetProject#components} the application uses.
+     */
+    void componentProjects(List<File> componentProjects) {
+        this.componentProjects = componentProjects;
+    }
+
     private String toJetPrjFormat(Path f) {
         return f.toString().replace(File.separatorChar, '/');
     }
@@ -68,8 +80,17 @@ class CompilerArgsGenerator {
     String projectFileContent() {
         StringWriter stringWriter = new StringWriter();
         PrintWriter out = new PrintWriter(stringWriter);
+        writeProjectFile(out);
+        out.flush();
+        return stringWriter.toString();
+    }
 
-        out.println("%%Generated by " + project.creatorPlugin());
+    /**
+     * Writes the project file content to {@code out} entry by entry,
+     * so that no copy of the whole content is kept in memory.
+     */
+    void writeProjectFile(PrintWriter out) {
+        out.println(GENERATED_BY_PREFIX + project.creatorPlugin());
         out.println();
 
         compilerArgs().forEach(out::println);
@@ -80,6 +101,10 @@ class CompilerArgsGenerator {
         }
 
         for (ClasspathEntry dep : project.classpathEntries()) {
+            if (project.componentOf(dep) != null) {
+                // compiled into the component
+                continue;
+            }
             String entryPath;
             switch (project.appType()) {
                 case PLAIN:
@@ -88,52 +113,91 @@ class CompilerArgsGenerator {
                     out.println("!classpathentry " + toJetPrjFormat(project.toPathRelativeToJetBuildDir(dep)));
                     break;
                 case TOMCAT:
-                    String warDeployName = project.tomcatConfiguration().warDeployName;
                     entryPath = ":/WEB-INF/";
                     if (dep.isMainArtifact) {
                         entryPath += "classes";
                     } else {
                         entryPath += "lib/" + dep.path.getName();
                     }
-                    out.println("!classloaderentry webapp webapps/" + warDeployName.substring(0, warDeployName.lastIndexOf(".war")) + entryPath);
+                    out.println("!classloaderentry webapp webapps/" + project.tomcatConfiguration().explodedWarName() + entryPath);
                     break;
                 case SPRING_BOOT:
                     String springBootArchive = project.mainArtifact().getName();
-                    entryPath = project.isMainArtifactJar()? ":/BOOT-INF/": ":/WEB-INF/";
-                    if (dep.isMainArtifact) {
-                        if (dep.pack != null) {
-                            //special case: we should set -pack equation for the whole Spring Boot Jar
-                            out.println("!classloaderentry app " + springBootArchive);
-                            out.println("  -pack=" + dep.pack.jetValue);
-                            out.println("!end");
-                        }
-                        entryPath += "classes";
-                    } else {
-                        //TODO: pass "provided" flag from the plugins to be able to set settings
-                        //for lib-provided/ jars of a Spring Boot war
-                        entryPath += "lib/" + dep.path.getName();
+                    if (dep.isMainArtifact && (dep.pack != null)) {
+                        //special case: we should set -pack equation for the whole Spring Boot Jar
+                        out.println("!classloaderentry app " + springBootArchive);
+                        out.println("  -pack=" + dep.pack.jetValue);
+                        out.println("!end");
                     }
-                    out.println("!classloaderentry springboot " + springBootArchive + entryPath);
+                    out.println("!classloaderentry springboot " + springBootArchive + ":/" + project.springBootEntryPath(dep));
                     break;
                 default:
                     throw new AssertionError("Unknown app type");
             }
-            if (dep.optimize != null) {
-                out.println("  -optimize=" + dep.optimize.jetValue);
-            }
-            if (dep.protect != null) {
-                out.println("  -protect=" + dep.protect.jetValue);
-            }
-            if (dep.pack != null) {
-                out.println("  -pack=" + dep.pack.jetValue);
-            }
-            out.println("!end");
+            writeEntrySettings(out, dep);
+        }
+
+        for (File componentProject : componentProjects) {
+            out.println("!uses " + toJetPrjFormat(componentProject));
         }
 
         for (String mod : modules()) {
             out.println("!module " + mod);
         }
+    }
 
+    private void writeEntrySettings(PrintWriter out, ClasspathEntry dep) {
+        if (dep.optimize != null) {
+            out.println("  -optimize=" + dep.optimize.jetValue);
+        }
+        if (dep.protect != null) {
+            out.println("  -protect=" + dep.protect.jetValue);
+        }
+        if (dep.pack != null) {
+            out.println("  -pack=" + dep.pack.jetValue);
+        }
+        out.println("!end");
+    }
+
+    /**
+     * Returns the project file content of the given component: a dynamic library compiled from the given
+     * classpath entries, located relatively to the component directory as they are relatively to the build directory,
+     * with the code generation settings of the application.
+     */
+    String componentProjectFileContent(String component, List<ClasspathEntry> entries) {
+        return componentProjectFileContent(component, entries, Collections.emptyList());
+    }
+
+    /**
+     * Returns the project file content of the given component that uses the given components.
+     *
+     * @param usedProjects project files of the used components, in the order they must be used
+     */
+    String componentProjectFileContent(String component, List<ClasspathEntry> entries, List<File> usedProjects) {
+        StringWriter stringWriter = new StringWriter();
+        PrintWriter out = new PrintWriter(stringWriter);
+        out.println(GENERATED_BY_PREFIX + project.creatorPlugin());
+        out.println();
+
+        out.println("-gendll+");
+        out.println("-outputname=" + component);
+        out.println("-decor=ht");
+        if (project.globalOptimizer()) {
+            out.println("-global+");
+        }
+        codeGenerationArgs().forEach(out::println);
+        if (project.stackTraceSupport() == StackTraceSupportType.FULL) {
+            out.println("-genstacktrace+");
+        }
+
+        for (ClasspathEntry dep : entries) {
+            out.println("!classpathentry " + toJetPrjFormat(project.toPathRelativeToJetBuildDir(dep)));
+            writeEntrySettings(out, dep);
+        }
+        for (File usedProject : usedProjects) {
+            out.println("!uses " + toJetPrjFormat(usedProject));
+        }
+        out.flush();
         return stringWriter.toString();
     }
 
@@ -147,8 +211,9 @@ class CompilerArgsGenerator {
         }
 
         ExecProfilesConfig execProfiles = project.execProfiles();
-        if (execProfiles.getUsg().exists()) {
-            modules.add(toJetPrjFormat(execProfiles.getUsg()));
+        //usage lists of multi-scenario Test Runs complement each other
+        for (File usg : execProfiles.getTestRunUsgs()) {
+            modules.add(toJetPrjFormat(usg));
         }
 
         return modules;
@@ -269,35 +334,7 @@ class CompilerArgsGenerator {
             }
         }
 
-        if (project.runtimeConfiguration().flavor != null) {
-            compilerArgs.add("-jetrt=" + project.runtimeConfiguration().flavor);
-        }
-
-        switch (project.inlineExpansion()) {
-            case TINY_METHODS_ONLY:
-                compilerArgs.add("-inline-");
-                break;
-            case LOW:
-                compilerArgs.add("-inlinelimit=50");
-                compilerArgs.add("-inlinetolimit=250");
-                break;
-            case MEDIUM:
-                compilerArgs.add("-inlinelimit=100");
-                compilerArgs.add("-inlinetolimit=500");
-                break;
-            case VERY_AGGRESSIVE:
-                compilerArgs.add("-inlinelimit=250");
-                compilerArgs.add("-inlinetolimit=2000");
-            case AGGRESSIVE:
-                //use default
-                break;
-            default:
-                throw new AssertionError("Unknown inline expansion type: " + project.inlineExpansion());
-        }
-
-        if (!project.stackAllocation()) {
-            compilerArgs.add("-genstackalloc-");
-        }
+        compilerArgs.addAll(codeGenerationArgs());
 
         if (!Utils.isEmpty(project.exeRunArgs())) {
             String quotedArgs = Arrays.stream(project.exeRunArgs())
@@ -322,6 +359,44 @@ class CompilerArgsGenerator {
         return compilerArgs;
     }
 
+    /**
+     * Returns the arguments affecting the generated code that the application shares with its components.
+     */
+    private List<String> codeGenerationArgs() {
+        List<String> args = new ArrayList<>();
+        if (project.runtimeConfiguration().flavor != null) {
+            args.add("-jetrt=" + project.runtimeConfiguration().flavor);
+        }
+
+        switch (project.inlineExpansion()) {
+            case TINY_METHODS_ONLY:
+                args.add("-inline-");
+                break;
+            case LOW:
+                args.add("-inlinelimit=50");
+                args.add("-inlinetolimit=250");
+                break;
+            case MEDIUM:
+                args.add("-inlinelimit=100");
+                args.add("-inlinetolimit=500");
+                break;
+            case VERY_AGGRESSIVE:
+                args.add("-inlinelimit=250");
+                args.add("-inlinetolimit=2000");
+            case AGGRESSIVE:
+                //use default
+                break;
+            default:
+                throw new AssertionError("Unknown inline expansion type: " + project.inlineExpansion());
+        }
+
+        if (!project.stackAllocation()) {
+            args.add("-genstackalloc-");
+        }
+
+        return args;
+    }
+
     private List<String> jvmArgs() {
         List<String> jvmArgs = project.jvmArgs() != null ? new ArrayList<>(Arrays.asList(project.jvmArgs())) : new ArrayList<>();
         if (project.stackTraceSupport() == StackTraceSupportType.NONE) {
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.ExcelsiorJet;
+import com.excelsiorjet.api.cmd.CmdLineToolException;
+import com.excelsiorjet.api.util.FileUpdater;
+import com.excelsiorjet.api.util.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Builds the native component libraries of {@link JetProject#components} the application build then uses,
+ * reusing the libraries built before.
+ * <p>
+ * Each component is built in the {@code components/<name>-<hash>} subdirectory of {@link JetProject#jetOutputDir},
+ * where the hash covers the component jars, its compiler project file and the Excelsior JET installation.
+ * So a component is only recompiled when any of them changes, and the directories of the outdated builds
+ * of the component are removed. The components that need to be built are compiled concurrently,
+ * as many at once as the available CPU cores and physical memory allow.
+ * </p>
+ * <p>
+ * A component the classes of which refer to classes of other components uses the project files of those components,
+ * so their references are resolved when the component is compiled, and is built after them. The uses are part of
+ * the component project file, so a component is rebuilt whenever a component it uses is. Components may not refer
+ * to the classes compiled with the application, nor to each other cyclically.
+ * </p>
+ */
+class ComponentBuilder {
+
+    static final String COMPONENTS_DIR = "components";
+    private static final String BUILT_MARKER = ".built";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int HASH_LENGTH = 16;
+    private static final long MEMORY_PER_BUILD_MB = 2048;
+
+    /**
+     * A built component.
+     */
+    static class Component {
+        final String name;
+        final File projectFile;
+        final File library;
+        final boolean reused;
+
+        Component(String name, File projectFile, File library, boolean reused) {
+            this.name = name;
+            this.projectFile = projectFile;
+            this.library = library;
+            this.reused = reused;
+        }
+    }
+
+    private final ExcelsiorJet excelsiorJet;
+    private final JetProject project;
+    private final CompilerArgsGenerator compilerArgsGenerator;
+
+    ComponentBuilder(ExcelsiorJet excelsiorJet, JetProject project, CompilerArgsGenerator compilerArgsGenerator) {
+        this.excelsiorJet = excelsiorJet;
+        this.project = project;
+        this.compilerArgsGenerator = compilerArgsGenerator;
+    }
+
+    /**
+     * Builds the components that have not been built yet.
+     * A component that refers to classes of other components uses them ({@code !uses}) and is built after them.
+     *
+     * @return the components in the dependency order, each after the components it uses,
+     *         otherwise in the order of their first entries on the classpath
+     */
+    List<Component> build() throws JetTaskFailureException, IOException, CmdLineToolException {
+        File componentsDir = new File(project.jetOutputDir(), COMPONENTS_DIR);
+        Map<String, List<ClasspathEntry>> componentEntries = project.componentEntries();
+        Map<String, Set<String>> uses = uses(componentEntries);
+        Map<String, Component> components = new LinkedHashMap<>();
+        // components to build by their depth in the uses graph, so that used components are built first
+        List<List<Callable<Void>>> levels = new ArrayList<>();
+        Map<String, Integer> levelOf = new HashMap<>();
+        List<String> order = dependencyOrder(componentEntries.keySet(), uses);
+        for (String name : order) {
+            List<ClasspathEntry> entries = componentEntries.get(name);
+            int level = 0;
+            List<Component> used = new ArrayList<>();
+            for (String usedName : transitiveUses(name, uses, order)) {
+                used.add(components.get(usedName));
+                level = Math.max(level, levelOf.get(usedName) + 1);
+            }
+            String projectContent = compilerArgsGenerator.componentProjectFileContent(name, entries,
+                    used.stream()
+                            // the components are siblings, and the compiler runs in the component directory
+                            .map(c -> new File("..", c.projectFile.getParentFile().getName() + File.separator + c.projectFile.getName()))
+                            .collect(Collectors.toList()));
+            File dir = new File(componentsDir, name + "-" + hash(projectContent, entries));
+            File projectFile = new File(dir, name + ".prj");
+            File library = new File(dir, excelsiorJet.getTargetOS().mangleDllName(name, false));
+            boolean reused = new File(dir, BUILT_MARKER).isFile() && library.isFile();
+            components.put(name, new Component(name, projectFile, library, reused));
+            levelOf.put(name, level);
+            logger.info(s(reused ? "JetApi.Components.Reused.Info" : "JetApi.Components.Build.Info", name,
+                    String.valueOf(entries.size()), dir.getAbsolutePath()));
+            if (!reused) {
+                while (levels.size() <= level) {
+                    levels.add(new ArrayList<>());
+                }
+                levels.get(level).add(() -> {
+                    buildComponent(dir, projectFile, projectContent, entries);
+                    return null;
+                });
+            }
+        }
+        for (List<Callable<Void>> jobs : levels) {
+            if (jobs.isEmpty()) {
+                continue;
+            }
+            ResourceAwareScheduler scheduler = new ResourceAwareScheduler(1, MEMORY_PER_BUILD_MB, 0);
+            try {
+                ResourceAwareScheduler.run(jobs, scheduler.admissionLimit(jobs.size()));
+            } catch (IllegalStateException e) {
+                if (e.getCause() instanceof JetTaskFailureException) {
+                    throw (JetTaskFailureException) e.getCause();
+                } else if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                } else if (e.getCause() instanceof CmdLineToolException) {
+                    throw (CmdLineToolException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        List<Component> result = new ArrayList<>(components.values());
+        removeOutdated(componentsDir, result);
+        return result;
+    }
+
+    /**
+     * Finds the components the classes of each component refer to.
+     * A component cannot refer to the classes compiled with the application, as the application uses the component.
+     *
+     * @return the names of the components mapped to the names of the components they refer to directly
+     */
+    private Map<String, Set<String>> uses(Map<String, List<ClasspathEntry>> componentEntries) throws JetTaskFailureException {
+        Map<String, Set<String>> uses = new HashMap<>();
+        List<ClasspathEntry> classpath = project.classpathEntries();
+        ReachabilityAnalyzer analyzer;
+        try {
+            List<File> files = classpath.stream().map(entry -> entry.path).collect(Collectors.toList());
+            analyzer = new ReachabilityAnalyzer(files, project.indexClasspath(),
+                    Collections.nCopies(files.size(), ""));
+            for (int i = 0; i < classpath.size(); i++) {
+                String component = project.componentOf(classpath.get(i));
+                if (component == null) {
+                    continue;
+                }
+                for (int ref : analyzer.referencedEntries(i)) {
+                    String usedComponent = project.componentOf(classpath.get(ref));
+                    if (usedComponent == null) {
+                        throw new JetTaskFailureException(s("JetApi.Components.RefersToApplication.Failure",
+                                component, classpath.get(i).path.getName(), classpath.get(ref).path.getName()));
+                    }
+                    if (!usedComponent.equals(component)) {
+                        uses.computeIfAbsent(component, k -> new HashSet<>()).add(usedComponent);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.warn(s("JetApi.Components.Analysis.Warning", e.getMessage()));
+            return Collections.emptyMap();
+        }
+        return uses;
+    }
+
+    /**
+     * Orders the components so that each one follows the components it uses, keeping the given order otherwise.
+     */
+    private static List<String> dependencyOrder(Collection<String> names, Map<String, Set<String>> uses)
+            throws JetTaskFailureException {
+        List<String> order = new ArrayList<>();
+        Set<String> visiting = new HashSet<>();
+        Set<String> visited = new HashSet<>();
+        for (String name : names) {
+            visit(name, uses, visiting, visited, order);
+        }
+        return order;
+    }
+
+    private static void visit(String name, Map<String, Set<String>> uses, Set<String> visiting, Set<String> visited,
+                              List<String> order) throws JetTaskFailureException {
+        if (visited.contains(name)) {
+            return;
+        }
+        if (!visiting.add(name)) {
+            throw new JetTaskFailureException(s("JetApi.Components.Cycle.Failure", name));
+        }
+        for (String used : new TreeSet<>(uses.getOrDefault(name, Collections.emptySet()))) {
+            visit(used, uses, visiting, visited, order);
+        }
+        visiting.remove(name);
+        visited.add(name);
+        order.add(name);
+    }
+
+    /**
+     * @return the components the given component uses directly or indirectly, in the dependency order
+     */
+    private static List<String> transitiveUses(String name, Map<String, Set<String>> uses, List<String> order) {
+        Set<String> used = new HashSet<>();
+        List<String> next = new ArrayList<>(uses.getOrDefault(name, Collections.emptySet()));
+        while (!next.isEmpty()) {
+            String component = next.remove(next.size() - 1);
+            if (used.add(component)) {
+                next.addAll(uses.getOrDefault(component, Collections.emptySet()));
+            }
+        }
+        return order.stream().filter(used::contains).collect(Collectors.toList());
+    }
+
+    private void buildComponent(File dir, File projectFile, String projectContent, List<ClasspathEntry> entries)
+            throws JetTaskFailureException, IOException, CmdLineToolException {
+        if (dir.exists()) {
+            // left by an interrupted build
+            Utils.cleanDirectory(dir);
+        }
+        Utils.mkdir(dir);
+        for (ClasspathEntry entry : entries) {
+            Utils.linkOrCopy(entry.path.toPath(), dir.toPath().resolve(project.toPathRelativeToJetBuildDir(entry)));
+        }
+        FileUpdater.writeIfChanged(projectFile, out -> out.print(projectContent));
+        if (excelsiorJet.compile(dir, "=p", projectFile.getName()) != 0) {
+            throw new JetTaskFailureException(s("JetApi.Components.Build.Failure", projectFile.getAbsolutePath()));
+        }
+        FileUpdater.writeIfChanged(new File(dir, BUILT_MARKER), out -> out.print(projectFile.getName()));
+    }
+
+    /**
+     * Removes the directories of the builds of the given components other than the current ones.
+     */
+    private static void removeOutdated(File componentsDir, List<Component> components) {
+        File[] dirs = componentsDir.listFiles(File::isDirectory);
+        if (dirs == null) {
+            return;
+        }
+        for (File dir : dirs) {
+            for (Component component : components) {
+                if (dir.getName().startsWith(component.name + "-") &&
+                        (dir.getName().length() == component.name.length() + 1 + HASH_LENGTH) &&
+                        !dir.equals(component.projectFile.getParentFile())) {
+                    Utils.cleanDirectorySilently(dir);
+                }
+            }
+        }
+    }
+
+    private String hash(String projectContent, List<ClasspathEntry> entries) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+        digest.update(projectContent.getBytes(StandardCharsets.UTF_8));
+        digest.update(String.valueOf(excelsiorJet.getJetHome()).getBytes(StandardCharsets.UTF_8));
+        // the components built by another compiler version or for another target CPU must not be linked
+        digest.update(String.valueOf(excelsiorJet.getVersionString()).getBytes(StandardCharsets.UTF_8));
+        digest.update(String.valueOf(excelsiorJet.getEdition()).getBytes(StandardCharsets.UTF_8));
+        digest.update(String.valueOf(excelsiorJet.getTargetOS()).getBytes(StandardCharsets.UTF_8));
+        for (ClasspathEntry entry : entries) {
+            digest.update(ClasspathIndex.contentHash(entry.path).getBytes(StandardCharsets.UTF_8));
+        }
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.substring(0, HASH_LENGTH);
+    }
+}
@@ -68,31 +68,19 @@ class DependencySettingsPriorityComparator implements Comparator<DependencySetti
         if (o1 == o2) {
             return 0;
         }
-        boolean dep1HasFullId = hasFullId(o1);
-        boolean dep2HasFullId = hasFullId(o2);
-        if (dep1HasFullId ^ dep2HasFullId) {
-            return dep1HasFullId ? 1 : -1;
+        int result = Integer.compare(priority(o1), priority(o2));
+        if (result == 0) {
+            throw new AssertionError("There should not be settings with equal ids");
         }
-        if (o1.artifactId == null ^ o2.artifactId == null) {
-            return o1.artifactId != null ? 1 : -1;
-        }
-        // at this point both dependencies either have or not artifact id
-        boolean dep1HasVersion = o1.version != null;
-        boolean dep2HasVersion = o2.version != null;
-        if (dep1HasVersion ^ dep2HasVersion) {
-            return dep1HasVersion ? 1 : -1;
-        }
-        // at this point both either have or not artifact id and version
-        boolean dep1HasGroup = o1.groupId != null;
-        boolean dep2HasGroup = o2.groupId != null;
-        if (dep1HasGroup ^ dep2HasGroup) {
-            return dep1HasGroup ? 1 : -1;
-        }
-        throw new AssertionError("There should not be settings with equal ids");
+        return result;
     }
 
-    private boolean hasFullId(DependencySettings d) {
-        return d.groupId != null && d.artifactId != null && d.version != null;
+    /**
+     * Returns the priority of the settings that depends only on which id components they have.
+     * Artifact outweighs version, which in turn outweighs group, so the full id has the highest priority.
+     */
+    static int priority(DependencySettings d) {
+        return (d.artifactId != null ? 4 : 0) + (d.version != null ? 2 : 0) + (d.groupId != null ? 1 : 0);
     }
 
 }
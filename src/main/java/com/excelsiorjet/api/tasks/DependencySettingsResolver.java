@@ -25,14 +25,22 @@ import com.excelsiorjet.api.tasks.config.dependencies.DependencySettings;
 import com.excelsiorjet.api.tasks.config.dependencies.ProjectDependency;
 import com.excelsiorjet.api.tasks.config.dependencies.OptimizationPreset;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Map;
 
 /**
  * The class assigns dependency settings to project dependencies, resulting in the creation of a respective
  * {@link ClasspathEntry}.
+ * <p>
+ * Settings are indexed by the id components they specify, so that matching settings are found with a few hash lookups
+ * per dependency rather than by scanning all settings, which matters for projects with thousands of dependencies.
+ * </p>
  *
  * @author Aleksey Zhidkov
  */
@@ -40,12 +48,71 @@ class DependencySettingsResolver {
 
     private final OptimizationPreset optimizationPreset;
     private final String projectGroupId;
-    private final List<DependencySettings> dependencySettingsList;
+
+    private static final int GROUP = 1;
+    private static final int VERSION = 2;
+    private static final int ARTIFACT = 4;
+    private static final Comparator<DependencySettings> BY_PRIORITY =
+            Comparator.comparingInt(DependencySettingsPriorityComparator::priority);
+
+    /**
+     * Settings without path keyed by the id components they specify, see {@link #key}.
+     */
+    private final Map<String, List<DependencySettings>> index = new HashMap<>();
+
+    /**
+     * Combinations of id components specified by the indexed settings, in ascending priority order.
+     */
+    private final int[] shapes;
+
+    /**
+     * Settings with path that are matched by canonical path, so they cannot be hashed by id.
+     */
+    private final List<DependencySettings> pathSettings = new ArrayList<>();
+
+    /**
+     * Settings proposed for dependencies by {@link ReachabilityAnalyzer}, keyed by dependency path.
+     */
+    private Map<File, DependencySettings> proposals = Collections.emptyMap();
 
     DependencySettingsResolver(OptimizationPreset optimizationPreset, String projectGroupId, List<DependencySettings> dependencySettingsList) {
         this.optimizationPreset = optimizationPreset;
         this.projectGroupId = projectGroupId;
-        this.dependencySettingsList = dependencySettingsList;
+        boolean[] present = new boolean[ARTIFACT + VERSION + GROUP + 1];
+        for (DependencySettings settings : dependencySettingsList) {
+            if (settings.path != null) {
+                pathSettings.add(settings);
+            } else {
+                // the shape of the settings is exactly their priority
+                int shape = DependencySettingsPriorityComparator.priority(settings);
+                present[shape] = true;
+                index.computeIfAbsent(key(shape, settings.groupId, settings.artifactId, settings.version),
+                        k -> new ArrayList<>(1)).add(settings);
+            }
+        }
+        int count = 0;
+        int[] shapes = new int[present.length];
+        for (int shape = 0; shape < present.length; shape++) {
+            if (present[shape]) {
+                shapes[count++] = shape;
+            }
+        }
+        this.shapes = Arrays.copyOf(shapes, count);
+    }
+
+    /**
+     * Sets the settings proposed for dependencies, which take effect unless the user settings
+     * of a dependency specify the same parameters.
+     */
+    DependencySettingsResolver proposals(Map<File, DependencySettings> proposals) {
+        this.proposals = proposals;
+        return this;
+    }
+
+    private static String key(int shape, String groupId, String artifactId, String version) {
+        return shape + ":" + ((shape & GROUP) != 0 ? groupId : "") +
+                ":" + ((shape & ARTIFACT) != 0 ? artifactId : "") +
+                ":" + ((shape & VERSION) != 0 ? version : "");
     }
 
     /**
@@ -58,9 +125,18 @@ class DependencySettingsResolver {
     }
 
     private ClasspathEntry toClasspathEntry(ProjectDependency projectDependency) {
-        TreeSet<DependencySettings> dependencySettings = settingsFor(projectDependency);
+        List<DependencySettings> dependencySettings = matchedSettings(projectDependency);
         DependencySettings resolvedSettings = dependencySettings.stream().
                 reduce(new DependencySettings(projectDependency.groupId, projectDependency.artifactId, projectDependency.version, projectDependency.path), this::copyNonNullSettings);
+        DependencySettings proposal = proposals.get(projectDependency.path);
+        if (proposal != null) {
+            if (resolvedSettings.optimize == null) {
+                resolvedSettings.optimize = proposal.optimize;
+            }
+            if (resolvedSettings.pack == null) {
+                resolvedSettings.pack = proposal.pack;
+            }
+        }
         if (resolvedSettings.isLibrary == null) {
             resolvedSettings.isLibrary = !projectGroupId.equals(projectDependency.groupId);
         }
@@ -96,17 +172,34 @@ class DependencySettingsResolver {
     }
 
     boolean hasSettingsFor(ProjectDependency dep) {
-        return matchedSettings(dep).count() > 0;
+        return !matchedSettings(dep).isEmpty();
     }
 
-    private TreeSet<DependencySettings> settingsFor(ProjectDependency dep) {
-        return matchedSettings(dep).
-                collect(Collectors.toCollection(() -> new TreeSet<>(new DependencySettingsPriorityComparator())));
-    }
-
-    private Stream<DependencySettings> matchedSettings(ProjectDependency dep) {
-        return dependencySettingsList.stream().
-                filter(setting -> setting.matches(dep));
+    /**
+     * Returns the settings matching the given dependency in ascending priority order.
+     */
+    private List<DependencySettings> matchedSettings(ProjectDependency dep) {
+        List<DependencySettings> matched = new ArrayList<>(2);
+        for (DependencySettings settings : pathSettings) {
+            if (settings.matches(dep)) {
+                matched.add(settings);
+            }
+        }
+        for (int shape : shapes) {
+            if (((shape & GROUP) != 0 && dep.groupId == null) ||
+                ((shape & ARTIFACT) != 0 && dep.artifactId == null) ||
+                ((shape & VERSION) != 0 && dep.version == null)) {
+                continue;
+            }
+            List<DependencySettings> settings = index.get(key(shape, dep.groupId, dep.artifactId, dep.version));
+            if (settings != null) {
+                matched.addAll(settings);
+            }
+        }
+        if ((matched.size() > 1) && !pathSettings.isEmpty()) {
+            matched.sort(BY_PRIORITY);
+        }
+        return matched;
     }
 
 }
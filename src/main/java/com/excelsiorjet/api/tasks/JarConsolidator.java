@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.tasks.config.JarStripRule;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+/**
+ * Merges small jars into a single one, so that the application package contains and the runtime opens fewer files.
+ * <p>
+ * Only jars that can be merged without changing the semantics are eligible: the jars must not be signed,
+ * must not depend on their manifests ({@code Class-Path}, {@code Multi-Release}), and their entries must not clash
+ * with the entries of the other merged jars, except for the {@code META-INF/services} provider configuration files,
+ * which are concatenated in the order of the jars. The manifests and {@code module-info} classes of the merged jars
+ * are dropped.
+ * </p>
+ */
+class JarConsolidator {
+
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+    private static final String MODULE_INFO = "module-info.class";
+
+    private final Set<String> names = new HashSet<>();
+    private final List<File> jars = new ArrayList<>();
+
+    /**
+     * Adds the given jar to the jars to merge, unless it is not eligible for merging.
+     *
+     * @return {@code true} if the jar has been added
+     */
+    boolean add(File jar) throws IOException {
+        List<String> entries = new ArrayList<>();
+        try (JarFile jarFile = new JarFile(jar, false)) {
+            Manifest manifest = jarFile.getManifest();
+            if ((manifest != null) &&
+                    ((manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH) != null) ||
+                    "true".equalsIgnoreCase(manifest.getMainAttributes().getValue("Multi-Release")))) {
+                return false;
+            }
+            Enumeration<JarEntry> jarEntries = jarFile.entries();
+            while (jarEntries.hasMoreElements()) {
+                String name = jarEntries.nextElement().getName();
+                if (isSignature(name)) {
+                    return false;
+                }
+                if (!isMerged(name) && names.contains(name)) {
+                    return false;
+                }
+                entries.add(name);
+            }
+        }
+        for (String name : entries) {
+            if (!isMerged(name)) {
+                names.add(name);
+            }
+        }
+        jars.add(jar);
+        return true;
+    }
+
+    List<File> jars() {
+        return jars;
+    }
+
+    /**
+     * Writes the merged jar to {@code target}, unless the target already has the same content.
+     *
+     * @return {@code true} if the target has been created or replaced
+     */
+    boolean merge(File target) throws IOException {
+        Path targetPath = target.toPath().toAbsolutePath();
+        Files.createDirectories(targetPath.getParent());
+        Path temp = Files.createTempFile(targetPath.getParent(), target.getName(), ".tmp");
+        try {
+            Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            Map<String, ByteArrayOutputStream> services = new LinkedHashMap<>();
+            Set<String> dirs = new HashSet<>();
+            try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(temp))) {
+                out.putNextEntry(newEntry(MANIFEST, -1));
+                manifest.write(out);
+                out.closeEntry();
+                for (File jar : jars) {
+                    try (JarFile jarFile = new JarFile(jar, false)) {
+                        Enumeration<JarEntry> entries = jarFile.entries();
+                        while (entries.hasMoreElements()) {
+                            JarEntry entry = entries.nextElement();
+                            String name = entry.getName();
+                            if (name.equalsIgnoreCase(MANIFEST) || name.equalsIgnoreCase("META-INF/") ||
+                                    name.equals(MODULE_INFO)) {
+                                continue;
+                            }
+                            try (InputStream in = jarFile.getInputStream(entry)) {
+                                if (isService(name)) {
+                                    ByteArrayOutputStream content = services.computeIfAbsent(name, k -> new ByteArrayOutputStream());
+                                    copy(in, content);
+                                    content.write('\n');
+                                } else if (!entry.isDirectory() || dirs.add(name)) {
+                                    out.putNextEntry(newEntry(name, entry.getTime()));
+                                    copy(in, out);
+                                    out.closeEntry();
+                                }
+                            }
+                        }
+                    }
+                }
+                for (Map.Entry<String, ByteArrayOutputStream> service : services.entrySet()) {
+                    out.putNextEntry(newEntry(service.getKey(), -1));
+                    service.getValue().writeTo(out);
+                    out.closeEntry();
+                }
+            }
+
+            if (target.isFile() && (target.length() == Files.size(temp)) &&
+                    ClasspathIndex.contentHash(target).equals(ClasspathIndex.contentHash(temp.toFile()))) {
+                return false;
+            }
+            try {
+                Files.move(temp, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static ZipEntry newEntry(String name, long time) {
+        ZipEntry entry = new ZipEntry(name);
+        // the same content must produce the same jar, so that the staged jar is only replaced if it changes
+        entry.setTime((time != -1) ? time : 0);
+        return entry;
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+    }
+
+    private static boolean isService(String name) {
+        return name.startsWith(ClasspathIndex.SERVICES_DIR) && (name.length() > ClasspathIndex.SERVICES_DIR.length()) &&
+                (name.indexOf('/', ClasspathIndex.SERVICES_DIR.length()) < 0);
+    }
+
+    /**
+     * Entries that may occur in several merged jars.
+     */
+    private static boolean isMerged(String name) {
+        return name.endsWith("/") || name.equalsIgnoreCase(MANIFEST) || name.equals(MODULE_INFO) || isService(name);
+    }
+
+    private static boolean isSignature(String name) {
+        return JarStripRule.SIGNATURES.matches(name);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.tasks.config.JarStripRule;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Produces copies of jars without the entries matched by the given {@link JarStripRule}s.
+ * <p>
+ * The original jars are never modified. The trimmed copies are kept in a cache directory under names derived from
+ * the hash of the original jar contents and the rules, so a jar is only rewritten when it changes.
+ * The copies of the jars not requested since this shrinker was created can be removed with {@link #removeUnused()},
+ * which leaves alone the files that concurrent builds sharing the cache may be writing or using.
+ * </p>
+ */
+class JarShrinker {
+
+    private static final int HASH_LENGTH = 16;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Set<JarStripRule> rules;
+    private final File cacheDir;
+    private final Set<File> used = new HashSet<>();
+    private final long createdAt = System.currentTimeMillis();
+
+    private long strippedBytes;
+
+    JarShrinker(Set<JarStripRule> rules, File cacheDir) {
+        this.rules = rules;
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Checks whether the jar entry of the given name is stripped by any of the rules.
+     */
+    boolean isStripped(String entryName) {
+        for (JarStripRule rule : rules) {
+            if (rule.matches(entryName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the trimmed copy of the given jar, creating it if it is not cached yet,
+     * or the jar itself if it has nothing to strip.
+     */
+    File shrink(File jar) throws IOException {
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            if (zipFile.stream().noneMatch(entry -> isStripped(entry.getName()))) {
+                return jar;
+            }
+        }
+
+        File trimmed = new File(cacheDir, key(jar) + "-" + jar.getName());
+        used.add(trimmed);
+        if (!trimmed.isFile()) {
+            write(jar, trimmed);
+        }
+        strippedBytes += Math.max(0, jar.length() - trimmed.length());
+        return trimmed;
+    }
+
+    /**
+     * Returns the total size reduction of the jars returned by {@link #shrink(File)}.
+     */
+    long strippedBytes() {
+        return strippedBytes;
+    }
+
+    /**
+     * Removes the cached copies of the jars that have not been requested from this shrinker.
+     * The temporary files being written and the copies created after this shrinker
+     * may belong to another build sharing the cache, so they are kept.
+     */
+    void removeUnused() throws IOException {
+        File[] files = cacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isFile() && !used.contains(file) && !file.getName().endsWith(TEMP_SUFFIX) &&
+                    (file.lastModified() < createdAt)) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+    }
+
+    private String key(File jar) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+        digest.update(ClasspathIndex.contentHash(jar).getBytes("UTF-8"));
+        // enum order, so that the key does not depend on the order the rules are configured in
+        for (JarStripRule rule : JarStripRule.values()) {
+            if (rules.contains(rule)) {
+                digest.update((":" + rule).getBytes("UTF-8"));
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.substring(0, HASH_LENGTH);
+    }
+
+    private void write(File jar, File target) throws IOException {
+        Path targetPath = target.toPath().toAbsolutePath();
+        Files.createDirectories(targetPath.getParent());
+        Path temp = Files.createTempFile(targetPath.getParent(), target.getName(), TEMP_SUFFIX);
+        try {
+            try (ZipFile zipFile = new ZipFile(jar);
+                 ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(temp))) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (isStripped(entry.getName())) {
+                        continue;
+                    }
+                    ZipEntry copy = new ZipEntry(entry.getName());
+                    copy.setTime(entry.getTime());
+                    if (entry.getExtra() != null) {
+                        copy.setExtra(entry.getExtra());
+                    }
+                    out.putNextEntry(copy);
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        copy(in, out);
+                    }
+                    out.closeEntry();
+                }
+            }
+            // concurrent builds sharing the cache produce the same content, so either copy wins
+            try {
+                Files.move(temp, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+    }
+}
@@ -27,16 +27,19 @@ import com.excelsiorjet.api.cmd.CmdLineToolException;
 import com.excelsiorjet.api.tasks.config.ApplicationType;
 import com.excelsiorjet.api.tasks.config.PackagingType;
 import com.excelsiorjet.api.tasks.config.compiler.ExecProfilesConfig;
+import com.excelsiorjet.api.util.FileUpdater;
 import com.excelsiorjet.api.util.Txt;
 import com.excelsiorjet.api.util.Utils;
 
 import java.io.*;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static com.excelsiorjet.api.log.Log.logger;
 import static com.excelsiorjet.api.util.Txt.s;
+import static java.util.stream.Collectors.toList;
 
 /**
  * Task for building Java (JVM) applications with Excelsior JET.
@@ -69,8 +72,8 @@ public class JetBuildTask {
      */
     private String createJetCompilerProject() throws JetTaskFailureException {
         String prj = project.outputName() + ".prj";
-        try (Writer writer = new BufferedWriter(new FileWriter(new File(buildDir, prj)))) {
-            writer.write(compilerArgsGenerator.projectFileContent());
+        try {
+            FileUpdater.writeIfChanged(new File(buildDir, prj), compilerArgsGenerator::writeProjectFile);
         } catch (IOException e) {
             throw new JetTaskFailureException(e.getMessage(), e);
         }
@@ -102,8 +105,8 @@ public class JetBuildTask {
     private ArrayList<String> getXPackArgs(ArrayList<XPackOption> xpackOptions, File rspFile) throws JetTaskFailureException {
         if (excelsiorJet.since11_3()) {
             try {
-                Utils.linesToFile(PackagerArgsGenerator.getArgFileContent(xpackOptions), rspFile);
-            } catch (FileNotFoundException e) {
+                FileUpdater.writeIfChanged(rspFile, out -> xpackOptions.forEach(option -> out.println(option.toArgFileLine())));
+            } catch (IOException e) {
                 throw new JetTaskFailureException("Cannot create file " + rspFile, e);
             }
             ArrayList<String> xpackArgs = PackagerArgsGenerator.optionsToArgs(xpackOptions, true);
@@ -349,41 +352,80 @@ public class JetBuildTask {
      * @throws CmdLineToolException if any error occurs while cmd line tool calls
      */
     public void execute() throws JetTaskFailureException, IOException, CmdLineToolException {
-        if (toProfile && !excelsiorJet.isPGOSupported()) {
-            throw new JetTaskFailureException(Txt.s("JetApi.PGONotSupported.Failure"));
-        }
-
-        project.validate(excelsiorJet, true);
-        buildDir = project.createBuildDir();
-
-        File appOrProfileDir = toProfile ? project.jetAppToProfileDir(): project.jetAppDir();
-        //cleanup appDir
-        try {
-            Utils.cleanDirectory(appOrProfileDir);
-        } catch (IOException e) {
-            throw new JetTaskFailureException(e.getMessage(), e);
-        }
+        execute(true);
+    }
 
+    /**
+     * Copies the application and its dependencies to the build directory of the project.
+     */
+    void stage() throws JetTaskFailureException, IOException {
         switch (project.appType()) {
             case PLAIN:
             case DYNAMIC_LIBRARY:
             case WINDOWS_SERVICE:
                 project.copyClasspathEntries();
-                compile(buildDir);
                 break;
             case TOMCAT:
                 project.copyTomcatAndWar();
-                compile(buildDir);
                 break;
             case SPRING_BOOT:
                 project.copySpringBootArtifact();
-                compile(buildDir);
                 break;
             default:
                 throw new AssertionError("Unknown application type");
         }
+        // check the classpath before the compiler spends minutes on it
+        ClasspathConflicts.check(project);
+    }
+
+    /**
+     * Compiles the project and creates the application directory (or the profiling image directory
+     * if building to profile), but does neither package the application nor collect its execution profile.
+     *
+     * @param validateAndStage see {@link #execute(boolean)}
+     * @return the created application or profiling image directory
+     */
+    File buildImage(boolean validateAndStage) throws JetTaskFailureException, IOException, CmdLineToolException {
+        if (toProfile && !excelsiorJet.isPGOSupported()) {
+            throw new JetTaskFailureException(Txt.s("JetApi.PGONotSupported.Failure"));
+        }
+
+        if (validateAndStage) {
+            project.validate(excelsiorJet, true);
+        }
+        buildDir = project.createBuildDir();
+
+        File appOrProfileDir = toProfile ? project.jetAppToProfileDir(): project.jetAppDir();
+        //cleanup appDir
+        try {
+            Utils.cleanDirectoryInBackground(appOrProfileDir);
+        } catch (IOException e) {
+            throw new JetTaskFailureException(e.getMessage(), e);
+        }
+
+        if (validateAndStage) {
+            stage();
+        }
+        if (!project.componentEntries().isEmpty()) {
+            List<ComponentBuilder.Component> components =
+                    new ComponentBuilder(excelsiorJet, project, compilerArgsGenerator).build();
+            compilerArgsGenerator.componentProjects(components.stream().map(c -> c.projectFile).collect(toList()));
+            packagerArgsGenerator.componentLibraries(components.stream().map(c -> c.library).collect(toList()));
+        }
+        compile(buildDir);
 
         createAppOrProfileDir(buildDir, appOrProfileDir);
+        return appOrProfileDir;
+    }
+
+    /**
+     * Builds the project.
+     *
+     * @param validateAndStage if set to {@code false}, the project is expected to be already validated
+     *                         and its build directory populated, so validation and staging are skipped.
+     */
+    void execute(boolean validateAndStage) throws JetTaskFailureException, IOException, CmdLineToolException {
+        File appOrProfileDir = buildImage(validateAndStage);
 
         if (toProfile) {
             Utils.mkdir(project.execProfiles().outputDir);
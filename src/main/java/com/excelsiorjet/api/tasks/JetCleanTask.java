@@ -20,6 +20,8 @@ public class JetCleanTask {
     public void execute() throws JetTaskFailureException, IOException {
         project.validate(excelsiorJet, true);
 
+        // cleaning is all this task does, so delete synchronously: a build tool JVM may exit right after the task,
+        // leaving a background deletion unfinished
         Utils.cleanDirectory(project.pdbConfiguration().pdbLocation());
     }
 }
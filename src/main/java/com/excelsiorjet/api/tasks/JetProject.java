@@ -34,6 +34,7 @@ import com.excelsiorjet.api.tasks.config.excelsiorinstaller.ExcelsiorInstallerCo
 import com.excelsiorjet.api.tasks.config.packagefile.PackageFile;
 import com.excelsiorjet.api.tasks.config.runtime.RuntimeConfig;
 import com.excelsiorjet.api.tasks.config.windowsservice.WindowsServiceConfig;
+import com.excelsiorjet.api.util.Json;
 import com.excelsiorjet.api.util.Txt;
 import com.excelsiorjet.api.util.Utils;
 
@@ -42,15 +43,14 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.jar.Attributes;
 import java.util.jar.Attributes.Name;
-import java.util.jar.JarFile;
-import java.util.jar.Manifest;
+import java.util.stream.Stream;
 
 import static com.excelsiorjet.api.log.Log.logger;
 import static com.excelsiorjet.api.tasks.config.PackagingType.*;
 import static com.excelsiorjet.api.util.Txt.s;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 
 /**
@@ -70,7 +70,7 @@ import static java.util.stream.Collectors.toList;
  * @see JetBuildTask
  * @see TestRunTask
  */
-public class JetProject {
+public class JetProject implements Cloneable {
 
     private static final String JET_OUTPUT_DIR = "jet";
     private static final String BUILD_DIR = "build";
@@ -80,6 +80,11 @@ public class JetProject {
     private static final String SPRING_BOOT_WAR_MAIN_CLASS = "org.springframework.boot.loader.WarLauncher";
     private static final String SPRING_BOOT_VERSION_ATTR = "Spring-Boot-Version";
     private static final String SPRING_BOOT_START_CLASS_ATTR = "Start-Class";
+    private static final String CONSOLIDATED_DIR = "consolidated";
+    private static final String CONSOLIDATED_JAR_PREFIX = "consolidated-";
+    private static final String STRIPPED_DIR = "stripped";
+    private static final String SPRING_BOOT_EXPLODED_DIR = "springboot";
+    private static final String REACHABILITY_REPORT = "reachability-report.json";
 
     /**
      * Name and version of the plugin that created this project.
@@ -356,6 +361,11 @@ public class JetProject {
      */
     private List<ClasspathEntry> classpathEntries;
 
+    /**
+     * Contents of the application archives, shared by the copies of this project.
+     */
+    private ClasspathIndex classpathIndex = new ClasspathIndex();
+
     /**
      * Runtime configuration parameters.
      *
@@ -589,6 +599,147 @@ public class JetProject {
      */
     private String terminationPolicy;
 
+    /**
+     * Interval in milliseconds at which {@link RunTask} and {@link TestRunTask} sample the memory footprint
+     * (RSS and PSS), thread count, and CPU usage of the launched application from {@code /proc}.
+     * The peak and average values are logged once the application terminates, and the time series is written
+     * to {@code resource-samples-run.json} or {@code resource-samples-testrun.json} in {@link #jetOutputDir},
+     * which allows comparing runtime configurations, such as {@link RuntimeConfig#flavor}, objectively.
+     * <p>
+     * Sampling is available on Linux only. By default, it is disabled ({@code 0}).
+     * </p>
+     */
+    private int memorySamplingInterval;
+
+    /**
+     * Policy of handling classes that are found in more than one classpath entry, which is checked before
+     * compilation, so that conflicts are reported without waiting for the compiler:
+     * <ul>
+     *  <li>{@code warn} - log the duplicate classes and continue (default)</li>
+     *  <li>{@code fail} - fail the build</li>
+     *  <li>{@code ignore} - do not check the classpath</li>
+     * </ul>
+     * Classes nested in the {@code BOOT-INF/lib}, {@code WEB-INF/lib} and {@code WEB-INF/lib-provided} directories
+     * of Spring Boot and Tomcat application archives are checked as well.
+     * Packages split across several classpath entries are reported as warnings unless the policy is {@code ignore}.
+     */
+    private String classpathConflicts;
+
+    /**
+     * If set, the classes of the dependencies reachable from the entry points of the application
+     * (the main class, the Spring Boot {@code Start-Class}, or all classes of the main artifact for dynamic libraries
+     * and Tomcat web applications) are determined by following class references, and the dependencies are
+     * assigned {@code optimize} and {@code pack} defaults based on the share of their reachable classes.
+     * The defaults apply to the parameters not set explicitly in {@link #dependencies}, and the analysis results
+     * are written to {@code reachability-report.json} in {@link #jetOutputDir}.
+     *
+     * @see #reachabilityThreshold
+     */
+    private boolean reachabilityAnalysis;
+
+    /**
+     * Percentage of reachable classes starting from which a dependency is optimized entirely
+     * ({@code optimize=all}) by {@link #reachabilityAnalysis}. Dependencies with fewer reachable classes
+     * get {@code optimize=auto-detect} and {@code pack=auto-detect}. Default value is 30.
+     */
+    private int reachabilityThreshold = 30;
+
+    /**
+     * Policy of handling dependencies that contain classes, none of which is reachable from the application
+     * entry points (see {@link #reachabilityAnalysis}), taking {@code META-INF/services} providers into account:
+     * <ul>
+     *  <li>{@code ignore} - do not look for such dependencies (default)</li>
+     *  <li>{@code report} - log them as warnings</li>
+     *  <li>{@code prune} - exclude them from the build: they are neither staged, nor compiled, nor packaged.
+     *      Supported for plain applications, dynamic libraries and Windows services only</li>
+     * </ul>
+     * Dependencies used via reflection only should be listed in {@link #unusedDependenciesAllowlist}.
+     */
+    private String unusedDependencies;
+
+    /**
+     * Dependencies that are never considered unused, specified as {@code groupId:artifactId},
+     * {@code groupId:*} or file names.
+     *
+     * @see #unusedDependencies
+     */
+    private List<String> unusedDependenciesAllowlist = Collections.emptyList();
+
+    /**
+     * Reachability of the project dependencies, computed once for {@link #reachabilityAnalysis}
+     * and {@link #unusedDependencies}.
+     */
+    private List<ReachabilityAnalyzer.Share> reachability;
+
+    /**
+     * If set, the Spring Boot archive is also kept extracted in the {@code springboot} subdirectory
+     * of {@link #jetOutputDir}, with the nested {@code BOOT-INF/lib}, {@code WEB-INF/lib} and
+     * {@code WEB-INF/lib-provided} libraries extracted in parallel, so that they are available for analysis.
+     * Entries that have not changed since the previous build are reused, so a change of the application classes
+     * does not re-extract its libraries.
+     * <p>
+     * The archive itself is still staged to {@link #jetBuildDir}, as the Excelsior JET compiler
+     * and packager expect {@code -springbootarchive} to be a jar or war file.
+     * </p>
+     */
+    private boolean springBootExploded;
+
+    /**
+     * If set, small dependency jars that are not packed into the executable ({@code pack=none}) are merged
+     * into a few combined jars during staging, so that the application package contains, and the application
+     * opens at run time, fewer files. Jars are merged only if they are smaller than {@link #smallJarsThresholdKB},
+     * are not signed, do not have {@code Class-Path} or {@code Multi-Release} manifest attributes,
+     * do not set {@code packagePath} or {@code disableCopyToPackage}, and their entries do not clash,
+     * except for the {@code META-INF/services} files, which are merged. Only adjacent jars with equal {@code optimize}
+     * and {@code protect} settings are merged together, so that the classpath order is preserved.
+     * Supported for plain applications, dynamic libraries and Windows services.
+     */
+    private boolean smallJarsConsolidation;
+
+    /**
+     * Size in kilobytes starting from which jars are not merged by {@link #smallJarsConsolidation}.
+     * Default value is 100.
+     */
+    private int smallJarsThresholdKB = 100;
+
+    /**
+     * Combined jars created by {@link #smallJarsConsolidation} mapped to the jars they are merged from.
+     */
+    private Map<File, List<File>> consolidatedJars = Collections.emptyMap();
+
+    /**
+     * Kinds of entries to strip from the dependency jars during staging: {@code signatures}, {@code sources},
+     * {@code maven-metadata} and {@code module-info} (see {@link JarStripRule}). If not empty,
+     * trimmed copies of the jars having such entries are staged instead of the jars themselves, reducing
+     * the compiler input and the package size. The original jars are not modified. The copies are cached
+     * in the {@code stripped} subdirectory of {@link #jetOutputDir} by the hash of the jar contents,
+     * so unchanged jars are not rewritten on the next builds.
+     * <p>
+     * Not set by default. Note that stripping signatures breaks libraries that verify their own signatures,
+     * such as signed JCE providers.
+     * </p>
+     */
+    private List<String> jarStripRules = Collections.emptyList();
+
+    /**
+     * Patterns ({@code groupId}, {@code artifactId} and {@code version}) of stable dependencies,
+     * such as third-party libraries, to compile separately from the application. The dependencies matched
+     * by each pattern are compiled into a native component library ({@code -gendll+}) named after
+     * the pattern {@code artifactId} (or {@code groupId}), which the application project then uses
+     * instead of compiling the dependencies again.
+     * <p>
+     * Components are cached in the {@code components} subdirectory of {@link #jetOutputDir} by the hash
+     * of their jars, their compiler project and the Excelsior JET installation, so they are only rebuilt
+     * when any of them changes. Supported for plain applications, dynamic libraries and Windows services.
+     * </p>
+     */
+    private List<DependencySettings> components = Collections.emptyList();
+
+    /**
+     * Paths of the dependencies compiled into {@link #components}, mapped to the component names.
+     */
+    private Map<File, String> componentOf = Collections.emptyMap();
+
     /**
      * Sets a build tool specific logger and build tool specific messages overriding common ones
      * that should be shown to a user.
@@ -860,18 +1011,15 @@ public class JetProject {
             }
         }
 
-        // allProjectDependencies = project dependencies + main artifact
-        List<ProjectDependency> allProjectDependencies = new ArrayList<>(projectDependencies);
-        ProjectDependency mainArtifactDep = new ProjectDependency(groupId, projectName, version, mainArtifact(), true);
-        // in original implementation main artifact is preceded other dependencies
-        allProjectDependencies.add(0, mainArtifactDep);
+        List<ProjectDependency> allProjectDependencies = allProjectDependencies();
 
         List<DependencySettings> dependenciesSettings = new ArrayList<>();
         List<DependencySettings> externalDependencies = new ArrayList<>();
 
+        ProjectDependencyIndex projectDependencyIndex = new ProjectDependencyIndex(allProjectDependencies);
         Set<String> ids = new HashSet<>();
         for (DependencySettings dependencySettings : dependencies) {
-            List<ProjectDependency> matchedDependencies = dependenciesMatchedBy(allProjectDependencies, dependencySettings);
+            List<ProjectDependency> matchedDependencies = projectDependencyIndex.matchedBy(dependencySettings);
             if (matchedDependencies.size() == 0){
                 if (dependencySettings.hasPathOnly()) {
                     externalDependencies.add(dependencySettings);
@@ -908,6 +1056,18 @@ public class JetProject {
         }
 
         DependencySettingsResolver dependencySettingsResolver = new DependencySettingsResolver(optimizationPreset(), groupId, dependenciesSettings);
+        Set<File> prunedDependencies = Collections.emptySet();
+        if (reachabilityAnalysis || (unusedDependencies() != UnusedDependenciesPolicy.IGNORE)) {
+            List<ReachabilityAnalyzer.Share> shares = reachability(allProjectDependencies);
+            if (shares != null) {
+                if (reachabilityAnalysis) {
+                    dependencySettingsResolver.proposals(reachabilityProposals(allProjectDependencies, shares));
+                }
+                if (unusedDependencies() != UnusedDependenciesPolicy.IGNORE) {
+                    prunedDependencies = unusedDependencies(allProjectDependencies, shares);
+                }
+            }
+        }
         classpathEntries = new ArrayList<>();
         switch (appType()) {
             case PLAIN:
@@ -916,9 +1076,17 @@ public class JetProject {
             {
                 // Values of the seenDeps HashMap can either be of type ProjectDependevcy or DependencySettings.
                 // DependencySettings are put there while processing external dependencies.
+                componentOf = components(projectDependencyIndex);
                 HashMap<String, Object> seenDeps = new HashMap<>();
                 for (ProjectDependency prjDep : allProjectDependencies) {
+                    if (prunedDependencies.contains(prjDep.path)) {
+                        continue;
+                    }
                     ClasspathEntry cpEntry = dependencySettingsResolver.resolve(prjDep);
+                    if (componentOf.containsKey(prjDep.path) &&
+                            ((cpEntry.pack == ClasspathEntry.PackType.NONE) || prjDep.path.isDirectory())) {
+                        throw new JetTaskFailureException(s("JetApi.Components.NotPacked.Failure", prjDep.idStr(true)));
+                    }
                     String packagePath = toPathRelativeToJetBuildDir(cpEntry).toString();
                     ProjectDependency oldDep = (ProjectDependency) seenDeps.put(packagePath, prjDep);
                     if (oldDep != null) {
@@ -935,10 +1103,16 @@ public class JetProject {
                     }
                     classpathEntries.add(cpEntry);
                 }
+                if (smallJarsConsolidation) {
+                    classpathEntries = consolidateSmallJars(classpathEntries);
+                }
             }
                 break;
             case TOMCAT:
             case SPRING_BOOT:
+                if (!components.isEmpty()) {
+                    throw new JetTaskFailureException(s("JetApi.Components.NotSupported.Failure", appType));
+                }
                 HashMap<String, ProjectDependency> seenDeps = new HashMap<>();
                 for (ProjectDependency prjDep : allProjectDependencies) {
                     if (!prjDep.isMainArtifact || dependencySettingsResolver.hasSettingsFor(prjDep)) {
@@ -963,10 +1137,267 @@ public class JetProject {
         }
     }
 
-    private List<ProjectDependency> dependenciesMatchedBy(List<ProjectDependency> projectDependencies, DependencySettings dependencySetting) {
-        return projectDependencies.stream().
-                filter(dependencySetting::matches).
-                collect(toList());
+    /**
+     * @return project dependencies preceded by the main artifact
+     */
+    List<ProjectDependency> allProjectDependencies() {
+        List<ProjectDependency> allProjectDependencies = new ArrayList<>(projectDependencies);
+        // in original implementation main artifact is preceded other dependencies
+        allProjectDependencies.add(0, new ProjectDependency(groupId, projectName, version, mainArtifact(), true));
+        return allProjectDependencies;
+    }
+
+    /**
+     * Replaces the small jars eligible for {@link #smallJarsConsolidation} with the combined jars
+     * they are to be merged into at staging. Only adjacent jars are merged, and each combined jar takes their place,
+     * so the classpath order, and thus which of the overlapping classes and resources wins, is preserved.
+     */
+    private List<ClasspathEntry> consolidateSmallJars(List<ClasspathEntry> entries) {
+        Map<ClasspathEntry, JarConsolidator> groupOf = new HashMap<>();
+        JarConsolidator current = null;
+        String currentKey = null;
+        for (ClasspathEntry entry : entries) {
+            if (entry.isMainArtifact || (entry.pack != ClasspathEntry.PackType.NONE) || !entry.path.isFile() ||
+                    (entry.packagePath != null) || Boolean.TRUE.equals(entry.disableCopyToPackage) ||
+                    (componentOf(entry) != null) || (entry.path.length() >= smallJarsThresholdKB * 1024L)) {
+                current = null;
+                continue;
+            }
+            String key = entry.optimize + ":" + entry.protect;
+            try {
+                if ((current != null) && key.equals(currentKey) && current.add(entry.path)) {
+                    groupOf.put(entry, current);
+                    continue;
+                }
+                // the jar cannot join the jars before it, so it may only start a new group
+                current = new JarConsolidator();
+                currentKey = key;
+                if (current.add(entry.path)) {
+                    groupOf.put(entry, current);
+                } else {
+                    current = null;
+                }
+            } catch (IOException e) {
+                // not a valid jar, so leave it as is
+                current = null;
+            }
+        }
+
+        File consolidatedDir = new File((jetOutputDir != null) ? jetOutputDir : jetBuildDir.getParentFile(), CONSOLIDATED_DIR);
+        Map<JarConsolidator, ClasspathEntry> combined = new HashMap<>();
+        consolidatedJars = new LinkedHashMap<>();
+        List<ClasspathEntry> result = new ArrayList<>();
+        int merged = 0;
+        for (ClasspathEntry entry : entries) {
+            JarConsolidator group = groupOf.get(entry);
+            if ((group == null) || (group.jars().size() < 2)) {
+                result.add(entry);
+                continue;
+            }
+            merged++;
+            if (!combined.containsKey(group)) {
+                File jar = new File(consolidatedDir, CONSOLIDATED_JAR_PREFIX + (combined.size() + 1) + ".jar");
+                DependencySettings settings = new DependencySettings(jar,
+                        (entry.protect != null) ? entry.protect.userValue : null,
+                        (entry.optimize != null) ? entry.optimize.userValue : null);
+                settings.pack = ClasspathEntry.PackType.NONE.userValue;
+                ClasspathEntry combinedEntry = new ClasspathEntry(settings, false);
+                combined.put(group, combinedEntry);
+                consolidatedJars.put(jar, group.jars());
+                result.add(combinedEntry);
+            }
+        }
+        if (merged > 0) {
+            logger.info(s("JetApi.SmallJars.Consolidated.Info", String.valueOf(merged), String.valueOf(combined.size()),
+                    String.valueOf(smallJarsThresholdKB)));
+        }
+        return result;
+    }
+
+    /**
+     * Matches the {@link #components} patterns against the project dependencies.
+     *
+     * @return paths of the matched dependencies mapped to the names of their components
+     */
+    private Map<File, String> components(ProjectDependencyIndex projectDependencyIndex) throws JetTaskFailureException {
+        Map<File, String> componentOf = new HashMap<>();
+        Set<String> names = new HashSet<>();
+        for (DependencySettings component : components) {
+            if ((component.groupId == null) && (component.artifactId == null)) {
+                throw new JetTaskFailureException(s("JetApi.Components.IdRequired.Failure", component.idStr()));
+            }
+            String name = ((component.artifactId != null) ? component.artifactId : component.groupId)
+                    .replaceAll("[^A-Za-z0-9_.-]", "_");
+            if (!names.add(name)) {
+                throw new JetTaskFailureException(s("JetApi.Components.DuplicateName.Failure", name));
+            }
+            List<ProjectDependency> matched = projectDependencyIndex.matchedBy(component);
+            if (matched.isEmpty()) {
+                throw new JetTaskFailureException(s("JetApi.NoDependenciesForDependencySettings", component.idStr()));
+            }
+            for (ProjectDependency dep : matched) {
+                if (dep.isMainArtifact) {
+                    throw new JetTaskFailureException(s("JetApi.Components.MainArtifact.Failure", component.idStr()));
+                }
+                String oldName = componentOf.put(dep.path, name);
+                if (oldName != null) {
+                    throw new JetTaskFailureException(s("JetApi.Components.Overlapped.Failure", dep.idStr(true), oldName, name));
+                }
+            }
+        }
+        return componentOf;
+    }
+
+    /**
+     * @return the name of the component the entry is compiled into, or {@code null} if it is compiled
+     *         with the application
+     * @see #components
+     */
+    String componentOf(ClasspathEntry entry) {
+        return componentOf.get(entry.path);
+    }
+
+    /**
+     * @return the classpath entries of each of {@link #components} by component names, in the classpath order
+     */
+    Map<String, List<ClasspathEntry>> componentEntries() {
+        Map<String, List<ClasspathEntry>> entries = new LinkedHashMap<>();
+        for (ClasspathEntry entry : classpathEntries) {
+            String component = componentOf(entry);
+            if (component != null) {
+                entries.computeIfAbsent(component, k -> new ArrayList<>()).add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Computes the share of the classes of the given dependencies (with the main artifact first)
+     * reachable from the entry points of the application, and writes it to {@code reachability-report.json}.
+     *
+     * @return reachability of the dependencies in the order of the dependencies,
+     *         or {@code null} if the analysis failed, which is reported as a warning
+     */
+    private List<ReachabilityAnalyzer.Share> reachability(List<ProjectDependency> allProjectDependencies) {
+        if (reachability != null) {
+            return reachability;
+        }
+        List<File> entries = allProjectDependencies.stream()
+                .map(dep -> dep.path)
+                .collect(toList());
+        List<String> prefixes = new ArrayList<>(Collections.nCopies(entries.size(), ""));
+        if ((appType == ApplicationType.SPRING_BOOT) || (appType == ApplicationType.TOMCAT)) {
+            prefixes.set(0, isMainArtifactJar() ? "BOOT-INF/classes/" : "WEB-INF/classes/");
+        }
+        try {
+            File indexDir = (jetOutputDir != null) ? new File(jetOutputDir, ClasspathIndex.INDEX_DIR) : null;
+            List<ClasspathIndex.Archive> archives = classpathIndex.scan(entries, indexDir);
+            ReachabilityAnalyzer analyzer = new ReachabilityAnalyzer(entries, archives, prefixes);
+            Collection<String> roots;
+            switch (appType) {
+                case PLAIN:
+                case WINDOWS_SERVICE:
+                    roots = Collections.singletonList(mainClass.replace('.', '/'));
+                    break;
+                case SPRING_BOOT:
+                    String startClass = archives.get(0).manifestAttribute(SPRING_BOOT_START_CLASS_ATTR);
+                    roots = (startClass != null) ? Collections.singletonList(startClass.replace('.', '/')) :
+                            analyzer.classesOf(0);
+                    break;
+                default:
+                    roots = analyzer.classesOf(0);
+                    break;
+            }
+            List<ReachabilityAnalyzer.Share> shares = analyzer.analyze(roots);
+
+            if (jetOutputDir != null) {
+                List<Object> report = new ArrayList<>();
+                for (int i = 1; i < entries.size(); i++) {
+                    File entry = entries.get(i);
+                    report.add(ReachabilityAnalyzer.report(entry, shares.get(i),
+                            ReachabilityAnalyzer.proposal(shares.get(i), reachabilityThreshold, entry.isDirectory())));
+                }
+                Utils.mkdir(jetOutputDir);
+                Files.write(new File(jetOutputDir, REACHABILITY_REPORT).toPath(), Json.toJson(report).getBytes("UTF-8"));
+            }
+            reachability = shares;
+        } catch (IOException | JetTaskFailureException e) {
+            logger.warn(s("JetApi.Reachability.Failed.Warning", e.getMessage()));
+        }
+        return reachability;
+    }
+
+    /**
+     * Proposes settings for the given dependencies (with the main artifact first) based on the share of
+     * their classes reachable from the entry points of the application.
+     */
+    private Map<File, DependencySettings> reachabilityProposals(List<ProjectDependency> allProjectDependencies,
+                                                                List<ReachabilityAnalyzer.Share> shares) {
+        Map<File, DependencySettings> proposals = new HashMap<>();
+        logger.info(s("JetApi.Reachability.Info", reachabilityThreshold));
+        // the main artifact is the application itself and keeps its defaults
+        for (int i = 1; i < allProjectDependencies.size(); i++) {
+            File entry = allProjectDependencies.get(i).path;
+            ReachabilityAnalyzer.Share share = shares.get(i);
+            DependencySettings proposal = ReachabilityAnalyzer.proposal(share, reachabilityThreshold, entry.isDirectory());
+            proposals.put(entry, proposal);
+            logger.info(s("JetApi.Reachability.Entry.Info", entry.getName(), String.valueOf(share.reachable),
+                    String.valueOf(share.total), String.valueOf(share.percent()), proposal.optimize,
+                    (proposal.pack != null) ? proposal.pack : "-"));
+        }
+        return proposals;
+    }
+
+    /**
+     * Finds the dependencies that contain classes, none of which is reachable from the entry points of the application,
+     * skipping the main artifact and the dependencies from {@link #unusedDependenciesAllowlist}, and reports them.
+     *
+     * @return the paths of the dependencies to exclude from the build, empty unless the policy is {@code prune}
+     */
+    private Set<File> unusedDependencies(List<ProjectDependency> allProjectDependencies,
+                                         List<ReachabilityAnalyzer.Share> shares) {
+        List<String> unused = new ArrayList<>();
+        Set<File> pruned = new HashSet<>();
+        for (int i = 1; i < allProjectDependencies.size(); i++) {
+            ProjectDependency dep = allProjectDependencies.get(i);
+            ReachabilityAnalyzer.Share share = shares.get(i);
+            if ((share.total > 0) && (share.reachable == 0) && !isAllowlisted(dep)) {
+                unused.add("  " + dep.idStr(true));
+                pruned.add(dep.path);
+            }
+        }
+        if (unused.isEmpty()) {
+            return Collections.emptySet();
+        }
+        if (unusedDependencies() != UnusedDependenciesPolicy.PRUNE) {
+            logger.warn(s("JetApi.UnusedDependencies.Warning", String.join("\n", unused)));
+            return Collections.emptySet();
+        }
+        switch (appType) {
+            case PLAIN:
+            case DYNAMIC_LIBRARY:
+            case WINDOWS_SERVICE:
+                logger.info(s("JetApi.UnusedDependencies.Pruned.Info", String.join("\n", unused)));
+                return pruned;
+            default:
+                logger.warn(s("JetApi.UnusedDependencies.Warning", String.join("\n", unused)));
+                logger.warn(s("JetApi.UnusedDependencies.PruneNotSupported.Warning", appType));
+                return Collections.emptySet();
+        }
+    }
+
+    /**
+     * Checks whether the dependency is listed in {@link #unusedDependenciesAllowlist}
+     * as {@code groupId:artifactId}, {@code groupId:*} or by its file name.
+     */
+    private boolean isAllowlisted(ProjectDependency dep) {
+        for (String item : unusedDependenciesAllowlist) {
+            if (item.equals(dep.groupId + ":" + dep.artifactId) || item.equals(dep.groupId + ":*") ||
+                    ((dep.path != null) && item.equals(dep.path.getName()))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private void validateForBuild(ExcelsiorJet excelsiorJet) throws JetTaskFailureException {
@@ -990,6 +1421,18 @@ public class JetProject {
             StackTraceSupportType.validate(stackTraceSupport);
         }
 
+        if (classpathConflicts != null) {
+            ClasspathConflictsPolicy.validate(classpathConflicts);
+        }
+
+        if (unusedDependencies != null) {
+            UnusedDependenciesPolicy.validate(unusedDependencies);
+        }
+
+        for (String jarStripRule : jarStripRules) {
+            JarStripRule.validate(jarStripRule);
+        }
+
         if (inlineExpansion == null) {
             inlineExpansion = InlineExpansionType.AGGRESSIVE.toString();
         } else {
@@ -1108,7 +1551,7 @@ public class JetProject {
 
         if (globalOptimizer) {
             ExecProfilesConfig execProfiles = execProfiles();
-            if (!execProfiles.getUsg().exists()) {
+            if (execProfiles.getTestRunUsgs().isEmpty()) {
                 throw new JetTaskFailureException(s("JetApi.NoTestRun.Failure"));
             }
         }
@@ -1260,19 +1703,18 @@ public class JetProject {
      * @throws JetTaskFailureException if {@code failOnVersionCheck} and Spring Boot version is not supported
      */
     private boolean checkSpringBootArtifact(File mainArtifact, boolean checkJar, boolean failOnVersionCheck) throws JetTaskFailureException {
-        Manifest manifest;
+        ClasspathIndex.Archive archive;
         try {
-            manifest =  new JarFile(mainArtifact).getManifest();
+            archive = classpathIndex.get(mainArtifact);
         } catch (IOException e) {
             return false;
         }
 
-        if (manifest == null) {
+        if (archive.manifest.isEmpty()) {
             return false;
         }
 
-        Attributes mainAttributes = manifest.getMainAttributes();
-        String main = mainAttributes.getValue(Name.MAIN_CLASS);
+        String main = archive.manifestAttribute(Name.MAIN_CLASS.toString());
         if (checkJar) {
             if (!SPRING_BOOT_JAR_MAIN_CLASS.equals(main)) {
                 return false;
@@ -1283,12 +1725,12 @@ public class JetProject {
             }
         }
 
-        String startClass = mainAttributes.getValue(SPRING_BOOT_START_CLASS_ATTR);
+        String startClass = archive.manifestAttribute(SPRING_BOOT_START_CLASS_ATTR);
         if (startClass == null) {
             return false;
         }
 
-        String springBootVersion = mainAttributes.getValue(SPRING_BOOT_VERSION_ATTR);
+        String springBootVersion = archive.manifestAttribute(SPRING_BOOT_VERSION_ATTR);
         if ((springBootVersion != null) && !checkSpringBootVersion(springBootVersion)) {
             if (failOnVersionCheck) {
                 throw new JetTaskFailureException(Txt.s("JetApi.SpringBoot.NotSupportedVersion.Failure", mainJar.getAbsolutePath(), springBootVersion));
@@ -1300,13 +1742,13 @@ public class JetProject {
         return true;
     }
 
-    private void copyClasspathEntry(ClasspathEntry classpathEntry, File to) throws JetTaskWrappedException {
+    private void copyClasspathEntry(File from, File to) throws JetTaskWrappedException {
         try {
             Utils.mkdir(to.getParentFile());
-            if (classpathEntry.path.isFile()) {
-                Utils.copyFile(classpathEntry.path.toPath(), to.toPath());
+            if (from.isFile()) {
+                Utils.copyFile(from.toPath(), to.toPath());
             } else {
-                Utils.copyDirectory(classpathEntry.path.toPath(), to.toPath());
+                Utils.copyDirectory(from.toPath(), to.toPath());
             }
         } catch (IOException | JetTaskFailureException e) {
             // this method is called from lambda so wrap IOException into RuntimeException for conveniences
@@ -1320,43 +1762,375 @@ public class JetProject {
      * @return list of dependencies relative to buildDir
      */
     List<ClasspathEntry> copyClasspathEntries() throws JetTaskFailureException, IOException {
+        for (Map.Entry<File, List<File>> consolidatedJar : consolidatedJars.entrySet()) {
+            JarConsolidator consolidator = new JarConsolidator();
+            for (File jar : consolidatedJar.getValue()) {
+                if (!consolidator.add(jar)) {
+                    // the jar has changed since validation
+                    throw new JetTaskFailureException(s("JetApi.SmallJars.Changed.Failure", jar.getAbsolutePath()));
+                }
+            }
+            consolidator.merge(consolidatedJar.getKey());
+        }
+        JarShrinker shrinker = jarStripRules.isEmpty() ? null : new JarShrinker(jarStripRules(),
+                new File((jetOutputDir != null) ? jetOutputDir : jetBuildDir.getParentFile(), STRIPPED_DIR));
         try {
             classpathEntries.forEach(a -> {
                 Path pathInJetBuildDir = toPathRelativeToJetBuildDir(a);
                 File dst = jetBuildDir.toPath().resolve(pathInJetBuildDir).toFile();
-                copyClasspathEntry(a, dst);
+                copyClasspathEntry(shrinker != null ? shrink(shrinker, a.path) : a.path, dst);
             });
-
-            return classpathEntries;
         } catch (JetTaskWrappedException e) {
             // catch and unwrap io exception thrown by copyClasspathEntry in forEach lambda
             throw new IOException(s("JetApi.ErrorCopyingDependency.Exception"), e.getCause());
         }
+        if (shrinker != null) {
+            shrinker.removeUnused();
+            logger.info(s("JetApi.JarStrip.Info", String.join(", ", jarStripRules),
+                    String.valueOf(shrinker.strippedBytes() / 1024)));
+        }
+        return classpathEntries;
+    }
+
+    /**
+     * Returns the file to stage instead of the given classpath entry path:
+     * the trimmed copy of the jar, if it has entries to strip, or the path itself.
+     */
+    private static File shrink(JarShrinker shrinker, File path) throws JetTaskWrappedException {
+        if (!path.isFile() || !isZip(path)) {
+            return path;
+        }
+        try {
+            return shrinker.shrink(path);
+        } catch (IOException e) {
+            throw new JetTaskWrappedException(e);
+        }
+    }
+
+    private static boolean isZip(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        return name.endsWith(".jar") || name.endsWith(".zip");
+    }
+
+    private Set<JarStripRule> jarStripRules() {
+        Set<JarStripRule> rules = EnumSet.noneOf(JarStripRule.class);
+        for (String rule : jarStripRules) {
+            rules.add(JarStripRule.fromString(rule));
+        }
+        return rules;
     }
 
     /**
      * Copies the master Tomcat server to the build directory and main project artifact (.war)
-     * to the "webapps" folder of copied Tomcat.
+     * to the "webapps" folder of copied Tomcat, or extracts the artifact there if {@link TomcatConfig#explodeWar} is set.
      */
     void copyTomcatAndWar() throws IOException {
         try {
             Utils.copyDirectory(Paths.get(tomcatConfiguration.tomcatHome), tomcatInBuildDir().toPath());
-            String warName = tomcatConfiguration.warDeployName;
-            Utils.copyFile(mainWar.toPath(), new File(tomcatInBuildDir(), TomcatConfig.WEBAPPS_DIR + File.separator + warName).toPath());
+            File webapps = new File(tomcatInBuildDir(), TomcatConfig.WEBAPPS_DIR);
+            File war = new File(webapps, tomcatConfiguration.warDeployName);
+            File explodedWar = new File(webapps, tomcatConfiguration.explodedWarName());
+            // the stamps are kept out of the Tomcat copy, as it is compiled and packaged as a whole
+            File stamps = new File(jetBuildDir, tomcatConfiguration.explodedWarName() + ".stamps.json");
+            if (tomcatConfiguration.explodeWar) {
+                // Tomcat would redeploy the war file over the exploded one
+                Files.deleteIfExists(war.toPath());
+                ArchiveExploder.Result result = new ArchiveExploder(mainWar, explodedWar, stamps).explode();
+                logger.info(s("JetApi.Tomcat.WarExploded.Info", mainWar.getName(),
+                        String.valueOf(result.extracted.size()), String.valueOf(result.reused),
+                        String.valueOf(result.removed.size())));
+            } else {
+                if (explodedWar.isDirectory()) {
+                    // left by an exploded staging
+                    Utils.cleanDirectory(explodedWar);
+                    Files.deleteIfExists(stamps.toPath());
+                }
+                Utils.copyFile(mainWar.toPath(), war.toPath());
+            }
         } catch (IOException e) {
             throw new IOException(s("JetApi.ErrorCopyingTomcat.Exception", tomcatConfiguration.tomcatHome), e);
         }
     }
 
     /**
-     * Copies Spring Boot jar/war to the build directory.
+     * Copies Spring Boot jar/war to the build directory, and extracts it to {@link #springBootExplodedDir()}
+     * if {@link #springBootExploded} is set.
      */
     void copySpringBootArtifact() throws IOException {
+        File exploded = springBootExplodedDir();
         try {
             Utils.copyFile(mainArtifact().toPath(), new File(jetBuildDir, mainArtifact().getName()).toPath());
+            if (springBootExploded) {
+                ArchiveExploder.Result result = new ArchiveExploder(mainArtifact(), exploded).explode();
+                logger.info(s("JetApi.SpringBoot.Exploded.Info", mainArtifact().getName(),
+                        String.valueOf(result.extracted.size()), String.valueOf(result.reused),
+                        String.valueOf(result.removed.size())));
+            } else if (exploded.isDirectory()) {
+                // left by an earlier exploded staging
+                Utils.cleanDirectory(exploded);
+                Files.deleteIfExists(new ArchiveExploder(mainArtifact(), exploded).stampsFile().toPath());
+            }
         } catch (IOException e) {
-            throw new IOException(s("JetApi.ErrorCopyingSpringBootArchive.Exception", mainArtifact().getAbsolutePath()), e.getCause());
+            throw new IOException(s("JetApi.ErrorCopyingSpringBootArchive.Exception", mainArtifact().getAbsolutePath()),
+                    (e.getCause() != null) ? e.getCause() : e);
+        }
+    }
+
+    /**
+     * @return directory the Spring Boot archive is extracted to if {@link #springBootExploded} is set
+     */
+    File springBootExplodedDir() {
+        File outputDir = (jetOutputDir != null) ? jetOutputDir : jetBuildDir.getParentFile();
+        return new File(new File(outputDir, SPRING_BOOT_EXPLODED_DIR), mainArtifact().getName());
+    }
+
+    /**
+     * Returns the location of the given classpath entry within the Spring Boot archive:
+     * {@code BOOT-INF/classes} or {@code WEB-INF/classes} for the main artifact, otherwise the library directory
+     * that actually contains the entry, that is {@code WEB-INF/lib-provided} for the provided dependencies
+     * of a Spring Boot war, {@code BOOT-INF/lib} or {@code WEB-INF/lib} for the rest.
+     */
+    String springBootEntryPath(ClasspathEntry entry) {
+        String infDir = isMainArtifactJar() ? "BOOT-INF/" : "WEB-INF/";
+        if (entry.isMainArtifact) {
+            return infDir + "classes";
+        }
+        String name = entry.path.getName();
+        if (!isMainArtifactJar()) {
+            try {
+                String provided = infDir + "lib-provided/" + name;
+                if (classpathIndex.get(mainArtifact()).nestedArchives.contains(provided)) {
+                    return provided;
+                }
+            } catch (IOException e) {
+                // the archive is validated before the build, so just assume the default location
+            }
+        }
+        return infDir + "lib/" + name;
+    }
+
+    /**
+     * Returns the locations of the staged application files relative to {@link #jetBuildDir}:
+     * the copied dependencies for plain applications, the Tomcat server copy for Tomcat web applications
+     * and the copied archive for Spring Boot applications.
+     */
+    List<Path> stagedPaths() {
+        Path buildDir = jetBuildDir.toPath();
+        switch (appType) {
+            case PLAIN:
+            case DYNAMIC_LIBRARY:
+            case WINDOWS_SERVICE:
+                return classpathEntries.stream()
+                        .map(this::toPathRelativeToJetBuildDir)
+                        .collect(toList());
+            case TOMCAT:
+                return Collections.singletonList(buildDir.relativize(tomcatInBuildDir().toPath()));
+            case SPRING_BOOT:
+                return Collections.singletonList(Paths.get(mainArtifact().getName()));
+            default:
+                throw new AssertionError("Unknown application type: " + appType);
+        }
+    }
+
+    /**
+     * Returns the declared inputs of the native build of this project: the files the build reads
+     * and the normalized configuration values that affect the generated compiler project file and packager arguments.
+     * Host build tools may use them to skip up-to-date builds or to take the build results from a cache.
+     * <p>
+     * The project must be validated for build before calling this method.
+     * </p>
+     *
+     * @see #buildOutputs(ExcelsiorJet)
+     */
+    public BuildInputs buildInputs(ExcelsiorJet excelsiorJet) throws JetTaskFailureException {
+        Set<File> files = new LinkedHashSet<>();
+        if (mainArtifact() != null) {
+            files.add(mainArtifact());
+        }
+        for (ClasspathEntry classpathEntry : classpathEntries) {
+            files.addAll(consolidatedJars.getOrDefault(classpathEntry.path, Collections.singletonList(classpathEntry.path)));
+        }
+        if (packageFilesDir != null) {
+            files.add(packageFilesDir);
+        }
+        for (PackageFile packageFile : packageFiles) {
+            files.add(packageFile.path);
+        }
+        files.add(execProfilesConfiguration.getUsg());
+        files.addAll(execProfilesConfiguration.getScenarioUsgs());
+        files.add(execProfilesConfiguration.getStartup());
+        files.add(execProfilesConfiguration.getJProfile());
+        if (icon != null) {
+            files.add(icon);
+        }
+        if (splash != null) {
+            files.add(splash);
+        }
+        if (appType == ApplicationType.TOMCAT) {
+            files.add(new File(tomcatConfiguration.tomcatHome));
+        }
+        if (excelsiorJet.getJetHome() != null) {
+            // changes whenever Excelsior JET is updated
+            files.add(new File(excelsiorJet.getJetHome(), "bin" + File.separator + "jet.config"));
+        }
+
+        SortedMap<String, String> properties = new TreeMap<>();
+        // the installation itself is covered by jet.config, so its location does not matter
+        properties.put("jet.version", excelsiorJet.getVersionString());
+        properties.put("jet.edition", String.valueOf(excelsiorJet.getEdition()));
+        properties.put("jet.targetOS", String.valueOf(excelsiorJet.getTargetOS()));
+        properties.put("appType", appType.toString());
+        properties.put("artifactName", artifactName);
+        properties.put("packaging", excelsiorJetPackaging);
+        if (!jarStripRules.isEmpty()) {
+            // the staged jars depend on the rules
+            properties.put("jarStripRules", String.join(",", jarStripRules));
+        }
+
+        CompilerArgsGenerator compilerArgsGenerator = new CompilerArgsGenerator(this, excelsiorJet, false);
+        properties.put("compiler.project", compilerArgsGenerator.projectFileContent());
+        componentEntries().forEach((component, entries) ->
+                properties.put("compiler.component." + component, compilerArgsGenerator.componentProjectFileContent(component, entries)));
+        properties.put("compiler.jetvmprop", compilerArgsGenerator.jetVMPropOpt());
+
+        PackagerArgsGenerator packagerArgsGenerator = new PackagerArgsGenerator(this, excelsiorJet);
+        properties.put("packager.options",
+                String.join("\n", PackagerArgsGenerator.getArgFileContent(packagerArgsGenerator.getCommonXPackOptions())));
+
+        switch (excelsiorJetPackaging()) {
+            case EXCELSIOR_INSTALLER:
+                File installer = new File(jetOutputDir, excelsiorJet.getTargetOS().mangleExeName(artifactName));
+                properties.put("packager.installerOptions", String.join("\n",
+                        PackagerArgsGenerator.getArgFileContent(packagerArgsGenerator.getExcelsiorInstallerXPackOptions(installer))));
+                ExcelsiorInstallerConfig installerConfig = excelsiorInstallerConfiguration;
+                for (File file : Arrays.asList(installerConfig.eula, installerConfig.installerSplash,
+                        installerConfig.installCallback, installerConfig.welcomeImage,
+                        installerConfig.installerImage, installerConfig.uninstallerImage)) {
+                    if (file != null) {
+                        files.add(file);
+                    }
+                }
+                break;
+            case OSX_APP_BUNDLE:
+                OSXAppBundleConfig bundleConfig = osxBundleConfiguration;
+                properties.put("osxBundle.fileName", bundleConfig.fileName);
+                properties.put("osxBundle.bundleName", bundleConfig.bundleName);
+                properties.put("osxBundle.identifier", bundleConfig.identifier);
+                properties.put("osxBundle.version", bundleConfig.version);
+                properties.put("osxBundle.shortVersion", bundleConfig.shortVersion);
+                properties.put("osxBundle.highResolutionCapable", String.valueOf(bundleConfig.highResolutionCapable));
+                properties.put("osxBundle.developerId", String.valueOf(bundleConfig.developerId));
+                properties.put("osxBundle.publisherId", String.valueOf(bundleConfig.publisherId));
+                properties.put("osxBundle.installPath", bundleConfig.installPath);
+                if (bundleConfig.icon != null) {
+                    files.add(bundleConfig.icon);
+                }
+                break;
+            default:
+                break;
+        }
+        // host build tools usually do not accept null input values
+        Map<String, String> roots = normalizedRoots(excelsiorJet);
+        properties.replaceAll((k, v) -> v == null ? "" : normalizeInput(v, roots));
+
+        return new BuildInputs(new ArrayList<>(files), properties);
+    }
+
+    /**
+     * Returns the absolute paths of the directories the build input values are made relative to,
+     * longest first, mapped to their placeholders.
+     * The project root is the common parent of {@link #targetDir} and {@link #jetResourcesDir}.
+     */
+    private Map<String, String> normalizedRoots(ExcelsiorJet excelsiorJet) {
+        Map<String, String> roots = new TreeMap<>(Comparator.comparing(String::length).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        if (excelsiorJet.getJetHome() != null) {
+            roots.put(new File(excelsiorJet.getJetHome()).getAbsolutePath(), "$(JetHome)");
+        }
+        Path target = targetDir.getAbsoluteFile().toPath().normalize();
+        Path projectRoot = jetResourcesDir.getAbsoluteFile().toPath().normalize();
+        while ((projectRoot != null) && !target.startsWith(projectRoot)) {
+            projectRoot = projectRoot.getParent();
+        }
+        // a file system root is too general to stand for the project
+        if ((projectRoot != null) && (projectRoot.getParent() != null)) {
+            roots.put(projectRoot.toString(), "$(ProjectRoot)");
+        }
+        return roots;
+    }
+
+    /**
+     * Normalizes a build input value: rewrites the absolute paths within the given roots as relative to them,
+     * in both native and compiler project notation, and drops the generator banner of the project files,
+     * which names the plugin version.
+     */
+    private static String normalizeInput(String value, Map<String, String> roots) {
+        String normalized = Stream.of(value.split("\n", -1))
+                .filter(line -> !line.startsWith(CompilerArgsGenerator.GENERATED_BY_PREFIX))
+                .collect(joining("\n"));
+        for (Map.Entry<String, String> root : roots.entrySet()) {
+            normalized = normalized.replace(root.getKey(), root.getValue())
+                    .replace(root.getKey().replace(File.separatorChar, '/'), root.getValue());
+        }
+        return normalized;
+    }
+
+    /**
+     * Returns the files and directories produced by the native build of this project:
+     * the application directory and the resulting package, if any.
+     * <p>
+     * The project must be validated for build before calling this method.
+     * </p>
+     *
+     * @see #buildInputs(ExcelsiorJet)
+     */
+    public List<File> buildOutputs(ExcelsiorJet excelsiorJet) {
+        List<File> outputs = new ArrayList<>();
+        outputs.add(jetAppDir);
+        switch (excelsiorJetPackaging()) {
+            case ZIP:
+                outputs.add(new File(jetOutputDir, artifactName + ".zip"));
+                break;
+            case TAR_GZ:
+                outputs.add(new File(jetOutputDir, artifactName + ".tar.gz"));
+                break;
+            case EXCELSIOR_INSTALLER:
+                outputs.add(new File(jetOutputDir, excelsiorJet.getTargetOS().mangleExeName(artifactName)));
+                break;
+            case OSX_APP_BUNDLE:
+                outputs.add(new File(jetOutputDir, osxBundleConfiguration.fileName + ".app"));
+                if ((osxBundleConfiguration.developerId != null) && (osxBundleConfiguration.publisherId != null)) {
+                    outputs.add(new File(jetOutputDir, artifactName + ".pkg"));
+                }
+                break;
+            default:
+                break;
+        }
+        if (runtimeConfiguration.slimDown != null) {
+            outputs.add(new File(jetOutputDir, runtimeConfiguration.slimDown.detachedPackage));
+        }
+        return outputs;
+    }
+
+    /**
+     * Creates a shallow copy of this project that can be reconfigured independently of this one,
+     * e.g. to build a variant of the application with different optimization settings.
+     * Runtime configuration and classpath entries are copied, other configuration objects are shared.
+     */
+    JetProject copy() {
+        JetProject copy;
+        try {
+            copy = (JetProject) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
         }
+        if (runtimeConfiguration != null) {
+            copy.runtimeConfiguration = runtimeConfiguration.copy();
+        }
+        if (classpathEntries != null) {
+            copy.classpathEntries = new ArrayList<>(classpathEntries);
+        }
+        return copy;
     }
 
     File createBuildDir() throws JetTaskFailureException {
@@ -1411,6 +2185,24 @@ public class JetProject {
         return classpathEntries;
     }
 
+    ClasspathIndex classpathIndex() {
+        return classpathIndex;
+    }
+
+    /**
+     * Indexes all classpath entries in parallel, persisting the index in {@link #jetOutputDir},
+     * and returns their contents in the classpath order.
+     * <p>
+     * The project must be validated before calling this method.
+     * </p>
+     */
+    List<ClasspathIndex.Archive> indexClasspath() throws IOException {
+        List<File> files = classpathEntries.stream()
+                .map(classpathEntry -> classpathEntry.path)
+                .collect(toList());
+        return classpathIndex.scan(files, new File(jetOutputDir, ClasspathIndex.INDEX_DIR));
+    }
+
     File packageFilesDir() {
         return packageFilesDir;
     }
@@ -1547,6 +2339,18 @@ public class JetProject {
         return pdbConfiguration;
     }
 
+    int memorySamplingInterval() {
+        return memorySamplingInterval;
+    }
+
+    UnusedDependenciesPolicy unusedDependencies() {
+        return (unusedDependencies != null) ? UnusedDependenciesPolicy.fromString(unusedDependencies) : UnusedDependenciesPolicy.IGNORE;
+    }
+
+    ClasspathConflictsPolicy classpathConflicts() {
+        return (classpathConflicts != null) ? ClasspathConflictsPolicy.fromString(classpathConflicts) : ClasspathConflictsPolicy.WARN;
+    }
+
     public String getTerminationVMProp(File termFile) {
         switch (TerminationPolicy.fromString(terminationPolicy)) {
             case CTRL_C:
@@ -1780,6 +2584,61 @@ public class JetProject {
         return this;
     }
 
+    public JetProject memorySamplingInterval(int memorySamplingInterval) {
+        this.memorySamplingInterval = memorySamplingInterval;
+        return this;
+    }
+
+    public JetProject smallJarsConsolidation(boolean smallJarsConsolidation) {
+        this.smallJarsConsolidation = smallJarsConsolidation;
+        return this;
+    }
+
+    public JetProject jarStripRules(List<String> jarStripRules) {
+        this.jarStripRules = jarStripRules;
+        return this;
+    }
+
+    public JetProject smallJarsThresholdKB(int smallJarsThresholdKB) {
+        this.smallJarsThresholdKB = smallJarsThresholdKB;
+        return this;
+    }
+
+    public JetProject components(List<DependencySettings> components) {
+        this.components = components;
+        return this;
+    }
+
+    public JetProject springBootExploded(boolean springBootExploded) {
+        this.springBootExploded = springBootExploded;
+        return this;
+    }
+
+    public JetProject reachabilityAnalysis(boolean reachabilityAnalysis) {
+        this.reachabilityAnalysis = reachabilityAnalysis;
+        return this;
+    }
+
+    public JetProject reachabilityThreshold(int reachabilityThreshold) {
+        this.reachabilityThreshold = reachabilityThreshold;
+        return this;
+    }
+
+    public JetProject unusedDependencies(String unusedDependencies) {
+        this.unusedDependencies = unusedDependencies;
+        return this;
+    }
+
+    public JetProject unusedDependenciesAllowlist(List<String> unusedDependenciesAllowlist) {
+        this.unusedDependenciesAllowlist = unusedDependenciesAllowlist;
+        return this;
+    }
+
+    public JetProject classpathConflicts(String classpathConflicts) {
+        this.classpathConflicts = classpathConflicts;
+        return this;
+    }
+
     public JetProject terminationPolicy(String terminationPolicy) {
         this.terminationPolicy = terminationPolicy;
         return this;
@@ -1825,7 +2684,8 @@ public class JetProject {
         Path jetBuildDir = jetBuildDir().toPath();
         Path jetLibDir = jetBuildDir.resolve("lib");
         if (classpathEntry.packagePath == null) {
-            if (classpathEntry.path.isFile()) {
+            // combined jars are only created at staging
+            if (classpathEntry.path.isFile() || consolidatedJars.containsKey(classpathEntry.path)) {
                 libPath = jetLibDir.resolve(classpathEntry.path.getName());
             } else {
                 libPath = jetBuildDir.resolve(classpathEntry.path.getName());
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.util.ProcFs;
+
+/**
+ * The process launched by a task, identified by the pid of the {@link Process} the task started,
+ * so that its statistics are not mixed up with those of other processes launched by the same JVM,
+ * such as a build daemon running several tasks.
+ */
+class LaunchedProcess {
+
+    private volatile int pid = -1;
+
+    /**
+     * Records the process right after it is started by the task.
+     */
+    void started(Process process) {
+        pid = ProcFs.pid(process);
+    }
+
+    /**
+     * @return pid of the launched process, or {@code -1} if it has not been started yet or its pid is not available
+     */
+    int pid() {
+        return pid;
+    }
+
+    /**
+     * @return CPU time of the launched process in {@link ProcFs#CLOCK_TICKS},
+     *         or {@code -1} if the process is not running
+     */
+    long cpuTicks() {
+        int pid = this.pid;
+        return (pid < 0) ? -1 : ProcFs.cpuTicks(pid);
+    }
+}
@@ -34,6 +34,7 @@ import java.io.File;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -49,11 +50,20 @@ public class PackagerArgsGenerator {
     private final JetProject project;
     private final ExcelsiorJet excelsiorJet;
 
+    private List<File> componentLibraries = Collections.emptyList();
+
     public PackagerArgsGenerator(JetProject project, ExcelsiorJet excelsiorJet) {
         this.project = project;
         this.excelsiorJet = excelsiorJet;
     }
 
+    /**
+     * Sets the native libraries of the built {@link JetProject#components} to package along with the application.
+     */
+    void componentLibraries(List<File> componentLibraries) {
+        this.componentLibraries = componentLibraries;
+    }
+
     ArrayList<XPackOption> getCommonXPackOptions() throws JetTaskFailureException {
         ArrayList<XPackOption> xpackOptions = new ArrayList<>();
 
@@ -70,6 +80,9 @@ public class PackagerArgsGenerator {
                 }
 
                 xpackOptions.add(new XPackOption("-add-file", exeRelativePath, "/"));
+                for (File componentLibrary : componentLibraries) {
+                    xpackOptions.add(new XPackOption("-add-file", componentLibrary.getAbsolutePath(), "/"));
+                }
 
                 for (PackageFile pfile : project.packageFiles()) {
                     xpackOptions.add(new XPackOption("-add-file", pfile.path.getAbsolutePath(), pfile.packagePath));
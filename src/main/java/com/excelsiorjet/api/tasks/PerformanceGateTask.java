@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.ExcelsiorJet;
+import com.excelsiorjet.api.util.Json;
+import com.excelsiorjet.api.util.Txt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.excelsiorjet.api.log.Log.logger;
+
+/**
+ * Task for failing the build when the performance of the application regresses.
+ * <p>
+ * The task collects the metrics of the latest build and benchmarks from {@link JetProject#jetOutputDir}:
+ * the size of the application directory and package, the startup time measured by {@link StartupBenchmarkTask},
+ * the server startup time and footprint measured by the benchmark mode of {@link RunTask},
+ * and the peak memory footprint sampled during {@link RunTask}.
+ * The metrics are compared with the baseline stored next to the application execution profiles
+ * ({@code <outputName>.baseline.json} in {@link com.excelsiorjet.api.tasks.config.compiler.ExecProfilesConfig#outputDir}),
+ * so that it can be committed to the VCS together with the profiles. If a metric exceeds its baseline value by more than
+ * the tolerance, or a metric of the baseline has not been measured, the task fails listing all such metrics.
+ * Benchmark results older than the application executable are left from previous builds, so they are ignored.
+ * </p>
+ * <p>
+ * The baseline is created from the current metrics if it does not exist yet or {@link #updateBaseline(boolean)} is set.
+ * </p>
+ */
+public class PerformanceGateTask {
+
+    static final String APP_DIR_SIZE = "appDirSizeBytes";
+    static final String PACKAGE_SIZE = "packageSizeBytes";
+    static final String STARTUP_MEDIAN = "startupMedianMillis";
+    static final String STARTUP_P90 = "startupP90Millis";
+    static final String FIRST_RESPONSE_MEDIAN = "timeToFirst200MedianMillis";
+    static final String RSS_AT_READINESS = "rssAtReadinessMedianKB";
+    static final String PEAK_RSS = "peakRssKB";
+    static final String PEAK_PSS = "peakPssKB";
+
+    private static final String BASELINE_SUFFIX = ".baseline.json";
+
+    private final ExcelsiorJet excelsiorJet;
+    private final JetProject project;
+
+    private boolean updateBaseline;
+    private double defaultTolerance = 10;
+    private final Map<String, Double> tolerances = new HashMap<>();
+
+    public PerformanceGateTask(ExcelsiorJet excelsiorJet, JetProject project) throws JetTaskFailureException {
+        this.excelsiorJet = excelsiorJet;
+        this.project = project;
+    }
+
+    /**
+     * Sets whether to overwrite the baseline with the current metrics instead of checking them.
+     * You may also set the {@code jet.update.baseline} system property to {@code true} for that.
+     */
+    public PerformanceGateTask updateBaseline(boolean updateBaseline) {
+        this.updateBaseline = updateBaseline;
+        return this;
+    }
+
+    /**
+     * Sets the allowed excess over the baseline in percent for the metrics without an explicit tolerance.
+     * Default value is 10.
+     */
+    public PerformanceGateTask defaultTolerance(double percent) {
+        this.defaultTolerance = percent;
+        return this;
+    }
+
+    /**
+     * Sets the allowed excess over the baseline in percent for the given metric, e.g. {@code startupMedianMillis}.
+     */
+    public PerformanceGateTask tolerance(String metric, double percent) {
+        tolerances.put(metric, percent);
+        return this;
+    }
+
+    File baselineFile() {
+        return new File(project.execProfiles().outputDir, project.execProfiles().outputName + BASELINE_SUFFIX);
+    }
+
+    public void execute() throws JetTaskFailureException, IOException {
+        project.validate(excelsiorJet, true);
+
+        Map<String, Long> current = collectMetrics();
+        if (current.isEmpty()) {
+            throw new JetTaskFailureException(Txt.s("PerformanceGateTask.NoMetrics.Failure", project.jetOutputDir().getAbsolutePath()));
+        }
+        File baselineFile = baselineFile();
+        if (updateBaseline || Boolean.getBoolean("jet.update.baseline") || !baselineFile.exists()) {
+            baselineFile.getParentFile().mkdirs();
+            Files.write(baselineFile.toPath(), Json.toJson(current).getBytes("UTF-8"));
+            logger.info(Txt.s("PerformanceGateTask.BaselineUpdated.Info", baselineFile.getAbsolutePath()));
+            return;
+        }
+
+        Map<String, Long> baseline = readMetrics(baselineFile);
+        List<String> regressions = new ArrayList<>();
+        for (String line : compare(baseline, current, regressions)) {
+            logger.info(line);
+        }
+        if (!regressions.isEmpty()) {
+            throw new JetTaskFailureException(Txt.s("PerformanceGateTask.Regression.Failure",
+                    baselineFile.getAbsolutePath(), String.join(System.lineSeparator(), regressions)));
+        }
+        logger.info(Txt.s("PerformanceGateTask.Passed.Info"));
+    }
+
+    /**
+     * Compares the current metrics with the baseline.
+     *
+     * @param regressions receives the report lines of the metrics exceeding their tolerance or missing in the current metrics
+     * @return report lines for all the metrics present in the baseline
+     */
+    List<String> compare(Map<String, Long> baseline, Map<String, Long> current, List<String> regressions) {
+        List<String> report = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : baseline.entrySet()) {
+            String metric = entry.getKey();
+            long base = entry.getValue();
+            Long value = current.get(metric);
+            if (value == null) {
+                String line = Txt.s("PerformanceGateTask.MissingMetric.Error", metric);
+                report.add(line);
+                regressions.add(line);
+                continue;
+            }
+            double tolerance = tolerances.getOrDefault(metric, defaultTolerance);
+            double change = (base == 0) ? ((value == 0) ? 0 : Double.POSITIVE_INFINITY) : (value - base) * 100.0 / base;
+            String line = String.format(Locale.ROOT, "%s: %d -> %d (%+.1f%%, tolerance %.1f%%)", metric, base, value, change, tolerance);
+            report.add(line);
+            if (change > tolerance) {
+                regressions.add(line);
+            }
+        }
+        return report;
+    }
+
+    private Map<String, Long> collectMetrics() throws IOException {
+        Map<String, Long> metrics = new TreeMap<>();
+        File appDir = project.jetAppDir();
+        if (appDir.exists()) {
+            metrics.put(APP_DIR_SIZE, size(appDir.toPath()));
+        }
+        long packageSize = 0;
+        boolean packageExists = false;
+        for (File output : project.buildOutputs(excelsiorJet)) {
+            if (!output.equals(appDir) && output.isFile()) {
+                packageSize += output.length();
+                packageExists = true;
+            }
+        }
+        if (packageExists) {
+            metrics.put(PACKAGE_SIZE, packageSize);
+        }
+
+        File outputDir = project.jetOutputDir();
+        File executable = new File(appDir, project.exeRelativePath(excelsiorJet));
+        long buildTime = executable.exists() ? executable.lastModified() : 0;
+        Map<String, Object> startup = readBenchmarkResult(new File(outputDir, StartupBenchmarkTask.RESULT_FILE), buildTime);
+        putMetric(metrics, STARTUP_MEDIAN, startup, "native", "median");
+        putMetric(metrics, STARTUP_P90, startup, "native", "p90");
+        Map<String, Object> server = readBenchmarkResult(new File(outputDir, RunTask.BENCHMARK_RESULT_FILE), buildTime);
+        putMetric(metrics, FIRST_RESPONSE_MEDIAN, server, "timeToFirst200Millis", "median");
+        putMetric(metrics, RSS_AT_READINESS, server, "rssAtReadinessKB", "median");
+        Map<String, Object> samples = readBenchmarkResult(new File(outputDir, RunTask.RESOURCE_SAMPLES_FILE), buildTime);
+        putMetric(metrics, PEAK_RSS, samples, "rssKB", "peak");
+        putMetric(metrics, PEAK_PSS, samples, "pssKB", "peak");
+        return metrics;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void putMetric(Map<String, Long> metrics, String metric, Map<String, Object> result, String group, String key) {
+        if ((result != null) && (result.get(group) instanceof Map)) {
+            Object value = ((Map<String, Object>) result.get(group)).get(key);
+            if (value instanceof Number) {
+                metrics.put(metric, ((Number) value).longValue());
+            }
+        }
+    }
+
+    /**
+     * Reads the benchmark results file, unless it has been written before the given build time.
+     */
+    private static Map<String, Object> readBenchmarkResult(File file, long buildTime) throws IOException {
+        if (file.exists() && (file.lastModified() < buildTime)) {
+            logger.warn(Txt.s("PerformanceGateTask.StaleResult.Warning", file.getAbsolutePath()));
+            return null;
+        }
+        return readResult(file);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> readResult(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            Object result = Json.parse(new String(Files.readAllBytes(file.toPath()), "UTF-8"));
+            return (result instanceof Map) ? (Map<String, Object>) result : null;
+        } catch (IllegalArgumentException e) {
+            logger.warn(Txt.s("PerformanceGateTask.InvalidResult.Warning", file.getAbsolutePath(), e.getMessage()));
+            return null;
+        }
+    }
+
+    private static Map<String, Long> readMetrics(File baselineFile) throws IOException, JetTaskFailureException {
+        Map<String, Object> baseline = readResult(baselineFile);
+        if (baseline == null) {
+            throw new JetTaskFailureException(Txt.s("PerformanceGateTask.InvalidBaseline.Failure", baselineFile.getAbsolutePath()));
+        }
+        Map<String, Long> metrics = new TreeMap<>();
+        for (Map.Entry<String, Object> entry : baseline.entrySet()) {
+            if (entry.getValue() instanceof Number) {
+                metrics.put(entry.getKey(), ((Number) entry.getValue()).longValue());
+            }
+        }
+        return metrics;
+    }
+
+    private static long size(Path dir) throws IOException {
+        long[] size = {0};
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                size[0] += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return size[0];
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.ExcelsiorJet;
+import com.excelsiorjet.api.cmd.CmdLineToolException;
+import com.excelsiorjet.api.util.Txt;
+import com.excelsiorjet.api.util.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Task for building an application with profile-guided optimization in one go.
+ * <p>
+ * The task builds an instrumented version of the application, runs it locally to collect its execution profile
+ * (terminating it after {@link com.excelsiorjet.api.tasks.config.compiler.ExecProfilesConfig#profileRunTimeout}
+ * seconds if set), verifies that the profile has been produced, and then builds the optimized application
+ * using the collected profile.
+ * The project is validated and its build directory is populated only once for both builds.
+ * </p>
+ *
+ * @see JetBuildTask
+ * @see RunTask
+ */
+public class PgoPipelineTask {
+
+    private static final String PREV_PROFILE_SUFFIX = ".prev";
+
+    private final ExcelsiorJet excelsiorJet;
+    private final JetProject project;
+
+    private final Map<String, Long> stageTimes = new LinkedHashMap<>();
+
+    public PgoPipelineTask(ExcelsiorJet excelsiorJet, JetProject project) throws JetTaskFailureException {
+        this.excelsiorJet = excelsiorJet;
+        this.project = project;
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws JetTaskFailureException, IOException, CmdLineToolException;
+    }
+
+    private void stage(String stageKey, Stage stage) throws JetTaskFailureException, IOException, CmdLineToolException {
+        String stageName = s(stageKey);
+        logger.info(s("PgoPipelineTask.StageStart.Info", stageName));
+        long start = System.currentTimeMillis();
+        stage.run();
+        long time = System.currentTimeMillis() - start;
+        stageTimes.put(stageName, time);
+        logger.info(s("PgoPipelineTask.StageFinish.Info", stageName, seconds(time)));
+    }
+
+    JetBuildTask buildTask(boolean toProfile) throws JetTaskFailureException {
+        return new JetBuildTask(excelsiorJet, project, toProfile);
+    }
+
+    /**
+     * Runs the instrumented application from the given profiling image directory to collect its execution profile.
+     */
+    void profilingRun(File profilingImageDir) throws JetTaskFailureException, CmdLineToolException {
+        new RunTask(excelsiorJet, project, true).run(profilingImageDir);
+    }
+
+    private static String seconds(long millis) {
+        return String.format("%.1f", millis / 1000.0);
+    }
+
+    public void execute() throws JetTaskFailureException, IOException, CmdLineToolException {
+        if (!excelsiorJet.isPGOSupported()) {
+            throw new JetTaskFailureException(Txt.s("JetApi.PGONotSupported.Failure"));
+        }
+        if (excelsiorJet.isCrossCompilation()) {
+            throw new JetTaskFailureException(Txt.s("RunTask.NoRunForCrossCompilation.Error"));
+        }
+
+        JetBuildTask instrumentedBuild = buildTask(true);
+        JetBuildTask optimizedBuild = buildTask(false);
+
+        stage("PgoPipelineTask.Staging.Stage", () -> {
+            project.validate(excelsiorJet, true);
+            switch (project.appType()) {
+                case WINDOWS_SERVICE:
+                case DYNAMIC_LIBRARY:
+                    throw new JetTaskFailureException(s("PgoPipelineTask.AppTypeNotForPipeline.Failure", project.appType()));
+            }
+            if (!project.isProfileLocally()) {
+                throw new JetTaskFailureException(s("PgoPipelineTask.NotLocally.Failure"));
+            }
+            project.createBuildDir();
+            instrumentedBuild.stage();
+        });
+
+        File[] profilingImageDir = new File[1];
+        stage("PgoPipelineTask.InstrumentedBuild.Stage", () -> profilingImageDir[0] = instrumentedBuild.buildImage(false));
+
+        File jprof = project.execProfiles().getJProfile();
+        if (project.execProfiles().profileRunTimeout == 0) {
+            logger.warn(s("PgoPipelineTask.NoProfileRunTimeout.Warning"));
+        }
+        stage("PgoPipelineTask.ProfilingRun.Stage", () -> {
+            // the previous profile is moved aside, so that only a profile collected by this run is accepted,
+            // regardless of the file modification time resolution, and is restored if no profile is collected
+            Utils.mkdir(project.execProfiles().outputDir);
+            File prevJprof = new File(jprof.getPath() + PREV_PROFILE_SUFFIX);
+            if (jprof.exists()) {
+                Files.move(jprof.toPath(), prevJprof.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            boolean collected = false;
+            try {
+                profilingRun(profilingImageDir[0]);
+                collected = jprof.exists();
+            } finally {
+                if (!jprof.exists() && prevJprof.exists()) {
+                    Files.move(prevJprof.toPath(), jprof.toPath());
+                } else {
+                    Files.deleteIfExists(prevJprof.toPath());
+                }
+            }
+            if (!collected) {
+                throw new JetTaskFailureException(s("PgoPipelineTask.NoProfile.Failure", jprof.getAbsolutePath()));
+            }
+            logger.info(s("JetApi.Profile.ProfileCollected"));
+        });
+
+        stage("PgoPipelineTask.OptimizedBuild.Stage", () -> optimizedBuild.execute(false));
+
+        logger.info(s("PgoPipelineTask.Summary.Info"));
+        long total = 0;
+        for (Map.Entry<String, Long> stageTime : stageTimes.entrySet()) {
+            logger.info(s("PgoPipelineTask.SummaryRow.Info", stageTime.getKey(), seconds(stageTime.getValue())));
+            total += stageTime.getValue();
+        }
+        logger.info(s("PgoPipelineTask.SummaryTotal.Info", seconds(total)));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.tasks.config.dependencies.DependencySettings;
+import com.excelsiorjet.api.tasks.config.dependencies.ProjectDependency;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Index of project dependencies by group id, artifact id, and both, used to find the dependencies
+ * matched by {@link DependencySettings} without scanning all project dependencies for every settings instance.
+ */
+class ProjectDependencyIndex {
+
+    private final List<ProjectDependency> dependencies;
+    private final Map<String, List<ProjectDependency>> byGroup;
+    private final Map<String, List<ProjectDependency>> byArtifact;
+    private final Map<String, List<ProjectDependency>> byGroupArtifact;
+
+    ProjectDependencyIndex(List<ProjectDependency> dependencies) {
+        this.dependencies = dependencies;
+        this.byGroup = new HashMap<>();
+        this.byArtifact = new HashMap<>();
+        this.byGroupArtifact = new HashMap<>();
+        for (ProjectDependency dep : dependencies) {
+            if (dep.groupId != null) {
+                byGroup.computeIfAbsent(dep.groupId, k -> new ArrayList<>()).add(dep);
+            }
+            if (dep.artifactId != null) {
+                byArtifact.computeIfAbsent(dep.artifactId, k -> new ArrayList<>()).add(dep);
+            }
+            if ((dep.groupId != null) && (dep.artifactId != null)) {
+                byGroupArtifact.computeIfAbsent(dep.groupId + ":" + dep.artifactId, k -> new ArrayList<>()).add(dep);
+            }
+        }
+    }
+
+    /**
+     * Returns the dependencies matched by the given settings in the order of the indexed dependency list.
+     */
+    List<ProjectDependency> matchedBy(DependencySettings settings) {
+        List<ProjectDependency> candidates;
+        if ((settings.groupId != null) && (settings.artifactId != null)) {
+            candidates = byGroupArtifact.get(settings.groupId + ":" + settings.artifactId);
+        } else if (settings.groupId != null) {
+            candidates = byGroup.get(settings.groupId);
+        } else if (settings.artifactId != null) {
+            candidates = byArtifact.get(settings.artifactId);
+        } else {
+            // settings with path only
+            candidates = dependencies;
+        }
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+        return candidates.stream()
+                .filter(settings::matches)
+                .collect(toList());
+    }
+}
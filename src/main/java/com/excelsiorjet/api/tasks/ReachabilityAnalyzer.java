@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.tasks.ClasspathEntry.OptimizationType;
+import com.excelsiorjet.api.tasks.ClasspathEntry.PackType;
+import com.excelsiorjet.api.tasks.config.dependencies.DependencySettings;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+
+/**
+ * Computes which share of the classes of each classpath entry is reachable from the entry points
+ * of the application by following class references, and proposes dependency settings based on it.
+ * <p>
+ * Entries most of which the application actually uses are worth optimizing entirely ({@code optimize=all}),
+ * while the rarely used ones are better left to {@code optimize=auto-detect} with their non-compiled
+ * classes packed into the executable ({@code pack=auto-detect}).
+ * The proposals are applied below explicit user {@link DependencySettings}, see {@link DependencySettingsResolver}.
+ * </p>
+ * <p>
+ * The analysis is conservative only with respect to static references and class names found in string constants:
+ * classes loaded reflectively by computed names are not considered reachable.
+ * </p>
+ */
+class ReachabilityAnalyzer {
+
+    private static final String CLASS_EXT = ".class";
+
+    /**
+     * Reachability of a single classpath entry.
+     */
+    static class Share {
+        final int reachable;
+        final int total;
+
+        Share(int reachable, int total) {
+            this.reachable = reachable;
+            this.total = total;
+        }
+
+        int percent() {
+            return (total == 0) ? 0 : (int) (reachable * 100L / total);
+        }
+    }
+
+    /**
+     * Location of a class file: a classpath entry and the name of the class file in it.
+     */
+    private static class Location {
+        final int entry;
+        final String fileName;
+
+        Location(int entry, String fileName) {
+            this.entry = entry;
+            this.fileName = fileName;
+        }
+    }
+
+    private final List<File> entries;
+    private final Map<String, Location> locations = new HashMap<>();
+    private final Map<Integer, Integer> totals = new HashMap<>();
+
+    /**
+     * Service interfaces mapped to their providers declared in {@code META-INF/services} of the entries.
+     */
+    private final Map<String, List<String>> services = new HashMap<>();
+
+    /**
+     * @param entries classpath entries
+     * @param archives contents of the classpath entries in the same order
+     * @param classesPrefixes prefixes of the class file names of the respective entries, such as {@code BOOT-INF/classes/},
+     *                        empty strings for regular entries
+     */
+    ReachabilityAnalyzer(List<File> entries, List<ClasspathIndex.Archive> archives, List<String> classesPrefixes) {
+        this.entries = entries;
+        for (int i = 0; i < entries.size(); i++) {
+            String prefix = classesPrefixes.get(i);
+            int total = 0;
+            for (String fileName : archives.get(i).classes) {
+                if (fileName.startsWith(prefix)) {
+                    // the first entry on the classpath wins
+                    locations.putIfAbsent(fileName.substring(prefix.length()), new Location(i, fileName + CLASS_EXT));
+                    total++;
+                }
+            }
+            totals.put(i, total);
+            archives.get(i).services.forEach((service, providers) ->
+                    services.computeIfAbsent(service, k -> new ArrayList<>()).addAll(providers));
+        }
+    }
+
+    /**
+     * Returns the classes of the given entry, in the internal form, to be used as roots.
+     */
+    List<String> classesOf(int entry) {
+        return locations.entrySet().stream()
+                .filter(e -> e.getValue().entry == entry)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the entries holding the classes the classes of the given entry refer to directly,
+     * not including the entry itself.
+     */
+    Set<Integer> referencedEntries(int entry) throws IOException {
+        Map<Integer, JarFile> jars = new ConcurrentHashMap<>();
+        try {
+            return classesOf(entry).parallelStream()
+                    .flatMap(cls -> {
+                        try {
+                            return ClassReferences.of(read(locations.get(cls), jars)).stream();
+                        } catch (IOException e) {
+                            throw new JetTaskWrappedException(e);
+                        }
+                    })
+                    .map(locations::get)
+                    .filter(location -> (location != null) && (location.entry != entry))
+                    .map(location -> location.entry)
+                    .collect(Collectors.toSet());
+        } catch (JetTaskWrappedException e) {
+            throw (IOException) e.getCause();
+        } finally {
+            for (JarFile jar : jars.values()) {
+                jar.close();
+            }
+        }
+    }
+
+    /**
+     * Traverses the class references starting from the given roots, breadth first, reading the class files
+     * of each level in parallel.
+     * <p>
+     * Service providers declared in {@code META-INF/services} are reachable once their service interface is.
+     * Since platform services, such as JDBC drivers, are looked up by the platform itself, providers of services
+     * not defined on the classpath are always reachable.
+     * </p>
+     *
+     * @return reachability of every entry, in the order of the entries
+     */
+    List<Share> analyze(Collection<String> roots) throws IOException {
+        Map<Integer, JarFile> jars = new ConcurrentHashMap<>();
+        try {
+            Set<String> visited = new HashSet<>();
+            List<String> frontier = new ArrayList<>();
+            List<String> allRoots = new ArrayList<>(roots);
+            services.forEach((service, providers) -> {
+                if (!locations.containsKey(service)) {
+                    allRoots.addAll(providers);
+                }
+            });
+            for (String root : allRoots) {
+                visit(root, visited, frontier);
+            }
+            while (!frontier.isEmpty()) {
+                List<Set<String>> refs;
+                try {
+                    refs = frontier.parallelStream()
+                            .map(cls -> {
+                                try {
+                                    return ClassReferences.of(read(locations.get(cls), jars));
+                                } catch (IOException e) {
+                                    throw new JetTaskWrappedException(e);
+                                }
+                            })
+                            .collect(Collectors.toList());
+                } catch (JetTaskWrappedException e) {
+                    throw (IOException) e.getCause();
+                }
+                List<String> next = new ArrayList<>();
+                for (Set<String> classRefs : refs) {
+                    for (String ref : classRefs) {
+                        visit(ref, visited, next);
+                    }
+                }
+                frontier = next;
+            }
+
+            int[] reachable = new int[entries.size()];
+            for (String cls : visited) {
+                reachable[locations.get(cls).entry]++;
+            }
+            List<Share> shares = new ArrayList<>();
+            for (int i = 0; i < entries.size(); i++) {
+                shares.add(new Share(reachable[i], totals.get(i)));
+            }
+            return shares;
+        } finally {
+            for (JarFile jar : jars.values()) {
+                jar.close();
+            }
+        }
+    }
+
+    /**
+     * Marks the given class, if it is on the classpath, and the providers of the service it may define as reachable.
+     */
+    private void visit(String cls, Set<String> visited, List<String> next) {
+        if (locations.containsKey(cls) && visited.add(cls)) {
+            next.add(cls);
+            for (String provider : services.getOrDefault(cls, Collections.emptyList())) {
+                visit(provider, visited, next);
+            }
+        }
+    }
+
+    private byte[] read(Location location, Map<Integer, JarFile> jars) throws IOException {
+        File entry = entries.get(location.entry);
+        if (entry.isDirectory()) {
+            return Files.readAllBytes(new File(entry, location.fileName).toPath());
+        }
+        JarFile jar;
+        synchronized (jars) {
+            jar = jars.get(location.entry);
+            if (jar == null) {
+                jar = new JarFile(entry, false);
+                jars.put(location.entry, jar);
+            }
+        }
+        ZipEntry zipEntry = jar.getEntry(location.fileName);
+        try (InputStream in = jar.getInputStream(zipEntry)) {
+            return readAll(in, (int) Math.max(zipEntry.getSize(), 0));
+        }
+    }
+
+    private static byte[] readAll(InputStream in, int sizeHint) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(sizeHint, 1024));
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Proposes the settings of a dependency with the given reachability.
+     *
+     * @param threshold percentage of reachable classes starting from which the whole dependency is optimized
+     * @param isDirectory whether the dependency is a directory, which cannot be packed
+     */
+    static DependencySettings proposal(Share share, int threshold, boolean isDirectory) {
+        DependencySettings settings = new DependencySettings();
+        if ((share.total > 0) && (share.percent() >= threshold)) {
+            settings.optimize = OptimizationType.ALL.userValue;
+        } else {
+            settings.optimize = OptimizationType.AUTO_DETECT.userValue;
+            if (!isDirectory) {
+                settings.pack = PackType.AUTO_DETECT.userValue;
+            }
+        }
+        return settings;
+    }
+
+    /**
+     * Reports the reachability and the proposed settings of the entries for logging and as JSON.
+     */
+    static Map<String, Object> report(File entry, Share share, DependencySettings proposal) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("path", entry.getPath());
+        row.put("reachableClasses", share.reachable);
+        row.put("classes", share.total);
+        row.put("optimize", proposal.optimize);
+        row.put("pack", proposal.pack);
+        return row;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs resource-hungry jobs, such as Excelsior JET compiler invocations, concurrently,
+ * admitting only as many of them at once as the available CPU cores and physical memory allow.
+ */
+class ResourceAwareScheduler {
+
+    private static final Path MEMINFO = Paths.get("/proc/meminfo");
+    private static final String MEM_AVAILABLE = "MemAvailable:";
+
+    private final int coresPerJob;
+    private final long memoryPerJobMB;
+    private final int maxParallelJobs;
+
+    /**
+     * @param coresPerJob number of CPU cores a single job is expected to occupy
+     * @param memoryPerJobMB amount of physical memory in megabytes a single job is expected to occupy
+     * @param maxParallelJobs upper bound for the number of concurrent jobs, or {@code 0} for no explicit bound
+     */
+    ResourceAwareScheduler(int coresPerJob, long memoryPerJobMB, int maxParallelJobs) {
+        this.coresPerJob = coresPerJob;
+        this.memoryPerJobMB = memoryPerJobMB;
+        this.maxParallelJobs = maxParallelJobs;
+    }
+
+    /**
+     * Computes how many jobs may run concurrently. At least one job is always admitted,
+     * so that the jobs make progress even on a host that looks overloaded.
+     */
+    static int admissionLimit(int jobs, int cores, int coresPerJob, long freeMemoryMB, long memoryPerJobMB,
+                              int maxParallelJobs) {
+        long limit = jobs;
+        if (coresPerJob > 0) {
+            limit = Math.min(limit, cores / coresPerJob);
+        }
+        if ((freeMemoryMB >= 0) && (memoryPerJobMB > 0)) {
+            limit = Math.min(limit, freeMemoryMB / memoryPerJobMB);
+        }
+        if (maxParallelJobs > 0) {
+            limit = Math.min(limit, maxParallelJobs);
+        }
+        return (int) Math.max(1, limit);
+    }
+
+    /**
+     * @return physical memory in megabytes that is available for new processes, or {@code -1} if unknown.
+     */
+    static long availableMemoryMB() {
+        if (Files.isReadable(MEMINFO)) {
+            try {
+                for (String line : Files.readAllLines(MEMINFO)) {
+                    if (line.startsWith(MEM_AVAILABLE)) {
+                        // the value is given in kB
+                        String value = line.substring(MEM_AVAILABLE.length()).trim().split("\\s+")[0];
+                        return Long.parseLong(value) / 1024;
+                    }
+                }
+            } catch (IOException | NumberFormatException ignore) {
+                // fall back to the management bean
+            }
+        }
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        // getFreePhysicalMemorySize is deprecated since Java 14 in favor of getFreeMemorySize,
+        // which is absent in Java 8, so the available one is looked up reflectively
+        for (String method : new String[]{"getFreeMemorySize", "getFreePhysicalMemorySize"}) {
+            try {
+                Class<?> osClass = Class.forName("com.sun.management.OperatingSystemMXBean");
+                if (osClass.isInstance(os)) {
+                    return ((Number) osClass.getMethod(method).invoke(os)).longValue() / (1024 * 1024);
+                }
+            } catch (ReflectiveOperationException ignore) {
+                // try the next method
+            }
+        }
+        return -1;
+    }
+
+    int admissionLimit(int jobs) {
+        return admissionLimit(jobs, Runtime.getRuntime().availableProcessors(), coresPerJob,
+                availableMemoryMB(), memoryPerJobMB, maxParallelJobs);
+    }
+
+    /**
+     * Runs the given jobs, at most {@code limit} at a time, and returns their results in the order of the jobs.
+     * The jobs are expected to handle their failures themselves.
+     */
+    static <T> List<T> run(List<Callable<T>> jobs, int limit) {
+        if (limit == 1) {
+            List<T> results = new ArrayList<>();
+            for (Callable<T> job : jobs) {
+                results.add(call(job));
+            }
+            return results;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(limit);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> job : jobs) {
+                futures.add(executor.submit(job));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> T call(Callable<T> job) {
+        try {
+            return job.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
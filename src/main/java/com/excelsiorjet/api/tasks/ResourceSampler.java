@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.util.Json;
+import com.excelsiorjet.api.util.ProcFs;
+import com.excelsiorjet.api.util.Txt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.excelsiorjet.api.log.Log.logger;
+
+/**
+ * Samples the memory footprint and CPU usage of the process launched by a task from {@code /proc}
+ * at a fixed interval, so that runtime configurations can be compared.
+ */
+class ResourceSampler {
+
+    static class Sample {
+        final long timeMillis;
+        final long rssKb;
+        final long pssKb;
+        final int threads;
+        final double cpuPercent;
+
+        Sample(long timeMillis, long rssKb, long pssKb, int threads, double cpuPercent) {
+            this.timeMillis = timeMillis;
+            this.rssKb = rssKb;
+            this.pssKb = pssKb;
+            this.threads = threads;
+            this.cpuPercent = cpuPercent;
+        }
+    }
+
+    private final int interval;
+    private final LaunchedProcess process;
+    private final List<Sample> samples = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean finished;
+    private Thread thread;
+
+    ResourceSampler(int interval, LaunchedProcess process) {
+        this.interval = interval;
+        this.process = process;
+    }
+
+    /**
+     * Starts sampling the given launched process if sampling is enabled for the project
+     * and supported by the host.
+     *
+     * @return the started sampler, or {@code null} if sampling is disabled
+     */
+    static ResourceSampler startIfEnabled(JetProject project, LaunchedProcess process) {
+        if (project.memorySamplingInterval() <= 0) {
+            return null;
+        }
+        if (!ProcFs.isAvailable()) {
+            logger.warn(Txt.s("ResourceSampler.NotAvailable.Warning"));
+            return null;
+        }
+        ResourceSampler sampler = new ResourceSampler(project.memorySamplingInterval(), process);
+        sampler.start();
+        return sampler;
+    }
+
+    void start() {
+        thread = new Thread(this::sample);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void sample() {
+        long start = System.currentTimeMillis();
+        long prevTime = start;
+        long prevTicks = -1;
+        while (!finished) {
+            int pid = process.pid();
+            long now = System.currentTimeMillis();
+            long ticks = (pid > 0) ? ProcFs.cpuTicks(pid) : -1;
+            if (ticks >= 0) {
+                int threads = ProcFs.threads(pid);
+                double cpu = 0;
+                if ((prevTicks >= 0) && (ticks >= prevTicks) && (now > prevTime)) {
+                    // percent of a single core
+                    cpu = (ticks - prevTicks) * 100.0 * 1000 / ProcFs.CLOCK_TICKS / (now - prevTime);
+                }
+                if (threads > 0) {
+                    samples.add(new Sample(now - start, ProcFs.rssKb(pid), ProcFs.pssKb(pid), threads, cpu));
+                }
+            }
+            prevTime = now;
+            prevTicks = ticks;
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                // finished
+            }
+        }
+    }
+
+    /**
+     * Stops sampling, logs the peak and average values, and writes the time series to the given file.
+     */
+    void finish(File resultFile) {
+        finished = true;
+        thread.interrupt();
+        try {
+            thread.join(interval + 1000);
+        } catch (InterruptedException ignore) {
+        }
+        List<Sample> series;
+        synchronized (samples) {
+            series = new ArrayList<>(samples);
+        }
+        if (series.isEmpty()) {
+            logger.warn(Txt.s("ResourceSampler.NoSamples.Warning"));
+            return;
+        }
+        Map<String, Object> summary = summarize(series);
+        @SuppressWarnings("unchecked") Map<String, Number> rss = (Map<String, Number>) summary.get("rssKB");
+        @SuppressWarnings("unchecked") Map<String, Number> pss = (Map<String, Number>) summary.get("pssKB");
+        @SuppressWarnings("unchecked") Map<String, Number> threads = (Map<String, Number>) summary.get("threads");
+        @SuppressWarnings("unchecked") Map<String, Number> cpu = (Map<String, Number>) summary.get("cpuPercent");
+        logger.info(Txt.s("ResourceSampler.Summary.Info", series.size(),
+                rss.get("peak").longValue() / 1024, rss.get("average").longValue() / 1024,
+                pss.get("peak").longValue() / 1024, pss.get("average").longValue() / 1024,
+                threads.get("peak"), threads.get("average"),
+                Math.round(cpu.get("peak").doubleValue()), Math.round(cpu.get("average").doubleValue())));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("intervalMillis", interval);
+        result.putAll(summary);
+        List<Object> timeSeries = new ArrayList<>();
+        for (Sample sample : series) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("timeMillis", sample.timeMillis);
+            point.put("rssKB", sample.rssKb);
+            point.put("pssKB", sample.pssKb);
+            point.put("threads", sample.threads);
+            point.put("cpuPercent", Math.round(sample.cpuPercent * 10) / 10.0);
+            timeSeries.add(point);
+        }
+        result.put("samples", timeSeries);
+        try {
+            Files.write(resultFile.toPath(), Json.toJson(result).getBytes("UTF-8"));
+            logger.info(Txt.s("ResourceSampler.Result.Info", resultFile.getAbsolutePath()));
+        } catch (IOException e) {
+            logger.warn(Txt.s("JetApi.UnableToWrite.Error", resultFile.getAbsolutePath()));
+        }
+    }
+
+    /**
+     * @return peak and average values of every sampled metric
+     */
+    static Map<String, Object> summarize(List<Sample> series) {
+        long peakRss = 0, sumRss = 0, peakPss = 0, sumPss = 0, sumThreads = 0;
+        int peakThreads = 0;
+        double peakCpu = 0, sumCpu = 0;
+        for (Sample sample : series) {
+            peakRss = Math.max(peakRss, sample.rssKb);
+            sumRss += sample.rssKb;
+            peakPss = Math.max(peakPss, sample.pssKb);
+            sumPss += sample.pssKb;
+            peakThreads = Math.max(peakThreads, sample.threads);
+            sumThreads += sample.threads;
+            peakCpu = Math.max(peakCpu, sample.cpuPercent);
+            sumCpu += sample.cpuPercent;
+        }
+        int n = series.size();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("rssKB", peakAndAverage(peakRss, sumRss / n));
+        summary.put("pssKB", peakAndAverage(peakPss, sumPss / n));
+        summary.put("threads", peakAndAverage(peakThreads, sumThreads / n));
+        summary.put("cpuPercent", peakAndAverage(Math.round(peakCpu * 10) / 10.0, Math.round(sumCpu / n * 10) / 10.0));
+        return summary;
+    }
+
+    private static Map<String, Number> peakAndAverage(Number peak, Number average) {
+        Map<String, Number> values = new LinkedHashMap<>();
+        values.put("peak", peak);
+        values.put("average", average);
+        return values;
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Registry of the tasks run via {@link RunStopSupport} with the same termination directory,
+ * shared between processes through a small file.
+ * <p>
+ * The file consists of a header holding the next task id and the id of the most recently started task,
+ * followed by a table of {@link #SLOTS} slots. A slot holds the id (plus one) of the task that occupies it,
+ * negated once the task is unregistered, or zero if the slot has never been used, and the id (plus one)
+ * of the task started before it. A task occupies the slot with the index {@code id % SLOTS},
+ * so the slot of a task is found in constant time, and the most recently started task that is still running
+ * is usually found in constant time too, by following the started-before links from the header.
+ * </p>
+ * <p>
+ * While a task runs, its process holds an exclusive lock on the liveness byte of its slot, which follows
+ * the slot table and holds no data, so that the slot itself stays readable by other processes even on systems
+ * with mandatory file locks, such as Windows. If a process dies without unregistering its task,
+ * the lock is released by the OS and the slot is recognized as stale.
+ * The header region is locked while the registry is read or updated, which makes id allocation race-free
+ * between processes. Within a process, all locks are acquired through a single channel per registry file,
+ * since closing any channel to a file may release all the locks the process holds on that file.
+ * The channel is closed as soon as the process has no registered tasks, so that the registry file
+ * can be deleted, for instance, by a clean task of a build daemon.
+ * </p>
+ */
+class RunRegistry {
+
+    private static final String REGISTRY_FILE = "registry";
+
+    static final int SLOTS = 256;
+
+    private static final int MAX_ID = Integer.MAX_VALUE - 1;
+
+    private static final int NEXT_ID_OFFSET = 0;
+    private static final int LAST_STARTED_OFFSET = 4;
+    static final int HEADER_SIZE = 8;
+
+    private static final int PREV_OFFSET = 4;
+    static final int SLOT_SIZE = 8;
+
+    /**
+     * Registry files opened by this process, which are the ones having tasks registered by this process
+     * or being accessed right now. All accesses to the registries are synchronized on this map.
+     */
+    private static final Map<File, OpenRegistry> openRegistries = new HashMap<>();
+
+    private static class OpenRegistry {
+        final FileChannel channel;
+
+        // slots of the tasks registered by this process
+        final Map<Integer, FileLock> ownSlots = new HashMap<>();
+
+        OpenRegistry(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        int getInt(long position) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(4);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    // not written yet
+                    return 0;
+                }
+            }
+            buffer.flip();
+            return buffer.getInt();
+        }
+
+        void putInt(long position, int value) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(4);
+            buffer.putInt(value).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        }
+    }
+
+    private final File file;
+
+    private RunRegistry(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the registry of the given termination directory. The registry file is created on first access.
+     */
+    static RunRegistry of(File termTempDir) throws IOException {
+        return new RunRegistry(new File(termTempDir, REGISTRY_FILE).getCanonicalFile());
+    }
+
+    /**
+     * Checks whether this process keeps the registry file open.
+     */
+    boolean isOpen() {
+        synchronized (openRegistries) {
+            return openRegistries.containsKey(file);
+        }
+    }
+
+    private OpenRegistry open() throws IOException {
+        OpenRegistry registry = openRegistries.get(file);
+        if (registry == null) {
+            registry = new OpenRegistry(FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            openRegistries.put(file, registry);
+        }
+        return registry;
+    }
+
+    private void closeIfUnused(OpenRegistry registry) throws IOException {
+        if (registry.ownSlots.isEmpty()) {
+            openRegistries.remove(file);
+            registry.channel.close();
+        }
+    }
+
+    private static long slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    /**
+     * Offset of the byte that is locked while the task occupying the slot runs.
+     */
+    private static long livenessOffset(int slot) {
+        return HEADER_SIZE + SLOTS * SLOT_SIZE + slot;
+    }
+
+    private static int slotOf(int id) {
+        return id % SLOTS;
+    }
+
+    private static int nextId(int id) {
+        return (id >= MAX_ID) ? 0 : id + 1;
+    }
+
+    private static FileLock lockHeader(OpenRegistry registry) throws IOException {
+        return registry.channel.lock(0, HEADER_SIZE, false);
+    }
+
+    private static boolean isRunning(OpenRegistry registry, int slot) throws IOException {
+        if (registry.ownSlots.containsKey(slot)) {
+            return true;
+        }
+        if (registry.getInt(slotOffset(slot)) <= 0) {
+            // unregistered or never used
+            return false;
+        }
+        FileLock slotLock = registry.channel.tryLock(livenessOffset(slot), 1, false);
+        if (slotLock == null) {
+            return true;
+        }
+        slotLock.release();
+        return false;
+    }
+
+    /**
+     * Registers a new running task.
+     *
+     * @param staleTaskCleanup called with the id of a task that died without unregistering, if its slot is reused
+     * @return id of the registered task, or {@code -1} if all slots are occupied by running tasks
+     */
+    int register(IntConsumer staleTaskCleanup) throws IOException {
+        synchronized (openRegistries) {
+            OpenRegistry registry = open();
+            try (FileLock ignore = lockHeader(registry)) {
+                int id = Math.min(Math.max(0, registry.getInt(NEXT_ID_OFFSET)), MAX_ID);
+                for (int i = 0; i < SLOTS; i++, id = nextId(id)) {
+                    int slot = slotOf(id);
+                    if (registry.ownSlots.containsKey(slot)) {
+                        continue;
+                    }
+                    FileLock slotLock = registry.channel.tryLock(livenessOffset(slot), 1, false);
+                    if (slotLock == null) {
+                        // occupied by a task running in another process
+                        continue;
+                    }
+                    int staleId = registry.getInt(slotOffset(slot)) - 1;
+                    if (staleId >= 0) {
+                        staleTaskCleanup.accept(staleId);
+                    }
+                    registry.putInt(slotOffset(slot), id + 1);
+                    registry.putInt(slotOffset(slot) + PREV_OFFSET, registry.getInt(LAST_STARTED_OFFSET));
+                    registry.putInt(LAST_STARTED_OFFSET, id + 1);
+                    registry.putInt(NEXT_ID_OFFSET, nextId(id));
+                    registry.ownSlots.put(slot, slotLock);
+                    return id;
+                }
+                return -1;
+            } finally {
+                closeIfUnused(registry);
+            }
+        }
+    }
+
+    /**
+     * Removes the task registered by this process from the registry.
+     */
+    void unregister(int id) throws IOException {
+        synchronized (openRegistries) {
+            OpenRegistry registry = openRegistries.get(file);
+            FileLock slotLock = (registry != null) ? registry.ownSlots.remove(slotOf(id)) : null;
+            if (slotLock == null) {
+                return;
+            }
+            try (FileLock ignore = lockHeader(registry)) {
+                long offset = slotOffset(slotOf(id));
+                if (registry.getInt(offset) == id + 1) {
+                    // keep the id, so that the started-before link of the next task can still be followed
+                    registry.putInt(offset, -(id + 1));
+                }
+            } finally {
+                slotLock.release();
+                closeIfUnused(registry);
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the most recently started task that is still running, or {@code -1} if there is no such task.
+     * <p>
+     * The tasks are visited from the most recently started one via the started-before links, and the header is then
+     * updated to point to the found task, so the tasks finished since are not visited again. If a link leads
+     * to a slot that has been reused since, all the slots are scanned instead.
+     * </p>
+     */
+    int lastRunning() throws IOException {
+        synchronized (openRegistries) {
+            OpenRegistry registry = open();
+            try (FileLock ignore = lockHeader(registry)) {
+                int id = registry.getInt(LAST_STARTED_OFFSET) - 1;
+                for (int i = 0; (id >= 0) && (i < SLOTS); i++) {
+                    long offset = slotOffset(slotOf(id));
+                    if (Math.abs(registry.getInt(offset)) != id + 1) {
+                        // the link is broken by a reused slot
+                        break;
+                    }
+                    if (isRunning(registry, slotOf(id))) {
+                        registry.putInt(LAST_STARTED_OFFSET, id + 1);
+                        return id;
+                    }
+                    id = registry.getInt(offset + PREV_OFFSET) - 1;
+                }
+                if (id < 0) {
+                    registry.putInt(LAST_STARTED_OFFSET, 0);
+                    return -1;
+                }
+                id = scanLastRunning(registry);
+                registry.putInt(LAST_STARTED_OFFSET, id + 1);
+                return id;
+            } finally {
+                closeIfUnused(registry);
+            }
+        }
+    }
+
+    private static int scanLastRunning(OpenRegistry registry) throws IOException {
+        // ids grow with the start time, wrapping around the next id to allocate
+        int next = registry.getInt(NEXT_ID_OFFSET);
+        int last = -1;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            int id = registry.getInt(slotOffset(slot)) - 1;
+            if ((id >= 0) && isRunning(registry, slot) && ((last < 0) || (age(id, next) < age(last, next)))) {
+                last = id;
+            }
+        }
+        return last;
+    }
+
+    private static int age(int id, int next) {
+        return (id < next) ? next - id : next + (MAX_ID - id) + 1;
+    }
+}
@@ -25,11 +25,13 @@ import com.excelsiorjet.api.util.Txt;
 import com.excelsiorjet.api.util.Utils;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.channels.FileLock;
-import java.util.*;
-import java.util.stream.Stream;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import static com.excelsiorjet.api.log.Log.logger;
 
 /**
  * Provides interprocess communication methods for running and stopping tasks.
@@ -56,175 +58,89 @@ import java.util.stream.Stream;
  * {@code stopRunTask} identifies what task is run now and stops it by creating the respective {@code termFile}.
  *
  * <p>Implementation details:</p>
- *    {@code prepareToRun} locks a file in a temp dir so another process where we call {@code stopRunTask} knows what
- *    task is waiting to stop. {@code stopRunTask} looks for the locked file and creates the respective termination file,
- *    thereby notifying the running task to stop. When the task is stopped it releases the lock and deletes both lock
- *    and termination files.
+ *    {@code prepareToRun} registers the task in the {@link RunRegistry} of the temp dir so another process where
+ *    we call {@code stopRunTask} knows what task is waiting to stop. {@code stopRunTask} looks up the most recently
+ *    registered running task and creates the respective termination file, thereby notifying the running task to stop.
+ *    When the task is stopped it unregisters itself and deletes the termination file.
  */
 public class RunStopSupport {
 
     private static final String TERM_FILE_PREFIX = "term.file";
-    private static final String LOCK_PEFIX = "lock.";
-    private static final String LOCK_TERM_FILE_PREFIX = LOCK_PEFIX + TERM_FILE_PREFIX;
     private static final String TERM_TEMP_DIR = "termination";
 
     //1 min timeout
-    private static final int STOP_TIMEOUT = 60000;
+    private static final int DEFAULT_STOP_TIMEOUT = 60;
+    private static final String STOP_TIMEOUT_PROPERTY = "jet.stop.timeout";
     private static final int SLEEP_TIME = 300;
 
 
     private int id = -1;
     private File termTempDir;
     private boolean toStop;
-    private Lock lock;
-
-    private static Map<File, Lock> acquiredLocks = Collections.synchronizedMap(new HashMap<>());
+    private RunRegistry registry;
+    private long stopTimeout;
 
     public RunStopSupport(File baseDir, boolean toStop) {
         String tempDirProp = System.getProperty("jet.run.temp.dir");
         this.termTempDir = new File(baseDir, Utils.isEmpty(tempDirProp)? TERM_TEMP_DIR : tempDirProp);
         this.toStop = toStop;
+        this.stopTimeout = TimeUnit.SECONDS.toMillis(defaultStopTimeout());
         termTempDir.mkdirs();
-        cleanup();
-        initID(toStop);
     }
 
-    /**
-     * File system lock wrapper.
-     * When we need to lock a file, we have to create a channel and then call tryLock that returns a FileLock
-     * on successful file locking. As we need to release that lock not immediately, we should keep the channel
-     * and lock objects until the lock is released. We also keep track of acquired locks to prevent double locking
-     * of the same file and to be able to use RunStopSupport objects within one process (useful for unit testing).
-     */
-    private static class Lock {
-        private File fileLock;
-        private FileOutputStream chanelHost;
-        private FileLock lock;
-
-        Lock(File fileLock, FileOutputStream chanelHost, FileLock lock) {
-            this.fileLock = fileLock;
-            this.chanelHost = chanelHost;
-            this.lock = lock;
-            acquiredLocks.put(fileLock, this);
+    static int defaultStopTimeout() {
+        String stopTimeoutProp = System.getProperty(STOP_TIMEOUT_PROPERTY);
+        if (Utils.isEmpty(stopTimeoutProp)) {
+            return DEFAULT_STOP_TIMEOUT;
         }
-
-        void release() {
-            try {
-                lock.release();
-                chanelHost.close();
-                acquiredLocks.remove(fileLock);
-            } catch (IOException ignore) {
-            }
-        }
-    }
-
-    /**
-     * Tries to lock the given file
-     * @return {code null} if the file is locked from another process, or the respective Lock object upon successful locking.
-     */
-    private static Lock acquireLock(File file) {
-        if (acquiredLocks.containsKey(file)) {
-            throw new IllegalStateException("double run task");
-        }
-        FileOutputStream fos = null;
         try {
-            fos = new FileOutputStream(file);
-            FileLock fileLock = fos.getChannel().tryLock();
-            if (fileLock != null) {
-                return new Lock(file, fos, fileLock);
-            } else {
-                fos.close();
-                return null;
+            int stopTimeout = Integer.parseInt(stopTimeoutProp.trim());
+            if (stopTimeout > 0) {
+                return stopTimeout;
             }
-        } catch (IOException e) {
-            if (fos != null) {
-                try {
-                    fos.close();
-                } catch (IOException ignore) {
-                }
-            }
-            return null;
+        } catch (NumberFormatException ignore) {
         }
+        logger.warn(Txt.s("StopTask.InvalidStopTimeout.Warning", STOP_TIMEOUT_PROPERTY, stopTimeoutProp,
+                String.valueOf(DEFAULT_STOP_TIMEOUT)));
+        return DEFAULT_STOP_TIMEOUT;
     }
 
     /**
-     * Returns {@code true} if the file is locked from another process or within this process.
+     * Sets how long {@link #stopRunTask()} waits for the task to terminate.
+     * By default, the timeout is 60 seconds or the value of the {@code jet.stop.timeout} system property in seconds.
+     *
+     * @param stopTimeout timeout in seconds
      */
-    private static boolean isLocked(File file) {
-        if (acquiredLocks.containsKey(file)) {
-            return true;
-        }
-        Lock lock = acquireLock(file);
-        if (lock == null) {
-            return true;
-        } else {
-            lock.release();
-            return false;
-        }
-    }
-
-    /**
-     * Cleans up the temporary directory from files that are not used by any of the run tasks.
-     */
-    private void cleanup() {
-        File[] termFileLocks = termTempDir.listFiles(f->f.getName().startsWith(LOCK_TERM_FILE_PREFIX));
-        if (termFileLocks != null) {
-            Stream.of(termFileLocks).filter(f -> !isLocked(f))
-                    .forEach(File::delete);
-        }
-        File[] termFiles = termTempDir.listFiles(f->f.getName().startsWith(TERM_FILE_PREFIX));
-        if (termFiles != null) {
-            Stream.of(termFiles).filter(f -> !new File(termTempDir, LOCK_PEFIX + f.getName()).exists())
-                    .forEach(File::delete);
-        }
+    public RunStopSupport stopTimeout(int stopTimeout) {
+        this.stopTimeout = TimeUnit.SECONDS.toMillis(stopTimeout);
+        return this;
     }
 
-    /**
-     *  Looks for the last created lock file and retrieves its id.
-     */
-    private int findLastID() {
-        File[] termFileLocks = termTempDir.listFiles(f->f.getName().startsWith(LOCK_TERM_FILE_PREFIX));
-        if (termFileLocks != null) {
-            Optional<File> lastFile = Stream.of(termFileLocks).max(
-                    (File f1, File f2) -> f1.lastModified() == f2.lastModified() ? f1.getName().compareTo(f2.getName()) :
-                            Long.compare(f1.lastModified(), f2.lastModified())
-            );
-            if (lastFile.isPresent()) {
-                String fname = lastFile.get().getName();
-                return Integer.valueOf(fname.substring(LOCK_TERM_FILE_PREFIX.length()));
-            } else {
-                return -1;
-            }
-        } else {
-            return -1;
-        }
-    }
-
-    private void initID(boolean toStop) {
-       id = findLastID() + (toStop? 0 : 1);
-    }
-
-    private File getLockFile() {
-        return new File(termTempDir, LOCK_TERM_FILE_PREFIX + id);
-    }
-
-    private File getTermFile() {
+    private File getTermFile(int id) {
         return new File(termTempDir, TERM_FILE_PREFIX + id);
     }
 
-    private boolean acquireLock() {
-        lock = acquireLock(getLockFile());
-        return lock != null;
+    private File getTermFile() {
+        return getTermFile(id);
     }
 
     public File prepareToRunTask() throws JetTaskFailureException {
         if (toStop) {
             throw new IllegalStateException("prepareToRunTask run when is going to stop");
         }
-        if (!acquireLock()) {
-            // it seems to be data race (simultaneous runs). Rare case, tell user to try again
+        try {
+            registry = RunRegistry.of(termTempDir);
+            // remove termination files of the tasks that died without cleanup
+            id = registry.register(staleId -> getTermFile(staleId).delete());
+        } catch (IOException e) {
+            registry = null;
+            id = -1;
+        }
+        if (id == -1) {
+            // too many simultaneous runs or the registry is not accessible. Rare case, tell user to try again
             throw new JetTaskFailureException(Txt.s("RunTask.FailedToRun.Error"));
         }
+        getTermFile().delete();
         return getTermFile();
     }
 
@@ -232,11 +148,14 @@ public class RunStopSupport {
         if (toStop) {
             throw new IllegalStateException("taskFinished when is going to stop");
         }
-        if (lock == null) {
+        if (registry == null) {
             throw new IllegalStateException("prepareToRun was not called");
         }
-        lock.release();
-        getLockFile().delete();
+        try {
+            registry.unregister(id);
+        } catch (IOException ignore) {
+            // the slot is released anyway when this process exits
+        }
         getTermFile().delete();
     }
 
@@ -244,30 +163,69 @@ public class RunStopSupport {
         if (!toStop) {
             throw new IllegalStateException("stopRunTask when is going to run");
         }
-        if (id == -1) {
-            throw new JetTaskFailureException(Txt.s("StopTask.NoRunApp.Error"));
-        }
         try {
-            if (isLocked(getLockFile())) {
-                File termFile = getTermFile();
-                termFile.createNewFile();
-                int  timeToEnd = STOP_TIMEOUT;
-                while ((timeToEnd > 0 ) && termFile.exists()) {
-                    try {
-                        Thread.sleep(SLEEP_TIME);
-                    } catch (InterruptedException ignore) {
-                    }
-                    timeToEnd -= SLEEP_TIME;
-                }
-                if (timeToEnd <= 0) {
-                    throw new JetTaskFailureException(Txt.s("StopTask.StopTimeout.Error"));
-                }
-            } else {
-                //the process died before we stop it. At least we saw it so ignore that.
+            id = RunRegistry.of(termTempDir).lastRunning();
+            if (id == -1) {
+                throw new JetTaskFailureException(Txt.s("StopTask.NoRunApp.Error"));
+            }
+            File termFile = getTermFile();
+            termFile.createNewFile();
+            if (!waitForDeletion(termFile, System.currentTimeMillis() + stopTimeout)) {
+                throw new JetTaskFailureException(Txt.s("StopTask.StopTimeout.Error"));
             }
         } catch (IOException e) {
             throw new JetTaskFailureException(Txt.s("StopTask.StopFailure.Error", e.getMessage()));
         }
     }
 
+    /**
+     * Waits until the given file in the termination directory is deleted, which means that the task has terminated.
+     * The file system is watched for the deletion if it supports change notifications, so the task termination
+     * is noticed immediately. As the notifications may be delayed or missed, e.g. if the watch service
+     * is implemented by polling, each wait is bounded and followed by the file existence check.
+     *
+     * @return {@code false} if the file still exists by the deadline
+     */
+    private boolean waitForDeletion(File file, long deadline) {
+        try (WatchService watcher = termTempDir.toPath().getFileSystem().newWatchService()) {
+            termTempDir.toPath().register(watcher, StandardWatchEventKinds.ENTRY_DELETE);
+            // the file may have been deleted before the registration, so check it before every wait
+            while (file.exists()) {
+                long timeToEnd = deadline - System.currentTimeMillis();
+                if (timeToEnd <= 0) {
+                    return false;
+                }
+                WatchKey key;
+                try {
+                    key = watcher.poll(Math.min(timeToEnd, SLEEP_TIME), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ignore) {
+                    continue;
+                }
+                if (key != null) {
+                    key.pollEvents();
+                    if (!key.reset()) {
+                        // the directory is no longer accessible
+                        return pollForDeletion(file, deadline);
+                    }
+                }
+            }
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return pollForDeletion(file, deadline);
+        }
+    }
+
+    private static boolean pollForDeletion(File file, long deadline) {
+        while (file.exists()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(SLEEP_TIME);
+            } catch (InterruptedException ignore) {
+            }
+        }
+        return true;
+    }
+
 }
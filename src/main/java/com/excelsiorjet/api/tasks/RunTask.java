@@ -24,25 +24,54 @@ package com.excelsiorjet.api.tasks;
 import com.excelsiorjet.api.ExcelsiorJet;
 import com.excelsiorjet.api.cmd.CmdLineTool;
 import com.excelsiorjet.api.cmd.CmdLineToolException;
+import com.excelsiorjet.api.tasks.config.ApplicationType;
+import com.excelsiorjet.api.util.Json;
+import com.excelsiorjet.api.util.ProcFs;
 import com.excelsiorjet.api.util.Txt;
 import com.excelsiorjet.api.util.Utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static com.excelsiorjet.api.log.Log.logger;
 
 /**
  * Task for running a generated executable.
+ * <p>
+ * For Tomcat and Spring Boot applications, the task may also benchmark the server startup instead of running it
+ * (see {@link #benchmark(String, int)}).
+ * </p>
  */
 public class RunTask {
 
+    static final String BENCHMARK_RESULT_FILE = "server-benchmark.json";
+    private static final String BENCHMARK_LOG_FILE = "server-benchmark.log";
+    static final String RESOURCE_SAMPLES_FILE = "resource-samples-run.json";
+    private static final int POLL_INTERVAL = 10;
+    private static final int CONNECT_TIMEOUT = 100;
+    private static final int STOP_TIMEOUT = 30;
+
     private final ExcelsiorJet excelsiorJet;
     private final JetProject project;
     private final boolean toProfile;
 
+    private URL benchmarkEndpoint;
+    private int benchmarkLaunches;
+    private int benchmarkTimeout = 120;
+    private File benchmarkResultFile;
+
     public RunTask(ExcelsiorJet excelsiorJet, JetProject project, boolean toProfile) throws JetTaskFailureException {
         this.excelsiorJet = excelsiorJet;
         this.project = project;
@@ -53,6 +82,46 @@ public class RunTask {
         this(excelsiorJet, project, false);
     }
 
+    /**
+     * Switches the task to the server startup benchmark mode for Tomcat and Spring Boot applications.
+     * In this mode, the server is launched {@code launches} times, each time measuring the time until it accepts
+     * connections on the port of the {@code endpoint} and the time until the {@code endpoint} responds
+     * with HTTP status 200, as well as the resident set size of the server at that moment.
+     * After that, the server is terminated according to {@link JetProject#terminationPolicy}.
+     * The results are written to {@code server-benchmark.json} in {@link JetProject#jetOutputDir}.
+     *
+     * @param endpoint URL to poll, e.g. {@code http://localhost:8080/health}
+     * @param launches number of launches
+     */
+    public RunTask benchmark(String endpoint, int launches) throws JetTaskFailureException {
+        try {
+            this.benchmarkEndpoint = new URL(endpoint);
+        } catch (MalformedURLException e) {
+            throw new JetTaskFailureException(Txt.s("JetApi.Workload.InvalidUrl", endpoint, e.getMessage()));
+        }
+        if (launches <= 0) {
+            throw new JetTaskFailureException(Txt.s("RunTask.Benchmark.InvalidLaunches.Error", launches));
+        }
+        this.benchmarkLaunches = launches;
+        return this;
+    }
+
+    /**
+     * Sets how long to wait for the server to respond in the benchmark mode, in seconds. Default value is 120.
+     */
+    public RunTask benchmarkTimeout(int benchmarkTimeout) {
+        this.benchmarkTimeout = benchmarkTimeout;
+        return this;
+    }
+
+    /**
+     * Sets the file to write the benchmark results to.
+     */
+    public RunTask benchmarkResultFile(File benchmarkResultFile) {
+        this.benchmarkResultFile = benchmarkResultFile;
+        return this;
+    }
+
     /**
      * Runs the executable when the project is already validated (from other tasks).
      */
@@ -85,15 +154,34 @@ public class RunTask {
             t.setDaemon(true);
             t.start();
         }
+        LaunchedProcess process = new LaunchedProcess();
+        WorkloadDriver driver = null;
+        AdaptiveTerminator terminator = null;
+        if (toProfile) {
+            driver = WorkloadDriver.startIfDefined(project.execProfiles().workload, termFile);
+            terminator = AdaptiveTerminator.startIfDefined(project.execProfiles(), termFile, process);
+        }
+
+        ResourceSampler sampler = ResourceSampler.startIfEnabled(project, process);
 
         int errCode;
         try {
             errCode = new CmdLineTool(args)
                     .workingDirectory(appDir)
-                    .withLog(logger)
+                    .withLog((terminator != null) ? terminator.observe(logger) : logger)
                     .withEnvironment("JETVMPROP", project.getTerminationVMProp(termFile))
+                    .onStart(process::started)
                     .execute();
         } finally {
+            if (driver != null) {
+                driver.finish();
+            }
+            if (terminator != null) {
+                terminator.finish();
+            }
+            if (sampler != null) {
+                sampler.finish(new File(project.jetOutputDir(), RESOURCE_SAMPLES_FILE));
+            }
             runStopSupport.taskFinished();
         }
 
@@ -125,7 +213,130 @@ public class RunTask {
             throw new JetTaskFailureException(Txt.s("RunTask.NoReadyBuild.Error"));
         }
 
-        run(appDir);
+        if (benchmarkEndpoint != null) {
+            benchmark(appDir);
+        } else {
+            run(appDir);
+        }
+    }
+
+    /**
+     * Launches the server the configured number of times and writes the startup measurements.
+     */
+    private void benchmark(File appDir) throws JetTaskFailureException, IOException {
+        if ((project.appType() != ApplicationType.TOMCAT) && (project.appType() != ApplicationType.SPRING_BOOT)) {
+            throw new JetTaskFailureException(Txt.s("RunTask.Benchmark.AppTypeNotForBenchmark.Error", project.appType()));
+        }
+        String[] args = Utils.prepend(new File(appDir, project.exeRelativePath(excelsiorJet)).getAbsolutePath(),
+                project.exeRunArgs());
+        File logFile = new File(project.jetOutputDir(), BENCHMARK_LOG_FILE);
+        Files.deleteIfExists(logFile.toPath());
+        logger.info(Txt.s("RunTask.Benchmark.Start.Info", benchmarkEndpoint, benchmarkLaunches, logFile.getAbsolutePath()));
+
+        List<Long> timesToListen = new ArrayList<>();
+        List<Long> timesToFirst200 = new ArrayList<>();
+        List<Long> rssAtReadiness = new ArrayList<>();
+        for (int i = 0; i < benchmarkLaunches; i++) {
+            long[] launch = benchmarkLaunch(args, appDir, logFile);
+            timesToListen.add(launch[0]);
+            timesToFirst200.add(launch[1]);
+            if (launch[2] >= 0) {
+                rssAtReadiness.add(launch[2]);
+            }
+            logger.info(Txt.s("RunTask.Benchmark.Launch.Info", i + 1, launch[0], launch[1],
+                    (launch[2] >= 0) ? launch[2] / 1024 : "n/a"));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("project", project.projectName());
+        result.put("endpoint", benchmarkEndpoint.toString());
+        result.put("launches", benchmarkLaunches);
+        result.put("timeToListenMillis", summary(timesToListen));
+        result.put("timeToFirst200Millis", summary(timesToFirst200));
+        if (!rssAtReadiness.isEmpty()) {
+            result.put("rssAtReadinessKB", summary(rssAtReadiness));
+        }
+        File file = (benchmarkResultFile != null) ? benchmarkResultFile : new File(project.jetOutputDir(), BENCHMARK_RESULT_FILE);
+        Files.write(file.toPath(), Json.toJson(result).getBytes("UTF-8"));
+
+        Map<String, Long> first200 = BenchmarkStatistics.summarize(timesToFirst200);
+        logger.info(Txt.s("RunTask.Benchmark.Summary.Info", first200.get("min"), first200.get("median"),
+                first200.get("p90"), first200.get("p99"), file.getAbsolutePath()));
+    }
+
+    private static Map<String, Object> summary(List<Long> values) {
+        Map<String, Object> summary = new LinkedHashMap<>(BenchmarkStatistics.summarize(values));
+        summary.put("values", values);
+        return summary;
+    }
+
+    /**
+     * Launches the server once, waits for the first successful response and terminates the server.
+     *
+     * @return time to listen and time to the first successful response in milliseconds,
+     *         and the resident set size at that moment in kilobytes or {@code -1} if unknown
+     */
+    private long[] benchmarkLaunch(String[] args, File appDir, File logFile) throws JetTaskFailureException {
+        RunStopSupport runStopSupport = new RunStopSupport(project.jetOutputDir(), false);
+        File termFile = runStopSupport.prepareToRunTask();
+        Process process = null;
+        try {
+            ProcessBuilder pb = new ProcessBuilder(args).directory(appDir)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(logFile));
+            pb.environment().put("JETVMPROP", project.getTerminationVMProp(termFile));
+            int port = (benchmarkEndpoint.getPort() != -1) ? benchmarkEndpoint.getPort() : benchmarkEndpoint.getDefaultPort();
+
+            long start = System.nanoTime();
+            long deadline = start + TimeUnit.SECONDS.toNanos(benchmarkTimeout);
+            process = pb.start();
+            long listen = -1;
+            long first200 = -1;
+            while (first200 < 0) {
+                if (!process.isAlive()) {
+                    throw new JetTaskFailureException(Txt.s("RunTask.Benchmark.Exited.Error", process.exitValue()));
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new JetTaskFailureException(Txt.s("RunTask.Benchmark.Timeout.Error", benchmarkEndpoint, benchmarkTimeout));
+                }
+                if ((listen < 0) && canConnect(benchmarkEndpoint.getHost(), port)) {
+                    listen = System.nanoTime() - start;
+                }
+                if ((listen >= 0) && (WorkloadDriver.send("GET", benchmarkEndpoint) == 200)) {
+                    first200 = System.nanoTime() - start;
+                } else {
+                    Thread.sleep(POLL_INTERVAL);
+                }
+            }
+            int pid = ProcFs.pid(process);
+            long rss = (pid > 0) ? ProcFs.treeRssKb(pid) : -1;
+
+            // stop the server according to the termination policy
+            termFile.createNewFile();
+            if (!process.waitFor(STOP_TIMEOUT, TimeUnit.SECONDS)) {
+                logger.warn(Txt.s("RunTask.Benchmark.NotStopped.Warning", STOP_TIMEOUT));
+            }
+            return new long[]{TimeUnit.NANOSECONDS.toMillis(listen), TimeUnit.NANOSECONDS.toMillis(first200), rss};
+        } catch (IOException e) {
+            throw new JetTaskFailureException(Txt.s("StartupBenchmarkTask.LaunchFailed.Failure", e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JetTaskFailureException(Txt.s("StartupBenchmarkTask.LaunchFailed.Failure", e.toString()));
+        } finally {
+            if ((process != null) && process.isAlive()) {
+                process.destroyForcibly();
+            }
+            runStopSupport.taskFinished();
+        }
+    }
+
+    private static boolean canConnect(String host, int port) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
     }
 
 }
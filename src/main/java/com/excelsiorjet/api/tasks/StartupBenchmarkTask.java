@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.ExcelsiorJet;
+import com.excelsiorjet.api.platform.Host;
+import com.excelsiorjet.api.util.Json;
+import com.excelsiorjet.api.util.Txt;
+import com.excelsiorjet.api.util.Utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.excelsiorjet.api.log.Log.logger;
+
+/**
+ * Task for measuring the startup time of the generated executable.
+ * <p>
+ * The executable is launched {@link #runs(int)} times after {@link #warmUpRuns(int)} warm-up launches,
+ * and either the time until it exits or, if {@link #readyPattern(String)} is set, the time until it prints
+ * the first line matching the pattern is measured. In the latter case, the application is terminated
+ * once the line is printed.
+ * The application may also be measured on the JVM using the Test Run classpath for comparison.
+ * The measurements and their min, median, p90, and p99 values are written to a JSON file.
+ * </p>
+ *
+ * @see RunTask
+ */
+public class StartupBenchmarkTask {
+
+    static final String RESULT_FILE = "startup-benchmark.json";
+    private static final int TERMINATION_TIMEOUT = 10;
+
+    private final ExcelsiorJet excelsiorJet;
+    private final JetProject project;
+
+    private int runs = 10;
+    private int warmUpRuns = 1;
+    private Pattern readyPattern;
+    private boolean compareWithJvm;
+    private int runTimeout = 60;
+    private File resultFile;
+
+    public StartupBenchmarkTask(ExcelsiorJet excelsiorJet, JetProject project) throws JetTaskFailureException {
+        this.excelsiorJet = excelsiorJet;
+        this.project = project;
+    }
+
+    /**
+     * Sets the number of measured launches. Default value is 10.
+     */
+    public StartupBenchmarkTask runs(int runs) {
+        this.runs = runs;
+        return this;
+    }
+
+    /**
+     * Sets the number of launches preceding the measured ones, e.g. to warm up the OS file cache. Default value is 1.
+     */
+    public StartupBenchmarkTask warmUpRuns(int warmUpRuns) {
+        this.warmUpRuns = warmUpRuns;
+        return this;
+    }
+
+    /**
+     * Sets the regular expression that a line of the application output must contain for the application
+     * to be considered started. If not set, the time until the application exits is measured.
+     */
+    public StartupBenchmarkTask readyPattern(String readyPattern) {
+        this.readyPattern = (readyPattern != null) ? Pattern.compile(readyPattern) : null;
+        return this;
+    }
+
+    /**
+     * Sets whether to measure the application on the JVM as well, using the Test Run classpath.
+     */
+    public StartupBenchmarkTask compareWithJvm(boolean compareWithJvm) {
+        this.compareWithJvm = compareWithJvm;
+        return this;
+    }
+
+    /**
+     * Sets the maximum duration of a single launch in seconds. Default value is 60.
+     */
+    public StartupBenchmarkTask runTimeout(int runTimeout) {
+        this.runTimeout = runTimeout;
+        return this;
+    }
+
+    /**
+     * Sets the file to write the results to. By default, {@code startup-benchmark.json}
+     * in {@link JetProject#jetOutputDir} is used.
+     */
+    public StartupBenchmarkTask resultFile(File resultFile) {
+        this.resultFile = resultFile;
+        return this;
+    }
+
+    public void execute() throws JetTaskFailureException, IOException {
+        if (excelsiorJet.isCrossCompilation()) {
+            throw new JetTaskFailureException(Txt.s("RunTask.NoRunForCrossCompilation.Error"));
+        }
+        if ((runs <= 0) || (warmUpRuns < 0) || (runTimeout <= 0)) {
+            throw new JetTaskFailureException(Txt.s("StartupBenchmarkTask.InvalidParameters.Failure"));
+        }
+
+        project.validate(excelsiorJet, true);
+
+        switch (project.appType()) {
+            case WINDOWS_SERVICE:
+            case DYNAMIC_LIBRARY:
+                throw new JetTaskFailureException(Txt.s("RunTask.AppTypeNotForRun.Error", project.appType()));
+        }
+
+        File appDir = project.jetAppDir();
+        File exe = new File(appDir, project.exeRelativePath(excelsiorJet));
+        if (!exe.exists()) {
+            throw new JetTaskFailureException(Txt.s("RunTask.NoReadyBuild.Error"));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("project", project.projectName());
+        result.put("measure", (readyPattern != null) ? "time-to-first-matching-line" : "time-to-exit");
+        if (readyPattern != null) {
+            result.put("readyPattern", readyPattern.pattern());
+        }
+        result.put("runs", runs);
+        result.put("warmUpRuns", warmUpRuns);
+
+        List<String> nativeCommand = Arrays.asList(Utils.prepend(exe.getAbsolutePath(), project.exeRunArgs()));
+        Map<String, Object> nativeResult = measure("native", nativeCommand, appDir, true);
+        result.put("native", nativeResult);
+
+        if (compareWithJvm) {
+            TestRunTask testRunTask = new TestRunTask(excelsiorJet, project);
+            TestRunTask.Setup setup = testRunTask.prepare();
+            Map<String, Object> jvmResult = measure("jvm", jvmCommand(testRunTask, setup), setup.workingDirectory, false);
+            result.put("jvm", jvmResult);
+            long nativeMedian = (Long) nativeResult.get("median");
+            long jvmMedian = (Long) jvmResult.get("median");
+            if (nativeMedian > 0) {
+                result.put("medianSpeedup", Math.round(jvmMedian * 100.0 / nativeMedian) / 100.0);
+            }
+        }
+
+        File file = (resultFile != null) ? resultFile : new File(project.jetOutputDir(), RESULT_FILE);
+        Files.write(file.toPath(), Json.toJson(result).getBytes("UTF-8"));
+        logger.info(Txt.s("StartupBenchmarkTask.Result.Info", file.getAbsolutePath()));
+    }
+
+    private List<String> jvmCommand(TestRunTask testRunTask, TestRunTask.Setup setup) {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin" + File.separator + Host.mangleExeName("java")).getAbsolutePath());
+        command.addAll(testRunTask.additionalVMArgs(setup));
+        if (project.jvmArgs() != null) {
+            command.addAll(Stream.of(project.jvmArgs())
+                    .map(s -> s.replace("$(Root)", setup.buildDir.getAbsolutePath()))
+                    .collect(Collectors.toList()));
+        }
+        command.addAll(Arrays.asList("-cp", setup.classpath, project.mainClass()));
+        if (project.runArgs() != null) {
+            command.addAll(Arrays.asList(project.runArgs()));
+        }
+        return command;
+    }
+
+    private Map<String, Object> measure(String name, List<String> command, File workingDirectory, boolean isNative)
+            throws JetTaskFailureException {
+        logger.info(Txt.s("StartupBenchmarkTask.Start.Info", name, command.stream()
+                .map(Utils::quoteCmdLineArgument)
+                .collect(Collectors.joining(" "))));
+        for (int i = 0; i < warmUpRuns; i++) {
+            launch(command, workingDirectory, isNative);
+        }
+        List<Long> times = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            times.add(launch(command, workingDirectory, isNative));
+        }
+        Map<String, Long> summary = BenchmarkStatistics.summarize(times);
+        logger.info(Txt.s("StartupBenchmarkTask.Summary.Info", name,
+                summary.get("min"), summary.get("median"), summary.get("p90"), summary.get("p99")));
+        Map<String, Object> result = new LinkedHashMap<>(summary);
+        result.put("timesMillis", times);
+        return result;
+    }
+
+    /**
+     * Launches the application once.
+     *
+     * @return startup time in milliseconds
+     */
+    private long launch(List<String> command, File workingDirectory, boolean isNative) throws JetTaskFailureException {
+        RunStopSupport runStopSupport = new RunStopSupport(project.jetOutputDir(), false);
+        File termFile = runStopSupport.prepareToRunTask();
+        try {
+            ProcessBuilder pb = new ProcessBuilder(command).directory(workingDirectory).redirectErrorStream(true);
+            if (isNative) {
+                pb.environment().put("JETVMPROP", project.getTerminationVMProp(termFile));
+            }
+            AtomicLong readyTime = new AtomicLong(-1);
+            long start = System.nanoTime();
+            Process process = pb.start();
+            Thread reader = new Thread(() -> {
+                try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                    String line;
+                    while ((line = out.readLine()) != null) {
+                        if ((readyPattern != null) && (readyTime.get() < 0) && readyPattern.matcher(line).find()
+                                && readyTime.compareAndSet(-1, System.nanoTime())) {
+                            // the application has started, terminate it
+                            if (isNative) {
+                                termFile.createNewFile();
+                            } else {
+                                process.destroy();
+                            }
+                        }
+                    }
+                } catch (IOException ignore) {
+                }
+            });
+            reader.setDaemon(true);
+            reader.start();
+
+            boolean exited = process.waitFor(runTimeout + ((readyPattern != null) ? TERMINATION_TIMEOUT : 0), TimeUnit.SECONDS);
+            long end = System.nanoTime();
+            if (!exited) {
+                process.destroyForcibly();
+            }
+            // the output may still be in flight after the process exits, wait for the reader to drain it
+            reader.join(TimeUnit.SECONDS.toMillis(TERMINATION_TIMEOUT));
+            long time;
+            if (readyPattern != null) {
+                if (readyTime.get() < 0) {
+                    throw new JetTaskFailureException(Txt.s("StartupBenchmarkTask.NoReadyLine.Failure", readyPattern.pattern()));
+                }
+                time = readyTime.get() - start;
+            } else {
+                if (!exited) {
+                    throw new JetTaskFailureException(Txt.s("StartupBenchmarkTask.Timeout.Failure", runTimeout));
+                }
+                if (process.exitValue() != 0) {
+                    logger.warn(Txt.s("StartupBenchmarkTask.ExitCode.Warning", process.exitValue()));
+                }
+                time = end - start;
+            }
+            return TimeUnit.NANOSECONDS.toMillis(time);
+        } catch (IOException e) {
+            throw new JetTaskFailureException(Txt.s("StartupBenchmarkTask.LaunchFailed.Failure", e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JetTaskFailureException(Txt.s("StartupBenchmarkTask.LaunchFailed.Failure", e.toString()));
+        } finally {
+            runStopSupport.taskFinished();
+        }
+    }
+}
@@ -24,6 +24,7 @@ package com.excelsiorjet.api.tasks;
 import com.excelsiorjet.api.ExcelsiorJet;
 import com.excelsiorjet.api.cmd.CmdLineToolException;
 import com.excelsiorjet.api.tasks.config.compiler.ExecProfilesConfig;
+import com.excelsiorjet.api.tasks.config.compiler.TestRunScenario;
 import com.excelsiorjet.api.tasks.config.packagefile.PackageFile;
 import com.excelsiorjet.api.tasks.config.ApplicationType;
 import com.excelsiorjet.api.util.Txt;
@@ -35,8 +36,11 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.jar.JarFile;
-import java.util.jar.Manifest;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -75,6 +79,8 @@ public class TestRunTask {
 
     private static final String BOOTSTRAP_JAR = "bootstrap.jar";
     private static final String TOMCAT_JULI_JAR = "tomcat-juli.jar";
+    private static final String SCENARIOS_DIR = "testrun";
+    private static final String RESOURCE_SAMPLES_FILE = "resource-samples-testrun.json";
 
     private final ExcelsiorJet excelsiorJet;
     private final JetProject project;
@@ -90,9 +96,9 @@ public class TestRunTask {
             throw new JetTaskFailureException(Txt.s("TestRunTask.Tomcat.NoBootstrapJar.Failure", tomcatBin.getAbsolutePath()));
         }
 
-        Manifest bootManifest;
+        ClasspathIndex.Archive bootstrapJar;
         try {
-            bootManifest = new JarFile(f).getManifest();
+            bootstrapJar = project.classpathIndex().get(f);
         } catch (IOException e) {
             throw new IOException(Txt.s("TestRunTask.Tomcat.FailedToReadBootstrapJar.Failure", tomcatBin.getAbsolutePath(), e.getMessage()), e);
         }
@@ -100,7 +106,7 @@ public class TestRunTask {
         ArrayList<String> classPath = new ArrayList<>();
         classPath.add(BOOTSTRAP_JAR);
 
-        String bootstrapJarCP = bootManifest.getMainAttributes().getValue("CLASS-PATH");
+        String bootstrapJarCP = bootstrapJar.manifestAttribute("Class-Path");
         if (bootstrapJarCP != null) {
             classPath.addAll(asList(bootstrapJarCP.split("\\s+")));
         }
@@ -114,7 +120,11 @@ public class TestRunTask {
     }
 
     public List<String> getTomcatVMArgs() {
-        String tomcatDir = project.tomcatInBuildDir().getAbsolutePath();
+        return getTomcatVMArgs(project.tomcatInBuildDir());
+    }
+
+    private List<String> getTomcatVMArgs(File tomcatInRunDir) {
+        String tomcatDir = tomcatInRunDir.getAbsolutePath();
         return asList(
                 "-Djet.classloader.id.provider=com/excelsior/jet/runtime/classload/customclassloaders/tomcat/TomcatCLIDProvider",
                 "-Dcatalina.base=" + tomcatDir,
@@ -125,20 +135,30 @@ public class TestRunTask {
         );
     }
 
-    public void execute() throws JetTaskFailureException, IOException, CmdLineToolException {
-        if (!excelsiorJet.isTestRunSupported()) {
-            throw new JetTaskFailureException(Txt.s("TestRunTask.NoTestRunForCrossCompilation.Error"));
-        }
-        project.validate(excelsiorJet, false);
-        if ((project.appType() == ApplicationType.DYNAMIC_LIBRARY) && Utils.isEmpty(project.mainClass())) {
-            throw new JetTaskFailureException(Txt.s("TestRunTask.ForInvocationDLL.Error"));
+    /**
+     * Directories and classpath of the application run on the JVM.
+     */
+    static class Setup {
+        final File buildDir;
+        final File workingDirectory;
+        final String classpath;
+
+        Setup(File buildDir, File workingDirectory, String classpath) {
+            this.buildDir = buildDir;
+            this.workingDirectory = workingDirectory;
+            this.classpath = classpath;
         }
+    }
 
+    /**
+     * Populates the build directory with the application to run it on the JVM.
+     * The project should be already validated.
+     */
+    Setup prepare() throws JetTaskFailureException, IOException {
         // creating output dirs
         File buildDir = project.createBuildDir();
 
         String classpath;
-        List<String> additionalVMArgs;
         File workingDirectory;
         switch (project.appType()) {
             case PLAIN:
@@ -170,30 +190,60 @@ public class TestRunTask {
 
                 classpath = String.join(File.pathSeparator,
                         dependencies.stream().map(d -> d.path.toString()).collect(Collectors.toList()));
-                additionalVMArgs = Collections.emptyList();
                 workingDirectory = buildDir;
                 break;
             case TOMCAT:
                 project.copyTomcatAndWar();
                 workingDirectory = new File(project.tomcatInBuildDir(), "bin");
                 classpath = getTomcatClassPath(workingDirectory);
-                additionalVMArgs = getTomcatVMArgs();
                 break;
             case SPRING_BOOT:
                 project.copySpringBootArtifact();
                 workingDirectory = buildDir;
                 classpath = project.mainArtifact().getName();
-                additionalVMArgs = Collections.singletonList("-Djet.classloader.id.provider=com/excelsior/jet/runtime/classload/customclassloaders/springboot/SpringBootCLIDProvider");
                 break;
             default:
                 throw new AssertionError("Unknown app type");
         }
 
+        return new Setup(buildDir, workingDirectory, classpath);
+    }
+
+    /**
+     * @return JVM arguments required to run the application of the project type, besides the classpath
+     */
+    List<String> additionalVMArgs(Setup setup) {
+        return additionalVMArgs(setup.buildDir, setup.buildDir);
+    }
+
+    public void execute() throws JetTaskFailureException, IOException, CmdLineToolException {
+        if (!excelsiorJet.isTestRunSupported()) {
+            throw new JetTaskFailureException(Txt.s("TestRunTask.NoTestRunForCrossCompilation.Error"));
+        }
+        project.validate(excelsiorJet, false);
+        if ((project.appType() == ApplicationType.DYNAMIC_LIBRARY) && Utils.isEmpty(project.mainClass())) {
+            throw new JetTaskFailureException(Txt.s("TestRunTask.ForInvocationDLL.Error"));
+        }
+
+        Setup setup = prepare();
+        File buildDir = setup.buildDir;
+        File workingDirectory = setup.workingDirectory;
+        String classpath = setup.classpath;
+
         Utils.mkdir(project.execProfiles().outputDir);
 
+        if (!project.execProfiles().testRunScenarios.isEmpty()) {
+            runScenarios(buildDir, workingDirectory, classpath);
+            return;
+        }
+
         RunStopSupport runStopSupport = new RunStopSupport(project.jetOutputDir(), false);
 
-        List<String> args = xjavaArgs(buildDir, classpath, additionalVMArgs, runStopSupport);
+        ExecProfilesConfig execProfiles = project.execProfiles();
+        File termFile = runStopSupport.prepareToRunTask();
+        List<String> args = xjavaArgs(buildDir, classpath, additionalVMArgs(buildDir, buildDir),
+                execProfiles.getUsg(), execProfiles.getStartup(), termFile,
+                project.jvmArgs(), project.runArgs());
         String cmdLine = args.stream()
                 .map(Utils::quoteCmdLineArgument)
                 .collect(Collectors.joining(" "));
@@ -215,14 +265,28 @@ public class TestRunTask {
             t.setDaemon(true);
             t.start();
         }
+        LaunchedProcess process = new LaunchedProcess();
+        WorkloadDriver driver = WorkloadDriver.startIfDefined(project.execProfiles().workload, termFile);
+        AdaptiveTerminator terminator = AdaptiveTerminator.startIfDefined(project.execProfiles(), termFile, process);
 
         // Tomcat outputs to std error, so to not confuse users,
         // we  redirect its output to std out in test run
         boolean errToOut = project.appType() != ApplicationType.TOMCAT;
+        ResourceSampler sampler = ResourceSampler.startIfEnabled(project, process);
         int errCode;
         try {
-            errCode = excelsiorJet.testRun(workingDirectory, logger, errToOut, args.toArray(new String[args.size()]));
+            errCode = excelsiorJet.testRun(workingDirectory, (terminator != null) ? terminator.observe(logger) : logger,
+                    errToOut, process::started, args.toArray(new String[args.size()]));
         } finally {
+            if (driver != null) {
+                driver.finish();
+            }
+            if (terminator != null) {
+                terminator.finish();
+            }
+            if (sampler != null) {
+                sampler.finish(new File(project.jetOutputDir(), RESOURCE_SAMPLES_FILE));
+            }
             runStopSupport.taskFinished();
         }
 
@@ -234,28 +298,165 @@ public class TestRunTask {
         }
     }
 
-    private List<String> xjavaArgs(File buildDir, String classpath, List<String> additionalVMArgs, RunStopSupport runStopSupport) throws JetTaskFailureException {
-        List<String> args = new ArrayList<>();
+    /**
+     * Returns the given file or directory of the build directory relocated to a copy of the build directory.
+     */
+    private static File relocate(File buildDir, File runDir, File f) {
+        return runDir.toPath().resolve(buildDir.toPath().toAbsolutePath().relativize(f.toPath().toAbsolutePath())).toFile();
+    }
+
+    private List<String> additionalVMArgs(File buildDir, File runDir) {
+        switch (project.appType()) {
+            case TOMCAT:
+                return getTomcatVMArgs(relocate(buildDir, runDir, project.tomcatInBuildDir()));
+            case SPRING_BOOT:
+                return Collections.singletonList("-Djet.classloader.id.provider=com/excelsior/jet/runtime/classload/customclassloaders/springboot/SpringBootCLIDProvider");
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Runs the configured Test Run scenarios concurrently. Each scenario runs in its own copy of the build
+     * directory, which consists of hard links to the build directory files where possible, registers in its own
+     * termination slot, and writes its own profiles. Subtrees that the application may rewrite in place
+     * are copied rather than linked, so that the build directory stays intact. Once all scenarios complete, the startup profile
+     * of the first scenario that produced one becomes the startup profile of the application.
+     */
+    private void runScenarios(File buildDir, File workingDirectory, String classpath) throws JetTaskFailureException, IOException {
+        ExecProfilesConfig execProfiles = project.execProfiles();
+        List<TestRunScenario> scenarios = execProfiles.testRunScenarios;
+        File scenariosDir = new File(project.jetOutputDir(), SCENARIOS_DIR);
+        List<Path> writableDirs = writableDirs().stream().map(File::toPath).collect(Collectors.toList());
+        ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        });
+        List<Callable<String>> runs = new ArrayList<>();
+        for (TestRunScenario scenario : scenarios) {
+            File runDir = new File(scenariosDir, scenario.name);
+            if (runDir.exists()) {
+                Utils.cleanDirectoryInBackground(runDir);
+            }
+            Utils.linkOrCopy(buildDir.toPath(), runDir.toPath(), writableDirs);
+            runs.add(() -> runScenario(scenario, buildDir, runDir, relocate(buildDir, runDir, workingDirectory), classpath,
+                    timeouts));
+        }
+
+        List<String> errors;
+        try {
+            errors = ResourceAwareScheduler.run(runs, runs.size());
+        } finally {
+            timeouts.shutdownNow();
+        }
+
+        for (TestRunScenario scenario : scenarios) {
+            File startup = execProfiles.getStartup(scenario);
+            if (startup.exists()) {
+                Utils.copyFile(startup.toPath(), execProfiles.getStartup().toPath());
+                break;
+            }
+        }
+
+        for (int i = 0; i < scenarios.size(); i++) {
+            if (errors.get(i) != null) {
+                throw new JetTaskFailureException(Txt.s("TestRunTask.ScenarioFailed.Error", scenarios.get(i).name, errors.get(i)));
+            }
+        }
+    }
+
+    /**
+     * @return directories of the build directory that the application may rewrite at run time
+     */
+    List<File> writableDirs() {
+        if (project.appType() != ApplicationType.TOMCAT) {
+            return Collections.emptyList();
+        }
+        File tomcatDir = project.tomcatInBuildDir();
+        return Stream.of("conf", "logs", "temp", "work")
+                .map(dir -> new File(tomcatDir, dir))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return {@code null} if the scenario has run, or the failure message otherwise
+     */
+    private String runScenario(TestRunScenario scenario, File buildDir, File runDir, File workingDirectory, String classpath,
+                               ScheduledExecutorService timeouts) {
         ExecProfilesConfig execProfiles = project.execProfiles();
+        RunStopSupport runStopSupport = new RunStopSupport(project.jetOutputDir(), false);
+        try {
+            File termFile = runStopSupport.prepareToRunTask();
+            try {
+                String[] jvmArgs = Stream.concat(Stream.of(project.jvmArgs()), Stream.of(scenario.jvmArgs))
+                        .toArray(String[]::new);
+                List<String> args = xjavaArgs(runDir, classpath, additionalVMArgs(buildDir, runDir),
+                        execProfiles.getUsg(scenario), execProfiles.getStartup(scenario), termFile,
+                        jvmArgs, (scenario.runArgs != null) ? scenario.runArgs : project.runArgs());
+                String cmdLine = args.stream()
+                        .map(Utils::quoteCmdLineArgument)
+                        .collect(Collectors.joining(" "));
+                logger.info(Txt.s("TestRunTask.ScenarioStart.Info", scenario.name, cmdLine));
+
+                ScheduledFuture<?> timeout = null;
+                if (execProfiles.testRunTimeout != 0) {
+                    // the scenario is stopped via its own termination file, as other scenarios run at the same time
+                    timeout = timeouts.schedule(() -> {
+                        try {
+                            termFile.createNewFile();
+                        } catch (IOException ignore) {
+                        }
+                    }, execProfiles.testRunTimeout, TimeUnit.SECONDS);
+                }
+
+                boolean errToOut = project.appType() != ApplicationType.TOMCAT;
+                int errCode;
+                try {
+                    errCode = excelsiorJet.testRun(workingDirectory, logger, errToOut, args.toArray(new String[args.size()]));
+                } finally {
+                    if (timeout != null) {
+                        timeout.cancel(false);
+                    }
+                }
+
+                String finishText = Txt.s("TestRunTask.ScenarioFinish.Info", scenario.name, errCode);
+                if (errCode != 0) {
+                    logger.warn(finishText);
+                } else {
+                    logger.info(finishText);
+                }
+                return null;
+            } finally {
+                runStopSupport.taskFinished();
+            }
+        } catch (JetTaskFailureException | CmdLineToolException e) {
+            return e.getMessage();
+        }
+    }
+
+    private List<String> xjavaArgs(File runDir, String classpath, List<String> additionalVMArgs,
+                                   File usg, File startup, File termFile, String[] jvmArgs, String[] runArgs) {
+        List<String> args = new ArrayList<>();
         if (excelsiorJet.isStartupProfileGenerationSupported()) {
-            args.add("-Djet.jit.profile.startup=" + execProfiles.getStartup().getAbsolutePath());
+            args.add("-Djet.jit.profile.startup=" + startup.getAbsolutePath());
         }
         if (excelsiorJet.isUsageListGenerationSupported()) {
-            args.add("-Djet.usage.list=" + execProfiles.getUsg().getAbsolutePath());
+            args.add("-Djet.usage.list=" + usg.getAbsolutePath());
         }
 
-        args.add(project.getTerminationVMProp(runStopSupport.prepareToRunTask()));
+        args.add(project.getTerminationVMProp(termFile));
 
         args.addAll(additionalVMArgs);
 
-        //add jvm args substituting $(Root) occurences with buildDir
-        args.addAll(Stream.of(project.jvmArgs())
-                .map(s -> s.replace("$(Root)", buildDir.getAbsolutePath()))
+        //add jvm args substituting $(Root) occurences with runDir
+        args.addAll(Stream.of(jvmArgs)
+                .map(s -> s.replace("$(Root)", runDir.getAbsolutePath()))
                 .collect(Collectors.toList())
         );
 
         args.addAll(asList("-cp", classpath, project.mainClass()));
-        args.addAll(asList(project.runArgs()));
+        args.addAll(asList(runArgs));
         return args;
     }
 }
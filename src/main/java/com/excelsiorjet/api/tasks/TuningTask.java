@@ -0,0 +1,475 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.ExcelsiorJet;
+import com.excelsiorjet.api.tasks.config.BuildVariant;
+import com.excelsiorjet.api.tasks.config.TuningGrid;
+import com.excelsiorjet.api.util.Json;
+import com.excelsiorjet.api.util.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Task for finding the optimization settings that suit the application best.
+ * <p>
+ * Every combination of the settings listed in the {@link TuningGrid} is built with {@link VariantBuildTask}
+ * and then benchmarked, one variant at a time, either with a user-supplied benchmark command
+ * or with {@link StartupBenchmarkTask}.
+ * The variants that are not worse than any other variant in all of performance, executable size and build time
+ * (the Pareto front) are marked in the resulting table, which is also written to {@code tuning-report.json}
+ * in {@link JetProject#jetOutputDir}.
+ * The settings of the best performing variant may also be written to a file as a Maven or Gradle
+ * configuration snippet.
+ * </p>
+ *
+ * @see TuningGrid
+ */
+public class TuningTask {
+
+    static final String REPORT_FILE = "tuning-report.json";
+    private static final String BENCHMARK_LOG = "benchmark.log";
+
+    private final ExcelsiorJet excelsiorJet;
+    private final JetProject project;
+    private final TuningGrid grid;
+
+    private List<String> benchmarkCommand;
+    private int benchmarkTimeout = 600;
+    private int startupRuns = 5;
+    private String readyPattern;
+    private int maxVariants = 32;
+    private int maxParallelBuilds;
+    private File snippetFile;
+    private String snippetFormat = "maven";
+
+    public TuningTask(ExcelsiorJet excelsiorJet, JetProject project, TuningGrid grid) throws JetTaskFailureException {
+        this.excelsiorJet = excelsiorJet;
+        this.project = project;
+        this.grid = grid;
+    }
+
+    /**
+     * Sets the command that benchmarks a built variant. The {@code $(Exe)} and {@code $(AppDir)} placeholders
+     * in the command are replaced with the executable and the application directory of the variant.
+     * The command is run in the application directory and must print its score as the last line of its output,
+     * higher scores being better (e.g. operations per second).
+     * If not set, the startup time of the variants is measured with {@link StartupBenchmarkTask}.
+     */
+    public TuningTask benchmarkCommand(List<String> benchmarkCommand) {
+        this.benchmarkCommand = benchmarkCommand;
+        return this;
+    }
+
+    /**
+     * Sets the maximum duration of the benchmark command in seconds. Default value is 600.
+     */
+    public TuningTask benchmarkTimeout(int benchmarkTimeout) {
+        this.benchmarkTimeout = benchmarkTimeout;
+        return this;
+    }
+
+    /**
+     * Sets the number of measured launches of each variant if the startup time is measured. Default value is 5.
+     */
+    public TuningTask startupRuns(int startupRuns) {
+        this.startupRuns = startupRuns;
+        return this;
+    }
+
+    /**
+     * Sets the regular expression that a line of the application output must contain for the application
+     * to be considered started, if the startup time is measured.
+     *
+     * @see StartupBenchmarkTask#readyPattern(String)
+     */
+    public TuningTask readyPattern(String readyPattern) {
+        this.readyPattern = readyPattern;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of variants the grid may produce, as each of them takes a full build.
+     * Default value is 32.
+     */
+    public TuningTask maxVariants(int maxVariants) {
+        this.maxVariants = maxVariants;
+        return this;
+    }
+
+    /**
+     * Sets the upper bound for the number of concurrent variant builds.
+     *
+     * @see VariantBuildTask#maxParallelBuilds(int)
+     */
+    public TuningTask maxParallelBuilds(int maxParallelBuilds) {
+        this.maxParallelBuilds = maxParallelBuilds;
+        return this;
+    }
+
+    /**
+     * Sets the file to write the settings of the best performing variant to,
+     * in the given format: {@code maven} or {@code gradle}.
+     */
+    public TuningTask snippet(File snippetFile, String snippetFormat) {
+        this.snippetFile = snippetFile;
+        this.snippetFormat = snippetFormat;
+        return this;
+    }
+
+    /**
+     * Outcome of building and benchmarking a single variant.
+     */
+    static class Candidate {
+        final BuildVariant variant;
+        long buildTimeMillis;
+        long executableSize = -1;
+        double score = Double.NaN;
+        String error;
+        boolean pareto;
+
+        Candidate(BuildVariant variant) {
+            this.variant = variant;
+        }
+
+        boolean succeeded() {
+            return error == null;
+        }
+    }
+
+    /**
+     * Builds and benchmarks all variants of the grid.
+     *
+     * @return the best performing variant
+     * @throws JetTaskFailureException if the grid is misconfigured or no variant has been built and benchmarked
+     */
+    public BuildVariant execute() throws JetTaskFailureException, IOException {
+        if (excelsiorJet.isCrossCompilation()) {
+            throw new JetTaskFailureException(s("RunTask.NoRunForCrossCompilation.Error"));
+        }
+        if ((snippetFile != null) && !"maven".equals(snippetFormat) && !"gradle".equals(snippetFormat)) {
+            throw new JetTaskFailureException(s("TuningTask.UnknownSnippetFormat.Failure", snippetFormat));
+        }
+        List<BuildVariant> variants = variants(grid);
+        if (variants.size() > maxVariants) {
+            throw new JetTaskFailureException(s("TuningTask.TooManyVariants.Failure", variants.size(), maxVariants));
+        }
+        boolean throughput = (benchmarkCommand != null) && !benchmarkCommand.isEmpty();
+
+        VariantBuildTask variantBuildTask = new VariantBuildTask(excelsiorJet, project, variants)
+                .maxParallelBuilds(maxParallelBuilds);
+        List<VariantBuildResult> results = variantBuildTask.buildAll();
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (int i = 0; i < variants.size(); i++) {
+            Candidate candidate = new Candidate(variants.get(i));
+            VariantBuildResult result = results.get(i);
+            candidate.buildTimeMillis = result.buildTimeMillis;
+            candidate.executableSize = result.executableSize;
+            candidate.error = result.error;
+            if (candidate.succeeded()) {
+                // benchmark variants one at a time so that they do not disturb each other
+                try {
+                    JetProject variantProject = variantBuildTask.variantProject(candidate.variant);
+                    candidate.score = throughput ? runBenchmarkCommand(variantProject) : measureStartup(variantProject);
+                } catch (JetTaskFailureException e) {
+                    candidate.error = e.getMessage();
+                    logger.error(s("TuningTask.BenchmarkFailed.Error", candidate.variant.name, e.getMessage()));
+                }
+            }
+            candidates.add(candidate);
+        }
+
+        markParetoFront(candidates, throughput);
+        Candidate best = best(candidates, throughput);
+        logReport(candidates, throughput, best);
+        writeReport(candidates, throughput, best);
+        if (best == null) {
+            throw new JetTaskFailureException(s("TuningTask.NoSuccessfulVariants.Failure"));
+        }
+        if (snippetFile != null) {
+            Files.write(snippetFile.toPath(), snippet(best.variant, "gradle".equals(snippetFormat)).getBytes("UTF-8"));
+            logger.info(s("TuningTask.Snippet.Info", snippetFile.getAbsolutePath()));
+        }
+        return best.variant;
+    }
+
+    /**
+     * Expands the grid into the list of variants, one for every combination of the settings.
+     */
+    static List<BuildVariant> variants(TuningGrid grid) {
+        List<BuildVariant> variants = Collections.singletonList(new BuildVariant());
+        variants = expand(variants, grid.optimizationPresets, (v, preset) -> v.optimizationPreset = preset);
+        variants = expand(variants, grid.inlineExpansions, (v, inline) -> v.inlineExpansion = inline);
+        variants = expand(variants, grid.stackAllocation, (v, sa) -> v.stackAllocation = sa);
+        variants = expand(variants, grid.globalOptimizer, (v, go) -> v.globalOptimizer = go);
+        variants = expand(variants, grid.flavors, (v, flavor) -> v.flavor = flavor);
+        for (BuildVariant variant : variants) {
+            variant.name = variantName(variant);
+        }
+        return variants;
+    }
+
+    private static <T> List<BuildVariant> expand(List<BuildVariant> variants, List<T> values,
+                                                 BiConsumer<BuildVariant, T> setter) {
+        if ((values == null) || values.isEmpty()) {
+            return variants;
+        }
+        List<BuildVariant> expanded = new ArrayList<>();
+        for (BuildVariant variant : variants) {
+            for (T value : values) {
+                BuildVariant copy = copy(variant);
+                setter.accept(copy, value);
+                expanded.add(copy);
+            }
+        }
+        return expanded;
+    }
+
+    private static BuildVariant copy(BuildVariant variant) {
+        BuildVariant copy = new BuildVariant();
+        copy.optimizationPreset = variant.optimizationPreset;
+        copy.inlineExpansion = variant.inlineExpansion;
+        copy.stackAllocation = variant.stackAllocation;
+        copy.globalOptimizer = variant.globalOptimizer;
+        copy.flavor = variant.flavor;
+        return copy;
+    }
+
+    private static String variantName(BuildVariant variant) {
+        List<String> parts = new ArrayList<>();
+        if (variant.optimizationPreset != null) {
+            parts.add(variant.optimizationPreset);
+        }
+        if (variant.inlineExpansion != null) {
+            parts.add("inline-" + variant.inlineExpansion);
+        }
+        if (variant.stackAllocation != null) {
+            parts.add(variant.stackAllocation ? "sa" : "no-sa");
+        }
+        if (variant.globalOptimizer != null) {
+            parts.add(variant.globalOptimizer ? "go" : "no-go");
+        }
+        if (variant.flavor != null) {
+            parts.add(variant.flavor);
+        }
+        return parts.isEmpty() ? "base" : String.join("_", parts);
+    }
+
+    /**
+     * Marks the successful candidates that are not dominated by any other candidate
+     * in score, executable size and build time.
+     */
+    static void markParetoFront(List<Candidate> candidates, boolean higherScoreIsBetter) {
+        for (Candidate candidate : candidates) {
+            candidate.pareto = candidate.succeeded() && candidates.stream()
+                    .noneMatch(other -> (other != candidate) && other.succeeded() &&
+                            dominates(other, candidate, higherScoreIsBetter));
+        }
+    }
+
+    private static boolean dominates(Candidate a, Candidate b, boolean higherScoreIsBetter) {
+        int score = higherScoreIsBetter ? Double.compare(a.score, b.score) : Double.compare(b.score, a.score);
+        int size = Long.compare(b.executableSize, a.executableSize);
+        int buildTime = Long.compare(b.buildTimeMillis, a.buildTimeMillis);
+        return (score >= 0) && (size >= 0) && (buildTime >= 0) && ((score > 0) || (size > 0) || (buildTime > 0));
+    }
+
+    /**
+     * Returns the successful candidate with the best score, preferring the smaller executable on ties.
+     */
+    static Candidate best(List<Candidate> candidates, boolean higherScoreIsBetter) {
+        Candidate best = null;
+        for (Candidate candidate : candidates) {
+            if (!candidate.succeeded()) {
+                continue;
+            }
+            if (best == null) {
+                best = candidate;
+                continue;
+            }
+            int score = higherScoreIsBetter ? Double.compare(candidate.score, best.score) :
+                    Double.compare(best.score, candidate.score);
+            if ((score > 0) || ((score == 0) && (candidate.executableSize < best.executableSize))) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private double measureStartup(JetProject variantProject) throws JetTaskFailureException, IOException {
+        File resultFile = new File(variantProject.jetOutputDir(), StartupBenchmarkTask.RESULT_FILE);
+        new StartupBenchmarkTask(excelsiorJet, variantProject)
+                .runs(startupRuns)
+                .readyPattern(readyPattern)
+                .resultFile(resultFile)
+                .execute();
+        Map<?, ?> result = (Map<?, ?>) Json.parse(new String(Files.readAllBytes(resultFile.toPath()), "UTF-8"));
+        return ((Number) ((Map<?, ?>) result.get("native")).get("median")).doubleValue();
+    }
+
+    private double runBenchmarkCommand(JetProject variantProject) throws JetTaskFailureException {
+        File appDir = variantProject.jetAppDir();
+        File exe = new File(appDir, variantProject.exeRelativePath(excelsiorJet));
+        List<String> command = benchmarkCommand.stream()
+                .map(arg -> arg.replace("$(Exe)", exe.getAbsolutePath()).replace("$(AppDir)", appDir.getAbsolutePath()))
+                .collect(Collectors.toList());
+        File log = new File(variantProject.jetOutputDir(), BENCHMARK_LOG);
+        logger.info(s("TuningTask.Benchmark.Info", variantProject.jetOutputDir().getName(), command.stream()
+                .map(Utils::quoteCmdLineArgument)
+                .collect(Collectors.joining(" "))));
+        try {
+            Process process = new ProcessBuilder(command)
+                    .directory(appDir)
+                    .redirectErrorStream(true)
+                    .redirectOutput(log)
+                    .start();
+            if (!process.waitFor(benchmarkTimeout, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new JetTaskFailureException(s("TuningTask.BenchmarkTimeout.Failure", benchmarkTimeout));
+            }
+            if (process.exitValue() != 0) {
+                throw new JetTaskFailureException(s("TuningTask.BenchmarkExitCode.Failure", process.exitValue(),
+                        log.getAbsolutePath()));
+            }
+            return parseScore(Files.readAllLines(log.toPath()), log);
+        } catch (IOException e) {
+            throw new JetTaskFailureException(s("TuningTask.BenchmarkLaunchFailed.Failure", e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JetTaskFailureException(s("TuningTask.BenchmarkLaunchFailed.Failure", e.toString()));
+        }
+    }
+
+    static double parseScore(List<String> output, File log) throws JetTaskFailureException {
+        for (int i = output.size() - 1; i >= 0; i--) {
+            String line = output.get(i).trim();
+            if (!line.isEmpty()) {
+                try {
+                    return Double.parseDouble(line);
+                } catch (NumberFormatException e) {
+                    break;
+                }
+            }
+        }
+        throw new JetTaskFailureException(s("TuningTask.NoScore.Failure", log.getAbsolutePath()));
+    }
+
+    /**
+     * Returns the settings of the variant as a configuration snippet for the Maven or Gradle plugin.
+     */
+    static String snippet(BuildVariant variant, boolean gradle) {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("optimizationPreset", variant.optimizationPreset);
+        settings.put("inlineExpansion", variant.inlineExpansion);
+        settings.put("stackAllocation", variant.stackAllocation);
+        settings.put("globalOptimizer", variant.globalOptimizer);
+        StringBuilder snippet = new StringBuilder();
+        settings.forEach((name, value) -> {
+            if (value == null) {
+                return;
+            }
+            if (gradle) {
+                snippet.append(name).append(" = ").append(value instanceof String ? "'" + value + "'" : value);
+            } else {
+                snippet.append('<').append(name).append('>').append(value).append("</").append(name).append('>');
+            }
+            snippet.append('\n');
+        });
+        if (variant.flavor != null) {
+            if (gradle) {
+                snippet.append("runtime {\n    flavor = '").append(variant.flavor).append("'\n}\n");
+            } else {
+                snippet.append("<runtime>\n    <flavor>").append(variant.flavor).append("</flavor>\n</runtime>\n");
+            }
+        }
+        return snippet.toString();
+    }
+
+    private static String formatScore(double score, boolean throughput) {
+        return throughput ? String.format(Locale.ROOT, "%.2f", score) : String.valueOf(Math.round(score));
+    }
+
+    private void logReport(List<Candidate> candidates, boolean throughput, Candidate best) {
+        logger.info(s("TuningTask.Report.Info"));
+        for (Candidate candidate : candidates) {
+            String seconds = String.format(Locale.ROOT, "%.1f", candidate.buildTimeMillis / 1000.0);
+            String mark = (candidate == best) ? "**" : candidate.pareto ? "* " : "  ";
+            if (candidate.succeeded()) {
+                logger.info(s(throughput ? "TuningTask.ThroughputRow.Info" : "TuningTask.StartupRow.Info", mark,
+                        candidate.variant.name, formatScore(candidate.score, throughput),
+                        String.valueOf(candidate.executableSize), seconds));
+            } else {
+                logger.info(s("TuningTask.FailedRow.Info", mark, candidate.variant.name, candidate.error));
+            }
+        }
+        if (best != null) {
+            logger.info(s("TuningTask.Best.Info", best.variant.name));
+        }
+    }
+
+    private void writeReport(List<Candidate> candidates, boolean throughput, Candidate best) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("project", project.projectName());
+        report.put("score", throughput ? "benchmark-score-higher-is-better" : "startup-median-millis-lower-is-better");
+        List<Object> rows = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("name", candidate.variant.name);
+            row.put("optimizationPreset", candidate.variant.optimizationPreset);
+            row.put("inlineExpansion", candidate.variant.inlineExpansion);
+            row.put("stackAllocation", candidate.variant.stackAllocation);
+            row.put("globalOptimizer", candidate.variant.globalOptimizer);
+            row.put("flavor", candidate.variant.flavor);
+            row.put("buildTimeMillis", candidate.buildTimeMillis);
+            if (candidate.succeeded()) {
+                row.put("score", candidate.score);
+                row.put("executableSize", candidate.executableSize);
+                row.put("pareto", candidate.pareto);
+            } else {
+                row.put("error", candidate.error);
+            }
+            rows.add(row);
+        }
+        report.put("variants", rows);
+        if (best != null) {
+            report.put("best", best.variant.name);
+        }
+        File file = new File(project.jetOutputDir(), REPORT_FILE);
+        Files.write(file.toPath(), Json.toJson(report).getBytes("UTF-8"));
+        logger.info(s("TuningTask.ReportFile.Info", file.getAbsolutePath()));
+    }
+}
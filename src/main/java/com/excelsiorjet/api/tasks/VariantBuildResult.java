@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import java.io.File;
+
+/**
+ * Outcome of building a single variant of the application with {@link VariantBuildTask}.
+ */
+public class VariantBuildResult {
+
+    /**
+     * Name of the variant.
+     */
+    public final String name;
+
+    /**
+     * Directory containing the build, application and package directories of the variant.
+     */
+    public final File outputDir;
+
+    /**
+     * Wall clock time of the variant build in milliseconds.
+     */
+    public final long buildTimeMillis;
+
+    /**
+     * Size of the resulting executable in bytes, or {@code -1} if the build failed.
+     */
+    public final long executableSize;
+
+    /**
+     * Error message if the build failed, {@code null} otherwise.
+     */
+    public final String error;
+
+    VariantBuildResult(String name, File outputDir, long buildTimeMillis, long executableSize, String error) {
+        this.name = name;
+        this.outputDir = outputDir;
+        this.buildTimeMillis = buildTimeMillis;
+        this.executableSize = executableSize;
+        this.error = error;
+    }
+
+    public boolean succeeded() {
+        return error == null;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.ExcelsiorJet;
+import com.excelsiorjet.api.tasks.config.BuildVariant;
+import com.excelsiorjet.api.tasks.config.PDBConfig;
+import com.excelsiorjet.api.util.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Task for building several variants of the application that differ in optimization settings,
+ * for example, to compare their performance or disk footprint.
+ * <p>
+ * The application and its dependencies are copied to the build directory of the base project only once,
+ * and each variant build directory links to those files instead of copying them again.
+ * The variants are then compiled concurrently, admitting as many Excelsior JET compiler
+ * invocations at once as the available CPU cores and physical memory allow.
+ * </p>
+ * <p>
+ * Each variant is built in the {@code variants/<name>} subdirectory of {@link JetProject#jetOutputDir}
+ * with its own build and application directories and its own PDB, so the variants do not interfere.
+ * </p>
+ *
+ * @see BuildVariant
+ */
+public class VariantBuildTask {
+
+    private static final String VARIANTS_DIR = "variants";
+    private static final String BUILD_DIR = "build";
+    private static final String APP_DIR = "app";
+
+    // the name is used as a directory name, so it must not contain separators or be "." or ".."
+    private static final String NAME_PATTERN = "[A-Za-z0-9_\\-][A-Za-z0-9_.\\-]*";
+
+    private final ExcelsiorJet excelsiorJet;
+    private final JetProject project;
+    private final List<BuildVariant> variants;
+
+    private int maxParallelBuilds;
+    private long memoryPerBuildMB = 2048;
+    private int coresPerBuild = 1;
+
+    public VariantBuildTask(ExcelsiorJet excelsiorJet, JetProject project, List<BuildVariant> variants) throws JetTaskFailureException {
+        this.excelsiorJet = excelsiorJet;
+        this.project = project;
+        this.variants = variants;
+    }
+
+    /**
+     * Sets the upper bound for the number of concurrent variant builds.
+     * By default, only the available CPU cores and physical memory limit the concurrency.
+     */
+    public VariantBuildTask maxParallelBuilds(int maxParallelBuilds) {
+        this.maxParallelBuilds = maxParallelBuilds;
+        return this;
+    }
+
+    /**
+     * Sets the amount of physical memory in megabytes that a single compiler invocation is expected to occupy.
+     * The default value is 2048.
+     */
+    public VariantBuildTask memoryPerBuildMB(long memoryPerBuildMB) {
+        this.memoryPerBuildMB = memoryPerBuildMB;
+        return this;
+    }
+
+    /**
+     * Sets the number of CPU cores that a single compiler invocation is expected to occupy.
+     * The default value is 1.
+     */
+    public VariantBuildTask coresPerBuild(int coresPerBuild) {
+        this.coresPerBuild = coresPerBuild;
+        return this;
+    }
+
+    /**
+     * Builds all variants.
+     *
+     * @return the outcomes of the variant builds in the order of the variants
+     * @throws JetTaskFailureException if the variants are misconfigured or any of the variant builds failed
+     */
+    public List<VariantBuildResult> execute() throws JetTaskFailureException, IOException {
+        List<VariantBuildResult> results = buildAll();
+        String failed = results.stream()
+                .filter(r -> !r.succeeded())
+                .map(r -> r.name)
+                .collect(joining(", "));
+        if (!failed.isEmpty()) {
+            throw new JetTaskFailureException(s("VariantBuildTask.VariantsFailed.Failure", failed));
+        }
+        return results;
+    }
+
+    /**
+     * Builds all variants, reporting failed variant builds in the results rather than throwing.
+     */
+    List<VariantBuildResult> buildAll() throws JetTaskFailureException, IOException {
+        project.validate(excelsiorJet, true);
+        checkVariants();
+
+        List<JetProject> variantProjects = new ArrayList<>();
+        for (BuildVariant variant : variants) {
+            variantProjects.add(variantProject(variant));
+        }
+
+        project.createBuildDir();
+        new JetBuildTask(excelsiorJet, project, false).stage();
+        List<Path> stagedPaths = project.stagedPaths();
+
+        List<Callable<VariantBuildResult>> jobs = new ArrayList<>();
+        for (int i = 0; i < variants.size(); i++) {
+            String name = variants.get(i).name;
+            JetProject variantProject = variantProjects.get(i);
+            jobs.add(() -> buildVariant(name, variantProject, stagedPaths));
+        }
+
+        ResourceAwareScheduler scheduler = new ResourceAwareScheduler(coresPerBuild, memoryPerBuildMB, maxParallelBuilds);
+        int limit = scheduler.admissionLimit(jobs.size());
+        logger.info(s("VariantBuildTask.Start.Info", jobs.size(), limit));
+        List<VariantBuildResult> results = ResourceAwareScheduler.run(jobs, limit);
+
+        logSummary(results);
+        return results;
+    }
+
+    void checkVariants() throws JetTaskFailureException {
+        if ((variants == null) || variants.isEmpty()) {
+            throw new JetTaskFailureException(s("VariantBuildTask.NoVariants.Failure"));
+        }
+        Set<String> names = new HashSet<>();
+        for (BuildVariant variant : variants) {
+            if (Utils.isEmpty(variant.name)) {
+                throw new JetTaskFailureException(s("VariantBuildTask.NoName.Failure"));
+            }
+            if (!variant.name.matches(NAME_PATTERN)) {
+                throw new JetTaskFailureException(s("VariantBuildTask.InvalidName.Failure", variant.name));
+            }
+            if (!names.add(variant.name)) {
+                throw new JetTaskFailureException(s("VariantBuildTask.DuplicateName.Failure", variant.name));
+            }
+        }
+    }
+
+    /**
+     * Derives the project of the given variant from the (validated) base project.
+     */
+    JetProject variantProject(BuildVariant variant) throws JetTaskFailureException {
+        JetProject variantProject = project.copy();
+
+        File variantDir = new File(new File(project.jetOutputDir(), VARIANTS_DIR), variant.name);
+        variantProject.jetOutputDir(variantDir)
+                .jetBuildDir(new File(variantDir, BUILD_DIR))
+                .jetAppDir(new File(variantDir, APP_DIR));
+
+        // variants must not share the PDB as they may be compiled simultaneously
+        PDBConfig pdbConfig = new PDBConfig();
+        if (project.pdbConfiguration().keepInBuildDir) {
+            pdbConfig.keepInBuildDir = true;
+        } else {
+            pdbConfig.specificLocation = new File(project.pdbConfiguration().pdbLocation().getPath() + "-" + variant.name);
+        }
+        variantProject.pdbConfiguration(pdbConfig);
+
+        if (variant.flavor != null) {
+            variantProject.runtimeConfiguration().flavor = variant.flavor;
+        }
+        if (variant.inlineExpansion != null) {
+            variantProject.inlineExpansion(variant.inlineExpansion);
+        }
+        if (variant.optimizationPreset != null) {
+            variantProject.optimizationPreset(variant.optimizationPreset);
+        }
+        if (variant.globalOptimizer != null) {
+            variantProject.globalOptimizer(variant.globalOptimizer);
+        }
+        if (variant.stackAllocation != null) {
+            variantProject.stackAllocation(variant.stackAllocation);
+        }
+        if (variant.trial != null) {
+            if (!variant.trial) {
+                variantProject.trialVersion(null);
+            } else if (project.trialVersion() == null) {
+                throw new JetTaskFailureException(s("VariantBuildTask.NoTrialConfig.Failure", variant.name));
+            }
+        }
+
+        variantProject.validate(excelsiorJet, true);
+        return variantProject;
+    }
+
+    private VariantBuildResult buildVariant(String name, JetProject variantProject, List<Path> stagedPaths) {
+        long start = System.currentTimeMillis();
+        try {
+            logger.info(s("VariantBuildTask.Variant.Info", name, variantProject.jetOutputDir().getAbsolutePath()));
+            Path baseBuildDir = project.jetBuildDir().toPath();
+            Path variantBuildDir = variantProject.createBuildDir().toPath();
+            for (Path staged : stagedPaths) {
+                Utils.linkOrCopy(baseBuildDir.resolve(staged), variantBuildDir.resolve(staged));
+            }
+            new JetBuildTask(excelsiorJet, variantProject, false).execute(false);
+            File exe = new File(variantProject.jetAppDir(), variantProject.exeRelativePath(excelsiorJet));
+            return new VariantBuildResult(name, variantProject.jetOutputDir(),
+                    System.currentTimeMillis() - start, exe.length(), null);
+        } catch (Exception e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.toString();
+            logger.error(s("VariantBuildTask.VariantFailed.Error", name, message));
+            return new VariantBuildResult(name, variantProject.jetOutputDir(),
+                    System.currentTimeMillis() - start, -1, message);
+        }
+    }
+
+    private void logSummary(List<VariantBuildResult> results) {
+        logger.info(s("VariantBuildTask.Summary.Info"));
+        for (VariantBuildResult result : results) {
+            String seconds = String.format("%.1f", result.buildTimeMillis / 1000.0);
+            if (result.succeeded()) {
+                logger.info(s("VariantBuildTask.SummaryRow.Info", result.name, seconds,
+                        String.valueOf(result.executableSize), result.outputDir.getAbsolutePath()));
+            } else {
+                logger.info(s("VariantBuildTask.SummaryFailedRow.Info", result.name, seconds, result.error));
+            }
+        }
+    }
+}
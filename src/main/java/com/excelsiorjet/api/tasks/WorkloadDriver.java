@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.tasks.config.compiler.WorkloadConfig;
+import com.excelsiorjet.api.util.Txt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.excelsiorjet.api.log.Log.logger;
+
+/**
+ * Sends the HTTP workload described by {@link WorkloadConfig} to a running server application
+ * and terminates the application afterwards by creating its {@link RunStopSupport} termination file.
+ */
+class WorkloadDriver {
+
+    private static final int POLL_INTERVAL = 200;
+    private static final int CONNECTION_TIMEOUT = 10000;
+
+    private final WorkloadConfig config;
+    private final List<String> methods = new ArrayList<>();
+    private final List<URL> urls = new ArrayList<>();
+
+    private volatile boolean finished;
+    private Thread thread;
+
+    WorkloadDriver(WorkloadConfig config) throws JetTaskFailureException {
+        this.config = config;
+        for (String request : config.requests) {
+            methods.add(WorkloadConfig.method(request));
+            urls.add(WorkloadConfig.url(request));
+        }
+    }
+
+    /**
+     * Workload statistics, not counting the warm-up.
+     */
+    static class Result {
+        final long requests;
+        final long failures;
+        final long millis;
+
+        Result(long requests, long failures, long millis) {
+            this.requests = requests;
+            this.failures = failures;
+            this.millis = millis;
+        }
+
+        long throughput() {
+            return (millis == 0) ? 0 : requests * 1000 / millis;
+        }
+    }
+
+    /**
+     * Starts the workload driver in a background thread if the workload is defined.
+     * Once the workload completes, the run is stopped by creating the given termination file of the run.
+     *
+     * @return the started driver, which must be finished when the run ends, or {@code null} if no workload is defined
+     */
+    static WorkloadDriver startIfDefined(WorkloadConfig config, File termFile) throws JetTaskFailureException {
+        if ((config == null) || !config.isDefined()) {
+            return null;
+        }
+        WorkloadDriver driver = new WorkloadDriver(config);
+        driver.thread = new Thread(() -> {
+            if (driver.run() && !driver.finished) {
+                try {
+                    termFile.createNewFile();
+                } catch (IOException e) {
+                    logger.error(e.getMessage());
+                }
+            }
+        });
+        driver.thread.setDaemon(true);
+        driver.thread.start();
+        return driver;
+    }
+
+    /**
+     * Stops the workload, e.g. because the application has terminated by itself.
+     */
+    void finish() {
+        finished = true;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    void join(long millis) throws InterruptedException {
+        thread.join(millis);
+    }
+
+    /**
+     * Waits for the application readiness and sends the workload to it.
+     *
+     * @return {@code false} if the application has not become ready in time or the driver has been finished
+     */
+    boolean run() {
+        if (!awaitReady(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(config.readinessTimeout))) {
+            if (!finished) {
+                logger.warn(Txt.s("WorkloadDriver.NotReady.Warning", config.readinessUrl, config.readinessTimeout));
+            }
+            return false;
+        }
+        logger.info(Txt.s("WorkloadDriver.Ready.Info"));
+        Result result = drive();
+        logger.info(Txt.s("WorkloadDriver.Finish.Info", result.requests, result.failures, result.throughput()));
+        return true;
+    }
+
+    /**
+     * Polls the readiness URL until it responds with any HTTP status or the deadline passes.
+     */
+    boolean awaitReady(long deadline) {
+        URL readinessUrl;
+        try {
+            readinessUrl = WorkloadConfig.url(config.readinessUrl);
+        } catch (JetTaskFailureException e) {
+            return false;
+        }
+        while (!finished) {
+            if (send("GET", readinessUrl) > 0) {
+                return true;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends the requests in the round-robin manner using {@link WorkloadConfig#concurrency} threads
+     * for the warm-up and workload durations.
+     */
+    Result drive() {
+        long start = System.currentTimeMillis();
+        long measureStart = start + TimeUnit.SECONDS.toMillis(config.warmUp);
+        long end = measureStart + TimeUnit.SECONDS.toMillis(config.duration);
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong requests = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(config.concurrency);
+        try {
+            for (int i = 0; i < config.concurrency; i++) {
+                executor.execute(() -> {
+                    long now;
+                    while (((now = System.currentTimeMillis()) < end) && !finished) {
+                        int request = (next.getAndIncrement() & Integer.MAX_VALUE) % urls.size();
+                        int status = send(methods.get(request), urls.get(request));
+                        if (now >= measureStart) {
+                            requests.incrementAndGet();
+                            if ((status <= 0) || (status >= 400)) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(end - start + 2 * CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ignore) {
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Result(requests.get(), failures.get(), end - measureStart);
+    }
+
+    /**
+     * @return HTTP status of the response, or {@code -1} if the request has failed
+     */
+    static int send(String method, URL url) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(CONNECTION_TIMEOUT);
+            connection.setReadTimeout(CONNECTION_TIMEOUT);
+            int status = connection.getResponseCode();
+            // read the response fully so that the connection is reused by the next request
+            InputStream in = (status >= 400) ? connection.getErrorStream() : connection.getInputStream();
+            if (in != null) {
+                try (InputStream body = in) {
+                    byte[] buffer = new byte[8192];
+                    while (body.read(buffer) != -1) {
+                        // discard
+                    }
+                }
+            }
+            return status;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return -1;
+        }
+    }
+}
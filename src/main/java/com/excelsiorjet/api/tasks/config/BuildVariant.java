@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks.config;
+
+import com.excelsiorjet.api.tasks.JetProject;
+import com.excelsiorjet.api.tasks.VariantBuildTask;
+
+/**
+ * A variant of the application build that differs from the base {@link JetProject} only in
+ * optimization and licensing settings.
+ * <p>
+ * Parameters that are not set are inherited from the base project.
+ * </p>
+ *
+ * @see VariantBuildTask
+ */
+public class BuildVariant {
+
+    /**
+     * Name of the variant. It must be unique among the variants built together, since it is used as the name
+     * of the variant subdirectory of {@link JetProject#jetOutputDir}. It may contain only letters, digits, dashes,
+     * underscores, and dots, and must not start with a dot.
+     */
+    public String name;
+
+    /**
+     * Excelsior JET Runtime flavor of the variant: {@code desktop}, {@code server} or {@code classic}.
+     */
+    public String flavor;
+
+    /**
+     * Inline expansion level of the variant.
+     *
+     * @see com.excelsiorjet.api.tasks.config.compiler.InlineExpansionType
+     */
+    public String inlineExpansion;
+
+    /**
+     * Optimization preset of the variant: {@code typical} or {@code smart}.
+     */
+    public String optimizationPreset;
+
+    /**
+     * Whether the Global Optimizer is enabled for the variant.
+     */
+    public Boolean globalOptimizer;
+
+    /**
+     * Whether stack allocation of objects is enabled for the variant.
+     */
+    public Boolean stackAllocation;
+
+    /**
+     * Whether the variant is a trial version. If set to {@code true}, the trial version configuration
+     * of the base project is used, so it must be defined. If set to {@code false}, the variant never expires.
+     */
+    public Boolean trial;
+
+    public BuildVariant() {
+    }
+
+    public BuildVariant(String name) {
+        this.name = name;
+    }
+}
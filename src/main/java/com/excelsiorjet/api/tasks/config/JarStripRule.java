@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks.config;
+
+import com.excelsiorjet.api.tasks.JetTaskFailureException;
+import com.excelsiorjet.api.util.Utils;
+
+import java.util.Locale;
+
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Kinds of dependency jar entries that are useless in a natively compiled application
+ * and can be stripped from the staged copies of the jars.
+ */
+public enum JarStripRule {
+    /**
+     * Jar signature files ({@code META-INF/*.SF}, {@code *.RSA}, {@code *.DSA}, {@code *.EC}, {@code SIG-*}).
+     * Note that some libraries, such as JCE providers, require their jars to be signed.
+     */
+    SIGNATURES,
+
+    /**
+     * Java sources ({@code *.java}) embedded into jars.
+     */
+    SOURCES,
+
+    /**
+     * Maven descriptors ({@code META-INF/maven/**}, including {@code pom.xml} and {@code pom.properties}).
+     */
+    MAVEN_METADATA,
+
+    /**
+     * Module descriptors ({@code module-info.class}), which are not used by Java 8 runtimes.
+     */
+    MODULE_INFO;
+
+    /**
+     * Checks whether the jar entry of the given name is stripped by this rule.
+     */
+    public boolean matches(String entryName) {
+        switch (this) {
+            case SIGNATURES:
+                return isSignature(entryName);
+            case SOURCES:
+                return !entryName.endsWith("/") && entryName.endsWith(".java");
+            case MAVEN_METADATA:
+                return entryName.startsWith("META-INF/maven/");
+            case MODULE_INFO:
+                return entryName.equals("module-info.class") ||
+                        (entryName.startsWith("META-INF/versions/") && entryName.endsWith("/module-info.class"));
+            default:
+                throw new AssertionError("Unknown jar strip rule: " + this);
+        }
+    }
+
+    private static boolean isSignature(String entryName) {
+        String name = entryName.toUpperCase(Locale.ROOT);
+        if (!name.startsWith("META-INF/") || (name.indexOf('/', "META-INF/".length()) >= 0)) {
+            return false;
+        }
+        return name.startsWith("META-INF/SIG-") ||
+                name.endsWith(".SF") || name.endsWith(".RSA") || name.endsWith(".DSA") || name.endsWith(".EC");
+    }
+
+    public String toString() {
+        return Utils.enumConstantNameToParameter(name());
+    }
+
+    public static JarStripRule validate(String rule) throws JetTaskFailureException {
+        try {
+            return JarStripRule.valueOf(Utils.parameterToEnumConstantName(rule));
+        } catch (Exception e) {
+            throw new JetTaskFailureException(s("JetApi.UnknownJarStripRule.Failure", rule));
+        }
+    }
+
+    public static JarStripRule fromString(String rule) {
+        try {
+            return validate(rule);
+        } catch (JetTaskFailureException e) {
+            throw new AssertionError("jarStripRules should be valid here", e);
+        }
+    }
+}
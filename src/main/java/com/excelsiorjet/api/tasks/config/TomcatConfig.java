@@ -91,6 +91,14 @@ public class TomcatConfig {
      */
     public boolean allowUserToChangeTomcatPort;
 
+    /**
+     * If set, the war file is deployed into the Tomcat copy exploded, that is extracted
+     * to the {@code webapps/<warDeployName without .war>} directory during the build, rather than
+     * unpacked by Tomcat at its first start. This spares Test Runs the war extraction, keeps it out
+     * of the collected profiles, and lets the entries that did not change since the previous build be reused.
+     */
+    public boolean explodeWar;
+
     public void fillDefaults(String mainWarName) throws JetTaskFailureException {
         // check Tomcat home
         if (Utils.isEmpty(tomcatHome)) {
@@ -123,7 +131,7 @@ public class TomcatConfig {
             warDeployName = warDeployName + WAR_EXT;
         }
 
-        String explodedWar = warDeployName.substring(0, warDeployName.length() - WAR_EXT.length());
+        String explodedWar = explodedWarName();
 
         if (new File(webApps, warDeployName).exists() || new File(webApps, explodedWar).exists()) {
             throw new JetTaskFailureException(s("JetApi.WarAlreadyDeployedIntoTomcat.Failure", explodedWar, tomcatHome));
@@ -133,4 +141,12 @@ public class TomcatConfig {
             throw new JetTaskFailureException(s("JetApi.CantChangePortWhenHideConfig.Failure"));
         }
     }
+
+    /**
+     * @return the name of the directory Tomcat deploys the war file to, which is also the name
+     *         of the directory the war file is exploded to if {@link #explodeWar} is set
+     */
+    public String explodedWarName() {
+        return warDeployName.substring(0, warDeployName.length() - WAR_EXT.length());
+    }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks.config;
+
+import com.excelsiorjet.api.tasks.JetProject;
+import com.excelsiorjet.api.tasks.TuningTask;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Grid of optimization settings explored by {@link TuningTask}.
+ * <p>
+ * Every combination of the listed values is built and benchmarked.
+ * If the list of values of a setting is empty, the setting is inherited from the base {@link JetProject}.
+ * </p>
+ *
+ * @see BuildVariant
+ */
+public class TuningGrid {
+
+    /**
+     * Optimization presets to try: {@code typical} and/or {@code smart}.
+     */
+    public List<String> optimizationPresets = Collections.emptyList();
+
+    /**
+     * Inline expansion levels to try.
+     *
+     * @see com.excelsiorjet.api.tasks.config.compiler.InlineExpansionType
+     */
+    public List<String> inlineExpansions = Collections.emptyList();
+
+    /**
+     * Values of the stack allocation setting to try.
+     */
+    public List<Boolean> stackAllocation = Collections.emptyList();
+
+    /**
+     * Values of the Global Optimizer setting to try.
+     */
+    public List<Boolean> globalOptimizer = Collections.emptyList();
+
+    /**
+     * Excelsior JET Runtime flavors to try: {@code desktop}, {@code server} and/or {@code classic}.
+     */
+    public List<String> flavors = Collections.emptyList();
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks.config.compiler;
+
+import com.excelsiorjet.api.tasks.JetTaskFailureException;
+import com.excelsiorjet.api.tasks.RunTask;
+import com.excelsiorjet.api.tasks.TestRunTask;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Adaptive termination policy for the {@link TestRunTask} and the profiling {@link RunTask},
+ * an alternative to the fixed {@link ExecProfilesConfig#testRunTimeout} and {@link ExecProfilesConfig#profileRunTimeout}.
+ * <p>
+ * The application is terminated once it has become ready and then reached a steady state.
+ * The application is considered ready when it prints a line matching {@link #readinessPattern}
+ * or starts accepting connections on {@link #readinessPort}. If neither is set, the application is considered
+ * ready right after the start.
+ * The application is considered to be in a steady state when its CPU usage stays below {@link #cpuThreshold}
+ * for {@link #steadyStatePeriod} seconds or it prints nothing for {@link #quietPeriod} seconds.
+ * In any case, the application is terminated after {@link #maxTimeout} seconds.
+ * </p>
+ */
+public class AdaptiveTerminationConfig {
+
+    /**
+     * Regular expression that a line of the application output must contain for the application to be considered ready,
+     * e.g. {@code Started .* in [0-9.]+ seconds} for a Spring Boot application.
+     */
+    public String readinessPattern;
+
+    /**
+     * Local TCP port that the application must listen on to be considered ready, e.g. {@code 8080}.
+     */
+    public int readinessPort;
+
+    /**
+     * CPU usage threshold of the application, in percent of a single CPU core.
+     * The application is considered to be in a steady state when its CPU usage stays below the threshold
+     * for {@link #steadyStatePeriod} seconds.
+     * The CPU usage is read from {@code /proc}, so the criterion is only available on Linux.
+     */
+    public double cpuThreshold;
+
+    /**
+     * Period in seconds over which the CPU usage of the application is measured. Default value is 5.
+     */
+    public int steadyStatePeriod = 5;
+
+    /**
+     * Number of seconds without new output, after which the application is considered to be in a steady state.
+     */
+    public int quietPeriod;
+
+    /**
+     * Maximum duration of the run in seconds. Default value is 600.
+     */
+    public int maxTimeout = 600;
+
+    public boolean isDefined() {
+        return (readinessPattern != null) || (readinessPort > 0) || (cpuThreshold > 0) || (quietPeriod > 0);
+    }
+
+    public void fillDefaults() throws JetTaskFailureException {
+        if (!isDefined()) {
+            return;
+        }
+        if ((cpuThreshold <= 0) && (quietPeriod <= 0)) {
+            throw new JetTaskFailureException(s("JetApi.AdaptiveTermination.NoSteadyStateCriterion"));
+        }
+        if (readinessPattern != null) {
+            try {
+                Pattern.compile(readinessPattern);
+            } catch (PatternSyntaxException e) {
+                throw new JetTaskFailureException(s("JetApi.AdaptiveTermination.InvalidPattern", readinessPattern, e.getDescription()));
+            }
+        }
+        if ((readinessPort < 0) || (readinessPort > 65535)) {
+            throw new JetTaskFailureException(s("JetApi.AdaptiveTermination.InvalidParameter", "readinessPort", readinessPort));
+        }
+        if (steadyStatePeriod <= 0) {
+            throw new JetTaskFailureException(s("JetApi.AdaptiveTermination.InvalidParameter", "steadyStatePeriod", steadyStatePeriod));
+        }
+        if (maxTimeout <= 0) {
+            throw new JetTaskFailureException(s("JetApi.AdaptiveTermination.InvalidParameter", "maxTimeout", maxTimeout));
+        }
+    }
+}
@@ -26,6 +26,11 @@ import com.excelsiorjet.api.tasks.*;
 import com.excelsiorjet.api.util.Utils;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static com.excelsiorjet.api.log.Log.logger;
 import static com.excelsiorjet.api.tasks.config.compiler.ExecProfilesExistenceType.ALL;
@@ -160,6 +165,41 @@ public class ExecProfilesConfig {
      */
     public int profileRunTimeout;
 
+    /**
+     * Test Run scenarios covering distinct workloads of the application.
+     * <p>
+     * If set, the {@link TestRunTask} runs all the scenarios concurrently instead of a single Test Run,
+     * each scenario collecting its own profiles (see {@link #getUsg(TestRunScenario)}).
+     * The usage lists of all the scenarios are then passed to the compiler together, while the startup profile
+     * of the first scenario becomes the startup profile of the application (see {@link #getStartup()}),
+     * because a startup profile describes a single startup sequence.
+     * </p>
+     * <p>
+     * The {@link #testRunTimeout} parameter applies to every scenario separately.
+     * </p>
+     */
+    public List<TestRunScenario> testRunScenarios = Collections.emptyList();
+
+    /**
+     * HTTP workload to exercise a server application with during the Test Run and Profile tasks.
+     * If defined, the application is terminated once the workload completes,
+     * while {@link #testRunTimeout} and {@link #profileRunTimeout} still bound the run duration, if set.
+     * <p>
+     * The workload is not applied to {@link #testRunScenarios}, as concurrent servers would compete for the same ports.
+     * </p>
+     */
+    public WorkloadConfig workload = new WorkloadConfig();
+
+    /**
+     * Adaptive termination policy for the Test Run and Profile tasks, which terminates the application
+     * once it has become ready and reached a steady state, instead of waiting for a fixed timeout.
+     * It is ignored if {@link #workload} is defined, since the workload driver terminates the application then.
+     * <p>
+     * The policy is not applied to {@link #testRunScenarios}.
+     * </p>
+     */
+    public AdaptiveTerminationConfig adaptiveTermination = new AdaptiveTerminationConfig();
+
     public void fillDefaults(JetProject jetProject, ExcelsiorJet excelsiorJet) throws JetTaskFailureException {
         if (outputDir == null) {
             outputDir = jetProject.jetResourcesDir();
@@ -183,9 +223,20 @@ public class ExecProfilesConfig {
             profilingImageDir = new File(jetProject.jetOutputDir(), PROFILE_DIR);
         }
 
+        workload.fillDefaults();
+        adaptiveTermination.fillDefaults();
+
+        Set<String> scenarioNames = new HashSet<>();
+        for (TestRunScenario scenario : testRunScenarios) {
+            scenario.validate();
+            if (!scenarioNames.add(scenario.name)) {
+                throw new JetTaskFailureException(s("JetApi.TestRunScenario.DuplicateName", scenario.name));
+            }
+        }
+
         ExecProfilesExistenceType existenceType = ExecProfilesExistenceType.validate(checkExistence);
         if ((existenceType == ALL) || (existenceType == TEST_RUN)) {
-            if (excelsiorJet.isUsageListGenerationSupported() && !getUsg().exists()) {
+            if (excelsiorJet.isUsageListGenerationSupported() && getTestRunUsgs().isEmpty()) {
                 throw new JetTaskFailureException(s("JetApi.NoTestRunProfile.Failure", getUsg().getAbsolutePath()));
             }
             if (excelsiorJet.isStartupProfileGenerationSupported() && !getStartup().exists()) {
@@ -208,6 +259,46 @@ public class ExecProfilesConfig {
         return new File(outputDir, outputName + ".startup");
     }
 
+    /**
+     * @return the usage list collected by the given Test Run scenario
+     */
+    public File getUsg(TestRunScenario scenario) {
+        return new File(outputDir, outputName + "." + scenario.name + ".usg");
+    }
+
+    /**
+     * @return the startup profile collected by the given Test Run scenario
+     */
+    public File getStartup(TestRunScenario scenario) {
+        return new File(outputDir, outputName + "." + scenario.name + ".startup");
+    }
+
+    /**
+     * @return the existing usage lists collected by the configured Test Run scenarios
+     */
+    public List<File> getScenarioUsgs() {
+        List<File> usgs = new ArrayList<>();
+        for (TestRunScenario scenario : testRunScenarios) {
+            File usg = getUsg(scenario);
+            if (usg.exists()) {
+                usgs.add(usg);
+            }
+        }
+        return usgs;
+    }
+
+    /**
+     * @return the existing usage lists the application is compiled with: those collected by the configured
+     *         Test Run scenarios, if any, or the usage list of the single Test Run otherwise,
+     *         so that a usage list left by an earlier single Test Run is not mixed with the scenario ones
+     */
+    public List<File> getTestRunUsgs() {
+        if (!testRunScenarios.isEmpty()) {
+            return getScenarioUsgs();
+        }
+        return getUsg().exists() ? Collections.singletonList(getUsg()) : Collections.emptyList();
+    }
+
     public File getJProfile() {
         return new File(outputDir, outputName + ".jprof");
     }
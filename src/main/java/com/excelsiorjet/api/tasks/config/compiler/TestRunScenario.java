@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks.config.compiler;
+
+import com.excelsiorjet.api.tasks.JetProject;
+import com.excelsiorjet.api.tasks.JetTaskFailureException;
+import com.excelsiorjet.api.tasks.TestRunTask;
+import com.excelsiorjet.api.util.Utils;
+
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Description of a Test Run scenario, that is a distinct workload of the application, such as a batch import
+ * or a server session, that should be covered by the collected profiles.
+ * <p>
+ * If several scenarios are configured in {@link ExecProfilesConfig#testRunScenarios}, the {@link TestRunTask}
+ * runs them concurrently, each in its own copy of the Test Run directory and writing to its own profile files.
+ * </p>
+ *
+ * @see ExecProfilesConfig#getUsg(TestRunScenario)
+ */
+public class TestRunScenario {
+
+    /**
+     * Name of the scenario. It is used in the names of the scenario profiles and working directory,
+     * so it may contain only letters, digits, dashes, underscores, and dots.
+     */
+    public String name;
+
+    /**
+     * Command-line arguments of the application for this scenario.
+     * If not set, {@link JetProject#runArgs} are used.
+     */
+    public String[] runArgs;
+
+    /**
+     * JVM arguments for this scenario. They are passed in addition to {@link JetProject#jvmArgs}.
+     */
+    public String[] jvmArgs;
+
+    public TestRunScenario() {
+    }
+
+    public TestRunScenario(String name, String[] runArgs, String[] jvmArgs) {
+        this.name = name;
+        this.runArgs = runArgs;
+        this.jvmArgs = jvmArgs;
+    }
+
+    void validate() throws JetTaskFailureException {
+        if (Utils.isEmpty(name)) {
+            throw new JetTaskFailureException(s("JetApi.TestRunScenario.NameNull"));
+        }
+        if (!name.matches("[A-Za-z0-9_.\\-]+")) {
+            throw new JetTaskFailureException(s("JetApi.TestRunScenario.InvalidName", name));
+        }
+        if (jvmArgs == null) {
+            jvmArgs = new String[0];
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.tasks.config.compiler;
+
+import com.excelsiorjet.api.tasks.JetTaskFailureException;
+import com.excelsiorjet.api.tasks.RunTask;
+import com.excelsiorjet.api.tasks.TestRunTask;
+import com.excelsiorjet.api.util.Utils;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * HTTP workload that is fired at a server application, such as a Tomcat or Spring Boot application,
+ * while its profiles are collected by the {@link TestRunTask} or the profiling {@link RunTask}.
+ * <p>
+ * Once the server responds to the {@link #readinessUrl}, the workload driver sends the {@link #requests}
+ * to it for {@link #warmUp} plus {@link #duration} seconds using {@link #concurrency} parallel connections,
+ * and then terminates the application. Thus, the hot request paths get into the collected profiles
+ * and the run does not depend on a fixed timeout.
+ * </p>
+ */
+public class WorkloadConfig {
+
+    /**
+     * HTTP requests to send to the application in the round-robin manner.
+     * A request is either a URL, e.g. {@code http://localhost:8080/api/items}, or an HTTP method followed
+     * by a URL, e.g. {@code DELETE http://localhost:8080/api/items/1}. The {@code GET} method is used by default.
+     */
+    public String[] requests;
+
+    /**
+     * Number of concurrent connections sending the requests. Default value is 1.
+     */
+    public int concurrency = 1;
+
+    /**
+     * Duration of the workload in seconds, not counting the {@link #warmUp}. Default value is 30.
+     */
+    public int duration = 30;
+
+    /**
+     * Duration of the warm-up in seconds, during which the requests are sent but not counted in the
+     * workload statistics. Default value is 0.
+     */
+    public int warmUp;
+
+    /**
+     * URL that is polled to check whether the application is ready to serve requests.
+     * The application is considered ready once the URL responds with any HTTP status.
+     * By default, the URL of the first request is used.
+     */
+    public String readinessUrl;
+
+    /**
+     * How long to wait for the application readiness in seconds. If the application is not ready in time,
+     * the workload is not sent and the application is not terminated by the driver. Default value is 120.
+     */
+    public int readinessTimeout = 120;
+
+    public boolean isDefined() {
+        return !Utils.isEmpty(requests);
+    }
+
+    public void fillDefaults() throws JetTaskFailureException {
+        if (!isDefined()) {
+            return;
+        }
+        for (String request : requests) {
+            url(request);
+        }
+        if (concurrency <= 0) {
+            throw new JetTaskFailureException(s("JetApi.Workload.InvalidParameter", "concurrency", concurrency));
+        }
+        if (duration <= 0) {
+            throw new JetTaskFailureException(s("JetApi.Workload.InvalidParameter", "duration", duration));
+        }
+        if (warmUp < 0) {
+            throw new JetTaskFailureException(s("JetApi.Workload.InvalidParameter", "warmUp", warmUp));
+        }
+        if (Utils.isEmpty(readinessUrl)) {
+            readinessUrl = url(requests[0]).toString();
+        } else {
+            url(readinessUrl);
+        }
+    }
+
+    /**
+     * @return HTTP method of the given request
+     */
+    public static String method(String request) {
+        String[] parts = request.trim().split("\\s+", 2);
+        return (parts.length == 2) ? parts[0].toUpperCase() : "GET";
+    }
+
+    /**
+     * @return URL of the given request
+     */
+    public static URL url(String request) throws JetTaskFailureException {
+        String[] parts = request.trim().split("\\s+", 2);
+        String url = parts[parts.length - 1];
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            throw new JetTaskFailureException(s("JetApi.Workload.InvalidUrl", url, e.getMessage()));
+        }
+    }
+}
@@ -139,6 +139,21 @@ public class RuntimeConfig {
      */
     public SlimDownConfig slimDown;
 
+    /**
+     * @return a copy of this configuration that can be modified independently.
+     */
+    public RuntimeConfig copy() {
+        RuntimeConfig copy = new RuntimeConfig();
+        copy.flavor = flavor;
+        copy.location = location;
+        copy.components = components;
+        copy.locales = locales;
+        copy.profile = profile;
+        copy.diskFootprintReduction = diskFootprintReduction;
+        copy.slimDown = slimDown;
+        return copy;
+    }
+
     public void fillDefaults(JetProject jetProject, ExcelsiorJet excelsiorJet) throws JetTaskFailureException {
 
         if (flavor != null) {
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+import static com.excelsiorjet.api.log.Log.logger;
+import static com.excelsiorjet.api.util.Txt.s;
+
+/**
+ * Deletes directory trees without blocking the caller.
+ * <p>
+ * A directory to delete is atomically renamed to a sibling "trash" directory, so that its original location
+ * can be reused immediately, and the trash is then deleted in parallel by a pool of daemon threads.
+ * If the JVM exits before the deletion completes (or the deletion fails), the trash is left on disk and
+ * is reaped the next time the same directory is deleted.
+ * </p>
+ */
+class BackgroundDeleter {
+
+    private static final String TRASH_INFIX = ".jet-trash-";
+
+    // worker threads of a ForkJoinPool are daemon threads, so pending deletions never prevent JVM exit
+    private static final ForkJoinPool pool = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    private static final Map<Path, ForkJoinTask<?>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Moves {@code f} out of the way and schedules its deletion.
+     * Falls back to synchronous deletion if {@code f} cannot be renamed (e.g. because some file in it is locked).
+     */
+    static void delete(File f) throws IOException {
+        Path target = f.toPath().toAbsolutePath();
+        Path parent = target.getParent();
+        if (parent == null) {
+            Utils.cleanDirectory(f);
+            return;
+        }
+        String trashPrefix = "." + target.getFileName() + TRASH_INFIX;
+        reapTrash(parent, trashPrefix);
+
+        if (!Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        Path trash = parent.resolve(trashPrefix + UUID.randomUUID());
+        try {
+            Files.move(target, trash, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UnsupportedOperationException e) {
+            Utils.cleanDirectory(f);
+            return;
+        }
+        schedule(trash);
+    }
+
+    private static void reapTrash(Path parent, String trashPrefix) {
+        if (!Files.isDirectory(parent)) {
+            return;
+        }
+        try (DirectoryStream<Path> trashes = Files.newDirectoryStream(parent, p -> p.getFileName().toString().startsWith(trashPrefix))) {
+            for (Path trash : trashes) {
+                schedule(trash);
+            }
+        } catch (IOException ignore) {
+            // will try again next time
+        }
+    }
+
+    private static void schedule(Path trash) {
+        pending.computeIfAbsent(trash, t -> pool.submit(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                try {
+                    new DeleteTree(t).invoke();
+                } catch (RuntimeException e) {
+                    if (logger != null) {
+                        logger.debug(s("JetApi.UnableToDelete.Error", t), e);
+                    }
+                } finally {
+                    pending.remove(t);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Waits until all scheduled deletions complete.
+     *
+     * @return {@code true} if all deletions completed within the given timeout
+     */
+    static boolean awaitPending(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ForkJoinTask<?> task : new ArrayList<>(pending.values())) {
+            long remaining = deadline - System.nanoTime();
+            try {
+                task.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            } catch (Exception e) {
+                if (!task.isDone()) {
+                    return false;
+                }
+            }
+        }
+        return pending.isEmpty();
+    }
+
+    /**
+     * Deletes a file tree, processing subdirectories in parallel.
+     */
+    private static class DeleteTree extends RecursiveAction {
+
+        private final Path path;
+
+        DeleteTree(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    List<DeleteTree> subdirs = new ArrayList<>();
+                    try (DirectoryStream<Path> children = Files.newDirectoryStream(path)) {
+                        for (Path child : children) {
+                            if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                                subdirs.add(new DeleteTree(child));
+                            } else {
+                                Files.deleteIfExists(child);
+                            }
+                        }
+                    }
+                    invokeAll(subdirs);
+                }
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                throw new IllegalStateException(s("JetApi.UnableToDelete.Error", path), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.util;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Writes generated text files, such as compiler project files and packager response files,
+ * so that a file is only replaced if its content actually changes.
+ * <p>
+ * The content is streamed to a temporary file next to the target, while its hash is computed on the fly.
+ * If the target already has the same content, the temporary file is discarded and the target,
+ * including its modification time, stays intact. Otherwise, the target is atomically replaced
+ * with the temporary file, so readers never observe a partially written file.
+ * </p>
+ */
+public class FileUpdater {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(PrintWriter out) throws IOException;
+    }
+
+    /**
+     * Writes the content produced by {@code contentWriter} to {@code file} unless the file already has that content.
+     *
+     * @return {@code true} if the file has been created or replaced, {@code false} if it was up-to-date
+     */
+    public static boolean writeIfChanged(File file, ContentWriter contentWriter) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            MessageDigest newDigest = digest();
+            try (PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+                    new DigestOutputStream(Files.newOutputStream(temp), newDigest))))) {
+                contentWriter.write(out);
+                out.flush();
+                if (out.checkError()) {
+                    throw new IOException(Txt.s("JetApi.UnableToWrite.Error", temp));
+                }
+            }
+
+            if (Files.isRegularFile(target) && (Files.size(target) == Files.size(temp)) &&
+                    MessageDigest.isEqual(newDigest.digest(), hash(target))) {
+                return false;
+            }
+
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static byte[] hash(Path file) throws IOException {
+        MessageDigest digest = digest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            while (in.read(buffer) != -1) {
+                // digest is updated while reading
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
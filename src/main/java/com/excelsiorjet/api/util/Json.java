@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON serializer and parser for reports produced by the tasks.
+ * Supports maps with string keys, collections, numbers, booleans, strings, and {@code null}.
+ */
+public class Json {
+
+    private static final String INDENT = "  ";
+
+    public static String toJson(Object value) {
+        StringBuilder out = new StringBuilder();
+        write(out, value, "");
+        return out.append(System.lineSeparator()).toString();
+    }
+
+    private static void write(StringBuilder out, Object value, String indent) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof Map) {
+            writeEntries(out, ((Map<?, ?>) value).entrySet().iterator(), '{', '}', indent);
+        } else if (value instanceof Collection) {
+            writeEntries(out, ((Collection<?>) value).iterator(), '[', ']', indent);
+        } else if ((value instanceof Number) || (value instanceof Boolean)) {
+            out.append(value);
+        } else {
+            writeString(out, value.toString());
+        }
+    }
+
+    private static void writeEntries(StringBuilder out, Iterator<?> entries, char open, char close, String indent) {
+        out.append(open);
+        if (!entries.hasNext()) {
+            out.append(close);
+            return;
+        }
+        String nested = indent + INDENT;
+        while (entries.hasNext()) {
+            Object entry = entries.next();
+            out.append(System.lineSeparator()).append(nested);
+            if (entry instanceof Map.Entry) {
+                writeString(out, String.valueOf(((Map.Entry<?, ?>) entry).getKey()));
+                out.append(": ");
+                write(out, ((Map.Entry<?, ?>) entry).getValue(), nested);
+            } else {
+                write(out, entry, nested);
+            }
+            if (entries.hasNext()) {
+                out.append(',');
+            }
+        }
+        out.append(System.lineSeparator()).append(indent).append(close);
+    }
+
+    private static void writeString(StringBuilder out, String s) {
+        out.append('"');
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Parses the given JSON text. Objects are returned as maps preserving the order of keys, arrays as lists,
+     * integral numbers as {@link Long}, and other numbers as {@link Double}.
+     *
+     * @throws IllegalArgumentException if the text is not valid JSON
+     */
+    public static Object parse(String json) {
+        Parser parser = new Parser(json);
+        Object value = parser.value();
+        parser.skipWhitespace();
+        if (parser.pos != json.length()) {
+            throw parser.error();
+        }
+        return value;
+    }
+
+    private static class Parser {
+        private final String s;
+        private int pos;
+
+        Parser(String s) {
+            this.s = s;
+        }
+
+        IllegalArgumentException error() {
+            return new IllegalArgumentException("Invalid JSON at position " + pos);
+        }
+
+        void skipWhitespace() {
+            while ((pos < s.length()) && Character.isWhitespace(s.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if ((pos < s.length()) && (s.charAt(pos) == c)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) {
+                throw error();
+            }
+        }
+
+        Object value() {
+            skipWhitespace();
+            if (pos >= s.length()) {
+                throw error();
+            }
+            char c = s.charAt(pos);
+            if (c == '{') {
+                pos++;
+                Map<String, Object> map = new LinkedHashMap<>();
+                if (!consume('}')) {
+                    do {
+                        skipWhitespace();
+                        String key = string();
+                        expect(':');
+                        map.put(key, value());
+                    } while (consume(','));
+                    expect('}');
+                }
+                return map;
+            } else if (c == '[') {
+                pos++;
+                List<Object> list = new ArrayList<>();
+                if (!consume(']')) {
+                    do {
+                        list.add(value());
+                    } while (consume(','));
+                    expect(']');
+                }
+                return list;
+            } else if (c == '"') {
+                return string();
+            } else if (s.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            } else if (s.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            } else if (s.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            return number();
+        }
+
+        private Object number() {
+            int start = pos;
+            while ((pos < s.length()) && ("+-.eE".indexOf(s.charAt(pos)) >= 0 || Character.isDigit(s.charAt(pos)))) {
+                pos++;
+            }
+            String number = s.substring(start, pos);
+            try {
+                if ((number.indexOf('.') < 0) && (number.indexOf('e') < 0) && (number.indexOf('E') < 0)) {
+                    return Long.parseLong(number);
+                }
+                return Double.parseDouble(number);
+            } catch (NumberFormatException e) {
+                pos = start;
+                throw error();
+            }
+        }
+
+        private String string() {
+            if ((pos >= s.length()) || (s.charAt(pos) != '"')) {
+                throw error();
+            }
+            pos++;
+            StringBuilder out = new StringBuilder();
+            while (pos < s.length()) {
+                char c = s.charAt(pos++);
+                if (c == '"') {
+                    return out.toString();
+                }
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                if (pos >= s.length()) {
+                    break;
+                }
+                char escaped = s.charAt(pos++);
+                switch (escaped) {
+                    case 'n':
+                        out.append('\n');
+                        break;
+                    case 'r':
+                        out.append('\r');
+                        break;
+                    case 't':
+                        out.append('\t');
+                        break;
+                    case 'b':
+                        out.append('\b');
+                        break;
+                    case 'f':
+                        out.append('\f');
+                        break;
+                    case 'u':
+                        if (pos + 4 > s.length()) {
+                            throw error();
+                        }
+                        out.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        out.append(escaped);
+                }
+            }
+            throw error();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2018, Excelsior LLC.
+ *
+ *  This file is part of Excelsior JET API.
+ *
+ *  Excelsior JET API is free software:
+ *  you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Excelsior JET API is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Excelsior JET API.
+ *  If not, see <http://www.gnu.org/licenses/>.
+ *
+*/
+package com.excelsiorjet.api.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads statistics of running processes from the Linux {@code /proc} file system.
+ * On other systems, {@link #isAvailable()} returns {@code false} and the statistics are not available.
+ */
+public class ProcFs {
+
+    private static final File PROC = new File("/proc");
+
+    /**
+     * Number of clock ticks per second, in which CPU times are reported.
+     * It is 100 on all mainstream Linux platforms.
+     */
+    public static final int CLOCK_TICKS = 100;
+
+    // indexes of fields in /proc/<pid>/stat, counting from the field that follows the command name
+    private static final int PPID = 1;
+    private static final int UTIME = 11;
+    private static final int STIME = 12;
+
+    public static boolean isAvailable() {
+        return new File(PROC, "self/stat").exists();
+    }
+
+    /**
+     * @return pid of the current JVM process
+     */
+    public static int currentPid() {
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        return Integer.parseInt(name.substring(0, name.indexOf('@')));
+    }
+
+    /**
+     * @return fields of {@code /proc/<pid>/stat} that follow the command name, or {@code null} if the process has gone
+     */
+    private static String[] stat(int pid) {
+        try {
+            String stat = new String(Files.readAllBytes(new File(PROC, pid + "/stat").toPath()));
+            // the command name is enclosed in parentheses and may contain spaces
+            return stat.substring(stat.lastIndexOf(')') + 2).trim().split(" ");
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return pids of all the running descendants of the given process
+     */
+    public static List<Integer> descendants(int pid) {
+        Map<Integer, List<Integer>> children = new HashMap<>();
+        String[] pids = PROC.list();
+        if (pids != null) {
+            for (String p : pids) {
+                if (!p.chars().allMatch(Character::isDigit)) {
+                    continue;
+                }
+                String[] stat = stat(Integer.parseInt(p));
+                if (stat != null) {
+                    children.computeIfAbsent(Integer.parseInt(stat[PPID]), k -> new ArrayList<>()).add(Integer.parseInt(p));
+                }
+            }
+        }
+        List<Integer> descendants = new ArrayList<>();
+        Deque<Integer> toVisit = new ArrayDeque<>();
+        toVisit.add(pid);
+        while (!toVisit.isEmpty()) {
+            for (int child : children.getOrDefault(toVisit.poll(), new ArrayList<>())) {
+                descendants.add(child);
+                toVisit.add(child);
+            }
+        }
+        return descendants;
+    }
+
+    /**
+     * @return pid of the given started process, or {@code -1} if it cannot be obtained on this JVM
+     */
+    public static int pid(Process process) {
+        try {
+            // Java 9+
+            return (int) (long) (Long) Process.class.getMethod("pid").invoke(process);
+        } catch (ReflectiveOperationException ignore) {
+        }
+        try {
+            // java.lang.UNIXProcess of Java 8
+            Field pid = process.getClass().getDeclaredField("pid");
+            pid.setAccessible(true);
+            return pid.getInt(process);
+        } catch (ReflectiveOperationException | RuntimeException ignore) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return numeric value of the given field of {@code /proc/<pid>/status}, or {@code 0} if not available
+     */
+    private static long statusValue(int pid, String field) {
+        try {
+            for (String line : Files.readAllLines(new File(PROC, pid + "/status").toPath())) {
+                if (line.startsWith(field + ":")) {
+                    return Long.parseLong(line.substring(field.length() + 1).trim().split("\\s+")[0]);
+                }
+            }
+        } catch (IOException | RuntimeException ignore) {
+        }
+        return 0;
+    }
+
+    /**
+     * @return resident set size of the given process in kilobytes, or {@code 0} if the process has gone
+     */
+    public static long rssKb(int pid) {
+        return statusValue(pid, "VmRSS");
+    }
+
+    /**
+     * @return proportional set size of the given process in kilobytes, that is its resident memory with the pages
+     *         shared with other processes divided between them, or {@code 0} if not available
+     */
+    public static long pssKb(int pid) {
+        File rollup = new File(PROC, pid + "/smaps_rollup");
+        File smaps = rollup.exists() ? rollup : new File(PROC, pid + "/smaps");
+        long pss = 0;
+        try {
+            for (String line : Files.readAllLines(smaps.toPath())) {
+                if (line.startsWith("Pss:")) {
+                    pss += Long.parseLong(line.substring("Pss:".length()).trim().split("\\s+")[0]);
+                }
+            }
+        } catch (IOException | RuntimeException ignore) {
+            // the process has gone or its memory map is not readable
+        }
+        return pss;
+    }
+
+    /**
+     * @return number of threads of the given process, or {@code 0} if the process has gone
+     */
+    public static int threads(int pid) {
+        return (int) statusValue(pid, "Threads");
+    }
+
+    /**
+     * @return total resident set size of the given process and its descendants in kilobytes
+     */
+    public static long treeRssKb(int pid) {
+        long rss = rssKb(pid);
+        for (int descendant : descendants(pid)) {
+            rss += rssKb(descendant);
+        }
+        return rss;
+    }
+
+    /**
+     * @return user plus system CPU time of the given process in {@link #CLOCK_TICKS}, or {@code -1} if the process has gone
+     */
+    public static long cpuTicks(int pid) {
+        String[] stat = stat(pid);
+        if (stat == null) {
+            return -1;
+        }
+        return Long.parseLong(stat[UTIME]) + Long.parseLong(stat[STIME]);
+    }
+}
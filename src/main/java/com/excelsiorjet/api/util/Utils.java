@@ -36,6 +36,8 @@ import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -82,6 +84,17 @@ public class Utils {
         });
     }
 
+    /**
+     * Deletes the given file or directory tree like {@link #cleanDirectory(File)}, but does not wait
+     * for the deletion to complete. The directory is renamed immediately, so its location can be reused
+     * right away, while its content is deleted in the background.
+     * Leftovers of previous background deletions of the same directory, e.g. interrupted by the JVM exit,
+     * are reaped as well.
+     */
+    public static void cleanDirectoryInBackground(File f) throws IOException {
+        BackgroundDeleter.delete(f);
+    }
+
     public static void cleanDirectorySilently(File f) {
         try {
             cleanDirectory(f);
@@ -127,6 +140,60 @@ public class Utils {
         });
     }
 
+    /**
+     * Makes {@code target} a hard link to {@code source}, so that the file content is shared rather than copied.
+     * Falls back to copying if the file system does not support hard links.
+     * If {@code source} is a directory, all its files are linked recursively.
+     */
+    public static void linkOrCopy(Path source, Path target) throws IOException {
+        linkOrCopy(source, target, Collections.emptyList());
+    }
+
+    /**
+     * Same as {@link #linkOrCopy(Path, Path)}, except that files within the given subtrees of {@code source}
+     * are always copied, so that rewriting them in {@code target} leaves {@code source} intact.
+     */
+    public static void linkOrCopy(Path source, Path target, Collection<Path> copiedSubtrees) throws IOException {
+        if (Files.isDirectory(source)) {
+            Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path subfolder, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(target.resolve(source.relativize(subfolder)));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path sourceFile, BasicFileAttributes attrs) throws IOException {
+                    Path targetFile = target.resolve(source.relativize(sourceFile));
+                    if (copiedSubtrees.stream().anyMatch(sourceFile::startsWith)) {
+                        Files.deleteIfExists(targetFile);
+                        copyFile(sourceFile, targetFile);
+                    } else {
+                        linkOrCopyFile(sourceFile, targetFile);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } else {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            linkOrCopyFile(source, target);
+        }
+    }
+
+    private static void linkOrCopyFile(Path source, Path target) throws IOException {
+        if (Files.exists(target)) {
+            if (Files.isSameFile(source, target)) {
+                return;
+            }
+            Files.delete(target);
+        }
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            copyFile(source, target);
+        }
+    }
+
     public static boolean isEmpty(String s) {
         return (s == null) || s.isEmpty();
     }
@@ -0,0 +1,134 @@
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.TestUtils;
+import com.excelsiorjet.api.log.Log;
+import com.excelsiorjet.api.log.StdOutLog;
+import com.excelsiorjet.api.tasks.config.compiler.AdaptiveTerminationConfig;
+import com.excelsiorjet.api.tasks.config.compiler.ExecProfilesConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveTerminatorTest {
+
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    @Before
+    public void setUp() {
+        JetProject.configureEnvironment(new StdOutLog(), ResourceBundle.getBundle("Strings"));
+    }
+
+    private AdaptiveTerminator terminator(AdaptiveTerminationConfig config, AtomicLong ticks) throws Exception {
+        config.fillDefaults();
+        AdaptiveTerminator terminator = new AdaptiveTerminator(config, () -> stopped.set(true), ticks::get);
+        terminator.start();
+        return terminator;
+    }
+
+    @Test
+    public void readinessPatternAndQuietPeriod() throws Exception {
+        AdaptiveTerminationConfig config = new AdaptiveTerminationConfig();
+        config.readinessPattern = "Started .* in [0-9.]+ seconds";
+        config.quietPeriod = 1;
+        AdaptiveTerminator terminator = terminator(config, new AtomicLong(-1));
+        Log log = terminator.observe(new StdOutLog());
+        for (int i = 0; i < 8; i++) {
+            log.info("Starting " + i);
+            Thread.sleep(250);
+        }
+        assertFalse(stopped.get());
+        log.info("Started Application in 2.5 seconds");
+        terminator.join(5000);
+        assertTrue(stopped.get());
+    }
+
+    @Test
+    public void readinessPortAndCpuThreshold() throws Exception {
+        AdaptiveTerminationConfig config = new AdaptiveTerminationConfig();
+        config.cpuThreshold = 10;
+        config.steadyStatePeriod = 1;
+        AtomicLong ticks = new AtomicLong();
+        try (ServerSocket server = new ServerSocket(0)) {
+            config.readinessPort = server.getLocalPort();
+            AdaptiveTerminator terminator = terminator(config, ticks);
+            // a full core busy: 100 ticks per second
+            for (int i = 0; i < 10; i++) {
+                ticks.addAndGet(25);
+                Thread.sleep(250);
+            }
+            assertFalse(stopped.get());
+            terminator.join(5000);
+            assertTrue(stopped.get());
+        }
+    }
+
+    @Test
+    public void exitedProcessIsNotIdle() throws Exception {
+        AdaptiveTerminationConfig config = new AdaptiveTerminationConfig();
+        config.cpuThreshold = 10;
+        config.steadyStatePeriod = 1;
+        config.maxTimeout = 3;
+        AtomicLong ticks = new AtomicLong(1000);
+        try (ServerSocket server = new ServerSocket(0)) {
+            config.readinessPort = server.getLocalPort();
+            AdaptiveTerminator terminator = terminator(config, ticks);
+            Thread.sleep(500);
+            // the ticks drop, as if the process were replaced, and then the process is gone
+            ticks.set(10);
+            Thread.sleep(1000);
+            ticks.set(-1);
+            Thread.sleep(1000);
+            assertFalse(stopped.get());
+            terminator.join(5000);
+            assertTrue(stopped.get());
+        }
+    }
+
+    @Test
+    public void maxTimeout() throws Exception {
+        AdaptiveTerminationConfig config = new AdaptiveTerminationConfig();
+        config.readinessPort = 1;
+        config.quietPeriod = 1;
+        config.maxTimeout = 1;
+        AdaptiveTerminator terminator = terminator(config, new AtomicLong(-1));
+        terminator.join(5000);
+        assertTrue(stopped.get());
+    }
+
+    @Test
+    public void finishedByItself() throws Exception {
+        AdaptiveTerminationConfig config = new AdaptiveTerminationConfig();
+        config.quietPeriod = 1;
+        AdaptiveTerminator terminator = terminator(config, new AtomicLong(-1));
+        terminator.finish();
+        terminator.join(5000);
+        assertFalse(stopped.get());
+    }
+
+    @Test(expected = JetTaskFailureException.class)
+    public void noSteadyStateCriterion() throws Exception {
+        AdaptiveTerminationConfig config = new AdaptiveTerminationConfig();
+        config.readinessPort = 8080;
+        config.fillDefaults();
+    }
+
+    @Test
+    public void stopsItsOwnRun() throws Exception {
+        File termFile = new File(TestUtils.workDir(), "adaptiveTermination.term");
+        termFile.delete();
+        ExecProfilesConfig execProfiles = new ExecProfilesConfig();
+        execProfiles.adaptiveTermination = new AdaptiveTerminationConfig();
+        execProfiles.adaptiveTermination.quietPeriod = 1;
+        AdaptiveTerminator terminator = AdaptiveTerminator.startIfDefined(execProfiles, termFile, new LaunchedProcess());
+        terminator.join(5000);
+        assertTrue(termFile.exists());
+        termFile.delete();
+    }
+}
@@ -0,0 +1,94 @@
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.util.Utils;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ArchiveExploderTest {
+
+    private static Map<String, byte[]> content(String... nameAndContent) throws Exception {
+        Map<String, byte[]> content = new LinkedHashMap<>();
+        for (int i = 0; i < nameAndContent.length; i += 2) {
+            content.put(nameAndContent[i], nameAndContent[i + 1].getBytes("UTF-8"));
+        }
+        return content;
+    }
+
+    private static String read(File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), "UTF-8");
+    }
+
+    @Test
+    public void explodesIncrementally() throws Exception {
+        File dir = Files.createTempDirectory("exploder").toFile();
+        try {
+            File archive = new File(dir, "app.jar");
+            File target = new File(dir, "build/app.jar");
+            ClasspathIndexTest.createJar(archive, null, content(
+                    "BOOT-INF/classes/App.class", "app",
+                    "BOOT-INF/lib/a.jar", "a",
+                    "BOOT-INF/lib/b.jar", "b"));
+            ArchiveExploder.Result result = new ArchiveExploder(archive, target).explode();
+            // the manifest is extracted as well
+            assertEquals(4, result.extracted.size());
+            assertEquals(0, result.reused);
+            assertEquals("a", read(new File(target, "BOOT-INF/lib/a.jar")));
+            assertTrue(new ArchiveExploder(archive, target).stampsFile().isFile());
+
+            assertTrue(new ArchiveExploder(archive, target).explode().isUpToDate());
+
+            ClasspathIndexTest.createJar(archive, null, content(
+                    "BOOT-INF/classes/App.class", "app2",
+                    "BOOT-INF/lib/a.jar", "a"));
+            result = new ArchiveExploder(archive, target).explode();
+            assertEquals(Collections.singletonList("BOOT-INF/classes/App.class"), result.extracted);
+            assertEquals(2, result.reused);
+            assertEquals(Collections.singletonList("BOOT-INF/lib/b.jar"), result.removed);
+            assertEquals("app2", read(new File(target, "BOOT-INF/classes/App.class")));
+            assertFalse(new File(target, "BOOT-INF/lib/b.jar").exists());
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    @Test
+    public void replacesCopiedArchive() throws Exception {
+        File dir = Files.createTempDirectory("exploder").toFile();
+        try {
+            File archive = new File(dir, "app.jar");
+            ClasspathIndexTest.createJar(archive, null, content("BOOT-INF/lib/a.jar", "a"));
+            File target = new File(dir, "build/app.jar");
+            target.getParentFile().mkdirs();
+            Files.copy(archive.toPath(), target.toPath());
+            new ArchiveExploder(archive, target).explode();
+            assertTrue(new File(target, "BOOT-INF/lib/a.jar").isFile());
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    @Test
+    public void rejectsEntriesOutsideTarget() throws Exception {
+        File dir = Files.createTempDirectory("exploder").toFile();
+        try {
+            File archive = new File(dir, "app.jar");
+            ClasspathIndexTest.createJar(archive, null, content("../evil.txt", "evil"));
+            try {
+                new ArchiveExploder(archive, new File(dir, "build/app.jar")).explode();
+                fail("entry outside the target directory extracted");
+            } catch (java.io.IOException e) {
+                assertFalse(new File(dir, "build/evil.txt").exists());
+            }
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.excelsiorjet.api.tasks;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+public class BenchmarkStatisticsTest {
+
+    @Test
+    public void summarize() {
+        List<Long> values = new ArrayList<>();
+        for (long i = 100; i >= 1; i--) {
+            values.add(i);
+        }
+        Collections.shuffle(values);
+        Map<String, Long> summary = BenchmarkStatistics.summarize(values);
+        assertEquals(1, (long) summary.get("min"));
+        assertEquals(50, (long) summary.get("median"));
+        assertEquals(90, (long) summary.get("p90"));
+        assertEquals(99, (long) summary.get("p99"));
+        assertEquals(100, (long) summary.get("max"));
+        assertEquals(50, (long) summary.get("mean"));
+    }
+
+    @Test
+    public void singleValue() {
+        Map<String, Long> summary = BenchmarkStatistics.summarize(asList(42L));
+        assertEquals(42, (long) summary.get("min"));
+        assertEquals(42, (long) summary.get("p99"));
+    }
+}
@@ -0,0 +1,67 @@
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.tasks.config.ApplicationType;
+import com.excelsiorjet.api.tasks.config.dependencies.ProjectDependency;
+import com.excelsiorjet.api.util.Utils;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+public class ClasspathConflictsTest {
+
+    @Test
+    public void detect() {
+        ClasspathConflicts conflicts = ClasspathConflicts.detect(Arrays.asList(
+                new ClasspathConflicts.Unit("a.jar", Arrays.asList("com/a/A", "com/a/B", "com/shared/package-info", "com/shared/X")),
+                new ClasspathConflicts.Unit("b.jar", Arrays.asList("com/a/A", "com/a/B")),
+                new ClasspathConflicts.Unit("c.jar", Arrays.asList("com/shared/package-info", "com/shared/Y", "com/c/C"))));
+
+        assertEquals(2, conflicts.duplicateClasses.size());
+        assertEquals(Arrays.asList("a.jar", "b.jar"), conflicts.duplicateClasses.get("com/a/A"));
+        // com/a is present in two jars only due to the duplicates
+        assertEquals(1, conflicts.splitPackages.size());
+        assertEquals(Arrays.asList("a.jar", "c.jar"), conflicts.splitPackages.get("com/shared"));
+    }
+
+    @Test
+    public void report() throws Exception {
+        Tests.testProject(ApplicationType.PLAIN);
+        ClasspathConflicts conflicts = ClasspathConflicts.detect(Arrays.asList(
+                new ClasspathConflicts.Unit("a.jar", Arrays.asList("p/A", "p/B", "p/C", "p/D")),
+                new ClasspathConflicts.Unit("b.jar", Arrays.asList("p/A", "p/B", "p/C", "p/D"))));
+        assertEquals("  4 class(es) found in each of a.jar, b.jar, e.g. p/A, p/B, p/C",
+                conflicts.duplicateClassesReport());
+    }
+
+    @Test
+    public void unitsAreNamedByCoordinates() throws Exception {
+        File dir = Files.createTempDirectory("conflicts").toFile();
+        try {
+            File app = new File(dir, "app.jar");
+            File dep = new File(dir, "dep.jar");
+            File ext = new File(dir, "ext.jar");
+            ClasspathIndexTest.createJar(app, null, "App.class");
+            ClasspathIndexTest.createJar(dep, null, "p/A.class");
+            ClasspathIndexTest.createJar(ext, null, "p/A.class");
+            ProjectDependency projectDependency = DependencyBuilder.testProjectDependency(dep).artifactId("dep").asProjectDependency();
+            JetProject prj = Tests.testProject(ApplicationType.PLAIN).
+                    mainJar(app).
+                    jetOutputDir(new File(dir, "jet")).
+                    projectDependencies(singletonList(projectDependency)).
+                    dependencies(singletonList(DependencyBuilder.testExternalDependency(ext).asDependencySettings()));
+            prj.processDependencies();
+
+            ClasspathConflicts conflicts = ClasspathConflicts.detect(ClasspathConflicts.units(prj));
+            assertEquals(Arrays.asList("(groupId:dep:" + projectDependency.version + ")", "ext.jar"),
+                    conflicts.duplicateClasses.get("p/A"));
+            assertEquals("(prjGroup:test:0.1)", ClasspathConflicts.units(prj).get(0).name);
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+}
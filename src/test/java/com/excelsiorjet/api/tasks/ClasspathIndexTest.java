@@ -0,0 +1,98 @@
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.util.Utils;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import static org.junit.Assert.*;
+
+public class ClasspathIndexTest {
+
+    static void createJar(File jar, String mainClass, String... entries) throws IOException {
+        Map<String, byte[]> content = new LinkedHashMap<>();
+        for (String entry : entries) {
+            content.put(entry, entry.getBytes("UTF-8"));
+        }
+        createJar(jar, mainClass, content);
+    }
+
+    static void createJar(File jar, String mainClass, Map<String, byte[]> entries) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (mainClass != null) {
+            manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, mainClass);
+        }
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey()));
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+    }
+
+    @Test
+    public void indexArchives() throws Exception {
+        File dir = Files.createTempDirectory("cpindex").toFile();
+        try {
+            File dep = new File(dir, "dep.jar");
+            createJar(dep, null, "org/dep/Dep.class");
+            File jar = new File(dir, "app.jar");
+            Map<String, byte[]> entries = new LinkedHashMap<>();
+            for (String entry : Arrays.asList("com/example/Main.class", "com/example/util/Util.class",
+                    "META-INF/versions/9/com/example/Main.class", "app.properties")) {
+                entries.put(entry, new byte[1]);
+            }
+            entries.put("BOOT-INF/lib/dep.jar", Files.readAllBytes(dep.toPath()));
+            createJar(jar, "com.example.Main", entries);
+            File classes = new File(dir, "classes");
+            new File(classes, "org/test").mkdirs();
+            Files.write(new File(classes, "org/test/A.class").toPath(), new byte[10]);
+            File cacheDir = new File(dir, "cache");
+
+            List<ClasspathIndex.Archive> archives = new ClasspathIndex().scan(Arrays.asList(jar, classes), cacheDir);
+            ClasspathIndex.Archive archive = archives.get(0);
+            assertEquals("com.example.Main", archive.manifestAttribute("main-class"));
+            assertEquals(Arrays.asList("com/example/Main", "com/example/util/Util"), archive.classes);
+            assertEquals(Arrays.asList("com/example", "com/example/util"), Arrays.asList(archive.packages.toArray()));
+            assertEquals(Arrays.asList("BOOT-INF/lib/dep.jar"), archive.nestedArchives);
+            assertEquals(Arrays.asList("org/dep/Dep"), archive.nestedClasses.get("BOOT-INF/lib/dep.jar"));
+            assertEquals(6, archive.entryCount);
+            assertEquals(jar.length(), archive.size);
+            assertEquals(ClasspathIndex.contentHash(jar), archive.hash);
+            assertTrue(new File(cacheDir, archive.hash + ".json").isFile());
+
+            ClasspathIndex.Archive directory = archives.get(1);
+            assertTrue(directory.isDirectory());
+            assertEquals(Arrays.asList("org/test/A"), directory.classes);
+            assertEquals(10, directory.uncompressedSize);
+
+            // a fresh index takes the archive contents from the cache
+            ClasspathIndex.Archive cached = new ClasspathIndex().scan(Arrays.asList(jar), cacheDir).get(0);
+            assertEquals(archive.hash, cached.hash);
+            assertEquals(archive.classes, cached.classes);
+            assertEquals(archive.manifest, cached.manifest);
+            assertEquals(archive.nestedClasses, cached.nestedClasses);
+
+            // a changed archive is rescanned
+            createJar(jar, null, "com/example/Other.class");
+            ClasspathIndex.Archive changed = new ClasspathIndex().scan(Arrays.asList(jar), cacheDir).get(0);
+            assertEquals(Arrays.asList("com/example/Other"), changed.classes);
+            assertNull(changed.manifestAttribute("Main-Class"));
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+}
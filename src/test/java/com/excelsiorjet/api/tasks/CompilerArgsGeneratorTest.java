@@ -2,10 +2,12 @@ package com.excelsiorjet.api.tasks;
 
 import com.excelsiorjet.api.ExcelsiorJet;
 import com.excelsiorjet.api.tasks.config.compiler.ExecProfilesConfig;
+import com.excelsiorjet.api.tasks.config.compiler.TestRunScenario;
 import com.excelsiorjet.api.tasks.config.dependencies.DependencySettings;
 import com.excelsiorjet.api.tasks.config.dependencies.ProjectDependency;
 import com.excelsiorjet.api.tasks.config.ApplicationType;
 import com.excelsiorjet.api.tasks.config.dependencies.OptimizationPreset;
+import com.excelsiorjet.api.util.Utils;
 import org.junit.Test;
 import org.mockito.Mockito;
 
@@ -259,6 +261,72 @@ public class CompilerArgsGeneratorTest {
         assertTrue(compilerArgsGenerator.projectFileContent().endsWith(expectedPrjTail));
     }
 
+    @Test
+    public void testSpringBootProvidedDependency() throws Exception {
+        File dir = java.nio.file.Files.createTempDirectory("springboot").toFile();
+        try {
+            File war = new File(dir, "test.war");
+            ClasspathIndexTest.createJar(war, null, "WEB-INF/lib/dep.jar", "WEB-INF/lib-provided/provided.jar");
+            DependencySettings providedSettings = DependencyBuilder.artifactDependencySettings("provided")
+                    .optimize(ClasspathEntry.OptimizationType.AUTO_DETECT).asDependencySettings();
+            JetProject prj = testProject(ApplicationType.SPRING_BOOT).
+                    mainJar(null).
+                    mainWar(war).
+                    projectDependencies(asList(
+                            DependencyBuilder.testProjectDependency(new File(dir, "dep.jar")).asProjectDependency(),
+                            DependencyBuilder.testProjectDependency(new File(dir, "provided.jar")).artifactId("provided").asProjectDependency())).
+                    dependencies(singletonList(providedSettings));
+            prj.processDependencies();
+
+            CompilerArgsGenerator compilerArgsGenerator = new CompilerArgsGenerator(prj, excelsiorJet(), false);
+            String expectedPrjTail = linesToString(
+                    "!classloaderentry springboot test.war:/WEB-INF/lib/dep.jar",
+                    "  -optimize=all",
+                    "  -protect=all",
+                    "!end",
+                    "!classloaderentry springboot test.war:/WEB-INF/lib-provided/provided.jar",
+                    "  -optimize=autodetect",
+                    "  -protect=all",
+                    "!end");
+            assertTrue(compilerArgsGenerator.projectFileContent().endsWith(expectedPrjTail));
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    @Test
+    public void testSpringBootExplodedArchive() throws Exception {
+        File dir = java.nio.file.Files.createTempDirectory("springboot").toFile();
+        try {
+            File jar = new File(dir, "test.jar");
+            ClasspathIndexTest.createJar(jar, null, "BOOT-INF/classes/App.class", "BOOT-INF/lib/dep.jar");
+            JetProject prj = testProject(ApplicationType.SPRING_BOOT).
+                    mainJar(jar).
+                    jetOutputDir(new File(dir, "jet")).
+                    jetBuildDir(new File(dir, "jet/build")).
+                    projectDependencies(singletonList(
+                            DependencyBuilder.testProjectDependency(new File(dir, "dep.jar")).asProjectDependency())).
+                    springBootExploded(true);
+            prj.processDependencies();
+            Utils.mkdir(prj.jetBuildDir());
+            prj.copySpringBootArtifact();
+
+            // the compiler and the packager are given the archive, not the extracted directory
+            File staged = new File(prj.jetBuildDir(), "test.jar");
+            assertTrue(staged.isFile());
+            assertTrue(new File(dir, "jet/springboot/test.jar/BOOT-INF/lib/dep.jar").isFile());
+            String prjContent = new CompilerArgsGenerator(prj, excelsiorJet(), false).projectFileContent();
+            assertTrue(prjContent.contains("-springbootarchive=test.jar"));
+            assertTrue(prjContent.contains("!classloaderentry springboot test.jar:/BOOT-INF/lib/dep.jar"));
+
+            prj.springBootExploded(false).copySpringBootArtifact();
+            assertTrue(staged.isFile());
+            assertFalse(new File(dir, "jet/springboot/test.jar").exists());
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
     @Test
     public void testInvocationDll() throws Exception {
         File depFileSpy = Tests.mavenDepSpy("dep.jar");
@@ -355,4 +423,24 @@ public class CompilerArgsGeneratorTest {
         assertTrue(prjContent.contains("-Djet.profiler"));
         assertTrue(prjContent.contains("-Djet.jprof.name"));
     }
+
+    @Test
+    public void testScenarioUsageLists() throws JetTaskFailureException, IOException {
+        JetProject prj = Mockito.spy(testProject(ApplicationType.PLAIN));
+        ExecProfilesConfig execProfiles = Mockito.mock(ExecProfilesConfig.class);
+        Mockito.doReturn(new File("Test.jprof")).when(execProfiles).getJProfile();
+        // left by an earlier single Test Run
+        Mockito.doReturn(Tests.fileSpy("Test.usg")).when(execProfiles).getUsg();
+        Mockito.doReturn(asList(Tests.fileSpy("Test.import.usg"), Tests.fileSpy("Test.server.usg")))
+                .when(execProfiles).getScenarioUsgs();
+        Mockito.doCallRealMethod().when(execProfiles).getTestRunUsgs();
+        execProfiles.testRunScenarios = asList(new TestRunScenario(), new TestRunScenario());
+        Mockito.when(prj.execProfiles()).thenReturn(execProfiles);
+        prj.validate(excelsiorJet(), true);
+
+        String prjContent = new CompilerArgsGenerator(prj, excelsiorJet(), false).projectFileContent();
+        assertFalse(prjContent.contains("!module " + "Test.usg"));
+        assertTrue(prjContent.contains("!module " + "Test.import.usg"));
+        assertTrue(prjContent.contains("!module " + "Test.server.usg"));
+    }
 }
@@ -0,0 +1,205 @@
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.ExcelsiorJet;
+import com.excelsiorjet.api.tasks.config.ApplicationType;
+import com.excelsiorjet.api.tasks.config.dependencies.ProjectDependency;
+import com.excelsiorjet.api.util.Txt;
+import com.excelsiorjet.api.util.Utils;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+public class ComponentBuilderTest {
+
+    private static ExcelsiorJet excelsiorJet() throws Exception {
+        ExcelsiorJet excelsiorJet = Tests.excelsiorJet();
+        Mockito.when(excelsiorJet.compile(Mockito.any(File.class), Mockito.eq("=p"), Mockito.eq("lib.prj"))).thenAnswer(invocation -> {
+            File dir = (File) invocation.getArguments()[0];
+            Files.write(new File(dir, "lib.dll").toPath(), new byte[]{1});
+            return 0;
+        });
+        return excelsiorJet;
+    }
+
+    private static JetProject componentProject(File dir) throws Exception {
+        File lib = new File(dir, "lib.jar");
+        File app = new File(dir, "app.jar");
+        ClasspathIndexTest.createJar(app, null, "App.class");
+        ClasspathIndexTest.createJar(new File(dir, "other.jar"), null, "other/Other.class");
+        JetProject prj = Tests.testProject(ApplicationType.PLAIN).
+                mainJar(app).
+                jetOutputDir(new File(dir, "jet")).
+                projectDependencies(asList(
+                        DependencyBuilder.testProjectDependency(lib).artifactId("lib").asProjectDependency(),
+                        DependencyBuilder.testProjectDependency(new File(dir, "other.jar")).artifactId("other").asProjectDependency())).
+                components(singletonList(DependencyBuilder.artifactDependencySettings("lib").asDependencySettings()));
+        prj.processDependencies();
+        return prj;
+    }
+
+    @Test
+    public void componentIsUsedByApplication() throws Exception {
+        File dir = Files.createTempDirectory("components").toFile();
+        try {
+            ClasspathIndexTest.createJar(new File(dir, "lib.jar"), null, "lib/Lib.class");
+            JetProject prj = componentProject(dir);
+            CompilerArgsGenerator compilerArgsGenerator = new CompilerArgsGenerator(prj, excelsiorJet(), false);
+            List<ComponentBuilder.Component> components = new ComponentBuilder(excelsiorJet(), prj, compilerArgsGenerator).build();
+            assertEquals(1, components.size());
+            assertTrue(components.get(0).library.isFile());
+            String componentProject = new String(Files.readAllBytes(components.get(0).projectFile.toPath()), "UTF-8");
+            assertTrue(componentProject.contains("-gendll+"));
+            assertTrue(componentProject.contains("!classpathentry lib/lib.jar"));
+
+            compilerArgsGenerator.componentProjects(singletonList(components.get(0).projectFile));
+            String appProject = compilerArgsGenerator.projectFileContent();
+            assertFalse(appProject.contains("lib/lib.jar"));
+            assertTrue(appProject.contains("!classpathentry lib/other.jar"));
+            assertTrue(appProject.contains("!uses " + components.get(0).projectFile.getPath().replace(File.separatorChar, '/')));
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    @Test
+    public void componentIsRebuiltOnlyWhenChanged() throws Exception {
+        File dir = Files.createTempDirectory("components").toFile();
+        try {
+            ClasspathIndexTest.createJar(new File(dir, "lib.jar"), null, "lib/Lib.class");
+            JetProject prj = componentProject(dir);
+            ExcelsiorJet excelsiorJet = excelsiorJet();
+            CompilerArgsGenerator compilerArgsGenerator = new CompilerArgsGenerator(prj, excelsiorJet, false);
+            ComponentBuilder.Component first = new ComponentBuilder(excelsiorJet, prj, compilerArgsGenerator).build().get(0);
+            ComponentBuilder.Component second = new ComponentBuilder(excelsiorJet, prj, compilerArgsGenerator).build().get(0);
+            assertFalse(first.reused);
+            assertTrue(second.reused);
+            assertEquals(first.library, second.library);
+
+            ClasspathIndexTest.createJar(new File(dir, "lib.jar"), null, "lib/Lib.class", "lib/Lib2.class");
+            ComponentBuilder.Component changed = new ComponentBuilder(excelsiorJet, prj, compilerArgsGenerator).build().get(0);
+            assertFalse(changed.reused);
+            assertFalse(changed.library.equals(first.library));
+            assertFalse(first.library.getParentFile().exists());
+            Mockito.verify(excelsiorJet, Mockito.times(2)).compile(Mockito.any(File.class), Mockito.eq("=p"), Mockito.eq("lib.prj"));
+
+            // a maintenance pack installed into the same Excelsior JET home
+            Mockito.doReturn("Excelsior JET version 15.3.0.1").when(excelsiorJet).getVersionString();
+            ComponentBuilder.Component updated = new ComponentBuilder(excelsiorJet, prj, compilerArgsGenerator).build().get(0);
+            assertFalse(updated.reused);
+            assertFalse(updated.library.equals(changed.library));
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    static class Core {
+        Logging logging;
+    }
+
+    static class Logging {
+    }
+
+    private static void createClassJar(File jar, Class<?> cls) throws Exception {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put(ReachabilityAnalyzerTest.internalName(cls) + ".class", ReachabilityAnalyzerTest.classFile(cls));
+        ClasspathIndexTest.createJar(jar, null, entries);
+    }
+
+    private static JetProject coreAndLoggingProject(File dir, boolean loggingIsComponent) throws Exception {
+        File app = new File(dir, "app.jar");
+        ClasspathIndexTest.createJar(app, null, "App.class");
+        File core = new File(dir, "core.jar");
+        File logging = new File(dir, "logging.jar");
+        createClassJar(core, Core.class);
+        createClassJar(logging, Logging.class);
+        JetProject prj = Tests.testProject(ApplicationType.PLAIN).
+                mainJar(app).
+                jetOutputDir(new File(dir, "jet")).
+                projectDependencies(asList(
+                        DependencyBuilder.testProjectDependency(core).artifactId("core").asProjectDependency(),
+                        DependencyBuilder.testProjectDependency(logging).artifactId("logging").asProjectDependency())).
+                components(loggingIsComponent ?
+                        asList(DependencyBuilder.artifactDependencySettings("core").asDependencySettings(),
+                                DependencyBuilder.artifactDependencySettings("logging").asDependencySettings()) :
+                        singletonList(DependencyBuilder.artifactDependencySettings("core").asDependencySettings()));
+        prj.processDependencies();
+        return prj;
+    }
+
+    @Test
+    public void componentUsesReferencedComponent() throws Exception {
+        File dir = Files.createTempDirectory("components").toFile();
+        try {
+            JetProject prj = coreAndLoggingProject(dir, true);
+            ExcelsiorJet excelsiorJet = Tests.excelsiorJet();
+            Mockito.when(excelsiorJet.compile(Mockito.any(File.class), Mockito.eq("=p"), Mockito.anyString())).thenAnswer(invocation -> {
+                File componentDir = (File) invocation.getArguments()[0];
+                String prjName = (String) invocation.getArguments()[2];
+                Files.write(new File(componentDir, prjName.replace(".prj", ".dll")).toPath(), new byte[]{1});
+                return 0;
+            });
+            List<ComponentBuilder.Component> components =
+                    new ComponentBuilder(excelsiorJet, prj, new CompilerArgsGenerator(prj, excelsiorJet, false)).build();
+
+            // core refers to logging, so logging goes first
+            assertEquals(2, components.size());
+            ComponentBuilder.Component logging = components.get(0);
+            ComponentBuilder.Component core = components.get(1);
+            assertEquals("logging", logging.name);
+            assertEquals("core", core.name);
+            InOrder inOrder = Mockito.inOrder(excelsiorJet);
+            inOrder.verify(excelsiorJet).compile(logging.projectFile.getParentFile(), "=p", "logging.prj");
+            inOrder.verify(excelsiorJet).compile(core.projectFile.getParentFile(), "=p", "core.prj");
+
+            String coreProject = new String(Files.readAllBytes(core.projectFile.toPath()), "UTF-8");
+            assertTrue(coreProject.contains("!uses ../" + logging.projectFile.getParentFile().getName() + "/logging.prj"));
+            String loggingProject = new String(Files.readAllBytes(logging.projectFile.toPath()), "UTF-8");
+            assertFalse(loggingProject.contains("!uses"));
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    @Test
+    public void componentMustNotReferToApplication() throws Exception {
+        File dir = Files.createTempDirectory("components").toFile();
+        try {
+            JetProject prj = coreAndLoggingProject(dir, false);
+            ExcelsiorJet excelsiorJet = Tests.excelsiorJet();
+            try {
+                new ComponentBuilder(excelsiorJet, prj, new CompilerArgsGenerator(prj, excelsiorJet, false)).build();
+                fail("component referring to the application expected to fail");
+            } catch (JetTaskFailureException e) {
+                assertEquals(Txt.s("JetApi.Components.RefersToApplication.Failure", "core", "core.jar", "logging.jar"),
+                        e.getMessage());
+            }
+            Mockito.verify(excelsiorJet, Mockito.never()).compile(Mockito.any(File.class), Mockito.<String>anyVararg());
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    @Test
+    public void overlappedComponents() throws Exception {
+        ProjectDependency dep = DependencyBuilder.testProjectDependency(Tests.mavenDepSpy("dep.jar")).asProjectDependency();
+        JetProject prj = Tests.testProject(ApplicationType.PLAIN).
+                projectDependencies(singletonList(dep)).
+                components(asList(DependencyBuilder.groupDependencySettings("groupId").asDependencySettings(),
+                        DependencyBuilder.artifactDependencySettings("artifactId").asDependencySettings()));
+        Tests.assertThrows(prj::processDependencies,
+                Txt.s("JetApi.Components.Overlapped.Failure", dep.idStr(true), "groupId", "artifactId"));
+        prj.components(Collections.emptyList());
+        Tests.assertNotThrows(prj::processDependencies);
+    }
+}
@@ -6,7 +6,11 @@ import com.excelsiorjet.api.tasks.config.dependencies.OptimizationPreset;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.Arrays.asList;
 import static org.junit.Assert.*;
@@ -121,4 +125,76 @@ public class DependencySettingsResolverTest {
         assertEquals(ClasspathEntry.OptimizationType.AUTO_DETECT, resolvedDep.optimize);
     }
 
-}
\ No newline at end of file
+    /**
+     * Settings that count how many times they are matched against a dependency.
+     */
+    private static class CountingSettings extends DependencySettings {
+        static final AtomicLong matchCount = new AtomicLong();
+
+        CountingSettings(String groupId, String artifactId, String version) {
+            super(groupId, artifactId, version, null);
+            packagePath = idStr();
+        }
+
+        @Override
+        public boolean matches(ProjectDependency dep) {
+            matchCount.incrementAndGet();
+            return super.matches(dep);
+        }
+    }
+
+    private static DependencySettings settings(String groupId, String artifactId, String version) {
+        return new CountingSettings(groupId, artifactId, version);
+    }
+
+    @Test
+    public void testScalesToLargeDependencyGraphs() throws Exception {
+        List<ProjectDependency> deps = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            deps.add(new ProjectDependency("group" + (i % 100), "artifact" + i, "1." + (i % 3), new File("/dep" + i), false));
+        }
+        List<DependencySettings> settingsList = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            switch (i % 4) {
+                case 0: settingsList.add(settings("group" + (i % 100), null, null)); break;
+                case 1: settingsList.add(settings("group" + (i % 100), "artifact" + i, null)); break;
+                case 2: settingsList.add(settings(null, "artifact" + i, "1." + (i % 3))); break;
+                default: settingsList.add(settings("group" + (i % 100), "artifact" + (i - 2), "1." + ((i - 2) % 3))); break;
+            }
+        }
+        // drop duplicate ids, as the project validation does
+        List<DependencySettings> uniqueSettings = new ArrayList<>();
+        settingsList.stream().filter(s -> uniqueSettings.stream().noneMatch(u -> u.idStr().equals(s.idStr())))
+                .forEach(uniqueSettings::add);
+
+        CountingSettings.matchCount.set(0);
+        DependencySettingsResolver resolver = new DependencySettingsResolver(OptimizationPreset.SMART, "group0", uniqueSettings);
+        List<ClasspathEntry> entries = new ArrayList<>();
+        for (ProjectDependency dep : deps) {
+            entries.add(resolver.resolve(dep));
+        }
+        ProjectDependencyIndex index = new ProjectDependencyIndex(deps);
+        int matched = 0;
+        for (DependencySettings settings : uniqueSettings) {
+            matched += index.matchedBy(settings).size();
+        }
+        // matching every settings instance against every dependency would take
+        // uniqueSettings.size() * deps.size() comparisons for each of resolution and indexing
+        long comparisons = CountingSettings.matchCount.get();
+        assertTrue("comparisons: " + comparisons, comparisons <= 2L * deps.size());
+
+        // compare with the straightforward matching on a sample of the dependencies
+        DependencySettingsPriorityComparator comparator = new DependencySettingsPriorityComparator();
+        for (int i = 0; i < deps.size(); i += 37) {
+            ProjectDependency dep = deps.get(i);
+            Optional<DependencySettings> top = uniqueSettings.stream().filter(s -> s.matches(dep)).max(comparator);
+            assertEquals(top.map(s -> s.packagePath).orElse(null), entries.get(i).packagePath);
+        }
+        int expectedMatched = 0;
+        for (DependencySettings settings : uniqueSettings) {
+            expectedMatched += deps.stream().filter(settings::matches).count();
+        }
+        assertEquals(expectedMatched, matched);
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.tasks.config.ApplicationType;
+import com.excelsiorjet.api.util.Utils;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.jar.JarFile;
+
+import static com.excelsiorjet.api.tasks.Tests.excelsiorJet;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public class JarConsolidatorTest {
+
+    private static String read(JarFile jar, String name) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utils.copy(jar.getInputStream(jar.getEntry(name)), out);
+        return new String(out.toByteArray(), "UTF-8");
+    }
+
+    @Test
+    public void mergesJarsAndServices() throws Exception {
+        File dir = Files.createTempDirectory("consolidation").toFile();
+        try {
+            File a = new File(dir, "a.jar");
+            File b = new File(dir, "b.jar");
+            File clashing = new File(dir, "clashing.jar");
+            File signed = new File(dir, "signed.jar");
+            ClasspathIndexTest.createJar(a, null, "a/A.class", "META-INF/services/p.Service");
+            ClasspathIndexTest.createJar(b, null, "b/B.class", "META-INF/services/p.Service");
+            ClasspathIndexTest.createJar(clashing, null, "a/A.class");
+            ClasspathIndexTest.createJar(signed, null, "s/S.class", "META-INF/SIGNER.SF");
+
+            JarConsolidator consolidator = new JarConsolidator();
+            assertTrue(consolidator.add(a));
+            assertTrue(consolidator.add(b));
+            assertFalse(consolidator.add(clashing));
+            assertFalse(consolidator.add(signed));
+            assertEquals(asList(a, b), consolidator.jars());
+
+            File combined = new File(dir, "out/combined.jar");
+            assertTrue(consolidator.merge(combined));
+            try (JarFile jar = new JarFile(combined)) {
+                assertNotNull(jar.getEntry("a/A.class"));
+                assertNotNull(jar.getEntry("b/B.class"));
+                assertEquals("META-INF/services/p.Service\nMETA-INF/services/p.Service\n",
+                        read(jar, "META-INF/services/p.Service"));
+            }
+            // same content, so the combined jar stays intact
+            assertFalse(consolidator.merge(combined));
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    @Test
+    public void classpathEntriesAreRewritten() throws Exception {
+        checkClasspathEntriesAreRewritten(ApplicationType.PLAIN);
+    }
+
+    @Test
+    public void classpathEntriesAreRewrittenForDynamicLibrary() throws Exception {
+        checkClasspathEntriesAreRewritten(ApplicationType.DYNAMIC_LIBRARY);
+    }
+
+    @Test
+    public void classpathEntriesAreRewrittenForWindowsService() throws Exception {
+        checkClasspathEntriesAreRewritten(ApplicationType.WINDOWS_SERVICE);
+    }
+
+    private void checkClasspathEntriesAreRewritten(ApplicationType appType) throws Exception {
+        File dir = Files.createTempDirectory("consolidation").toFile();
+        try {
+            File app = new File(dir, "app.jar");
+            ClasspathIndexTest.createJar(app, null, "App.class");
+            File a = new File(dir, "a.jar");
+            File b = new File(dir, "b.jar");
+            File packed = new File(dir, "packed.jar");
+            ClasspathIndexTest.createJar(a, null, "a/A.class");
+            ClasspathIndexTest.createJar(b, null, "b/B.class");
+            ClasspathIndexTest.createJar(packed, null, "p/P.class");
+            JetProject prj = Tests.testProject(appType).
+                    mainJar(app).
+                    jetOutputDir(new File(dir, "jet")).
+                    jetBuildDir(new File(dir, "jet/build")).
+                    projectDependencies(asList(
+                            DependencyBuilder.testProjectDependency(a).artifactId("a").asProjectDependency(),
+                            DependencyBuilder.testProjectDependency(b).artifactId("b").asProjectDependency(),
+                            DependencyBuilder.testProjectDependency(packed).artifactId("packed").asProjectDependency())).
+                    dependencies(asList(
+                            DependencyBuilder.artifactDependencySettings("a").pack(ClasspathEntry.PackType.NONE).asDependencySettings(),
+                            DependencyBuilder.artifactDependencySettings("b").pack(ClasspathEntry.PackType.NONE).asDependencySettings())).
+                    smallJarsConsolidation(true);
+            prj.processDependencies();
+
+            List<ClasspathEntry> entries = prj.copyClasspathEntries();
+            assertEquals(3, entries.size());
+            assertEquals("consolidated-1.jar", entries.get(1).path.getName());
+            assertEquals("packed.jar", entries.get(2).path.getName());
+            assertTrue(new File(dir, "jet/build/lib/consolidated-1.jar").isFile());
+
+            String project = new CompilerArgsGenerator(prj, excelsiorJet(), false).projectFileContent();
+            assertTrue(project.contains("!classpathentry lib/consolidated-1.jar"));
+            assertFalse(project.contains("lib/a.jar"));
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    @Test
+    public void classpathOrderIsPreserved() throws Exception {
+        File dir = Files.createTempDirectory("consolidation").toFile();
+        try {
+            File app = new File(dir, "app.jar");
+            ClasspathIndexTest.createJar(app, null, "App.class");
+            File a = new File(dir, "a.jar");
+            File b = new File(dir, "b.jar");
+            File packed = new File(dir, "packed.jar");
+            ClasspathIndexTest.createJar(a, null, "a/A.class");
+            // overlaps with the jar before it, which must keep precedence
+            ClasspathIndexTest.createJar(packed, null, "b/B.class");
+            ClasspathIndexTest.createJar(b, null, "b/B.class");
+            JetProject prj = Tests.testProject(ApplicationType.PLAIN).
+                    mainJar(app).
+                    jetOutputDir(new File(dir, "jet")).
+                    jetBuildDir(new File(dir, "jet/build")).
+                    projectDependencies(asList(
+                            DependencyBuilder.testProjectDependency(a).artifactId("a").asProjectDependency(),
+                            DependencyBuilder.testProjectDependency(packed).artifactId("packed").asProjectDependency(),
+                            DependencyBuilder.testProjectDependency(b).artifactId("b").asProjectDependency())).
+                    dependencies(asList(
+                            DependencyBuilder.artifactDependencySettings("a").pack(ClasspathEntry.PackType.NONE).asDependencySettings(),
+                            DependencyBuilder.artifactDependencySettings("b").pack(ClasspathEntry.PackType.NONE).asDependencySettings())).
+                    smallJarsConsolidation(true);
+            prj.processDependencies();
+
+            List<ClasspathEntry> entries = prj.copyClasspathEntries();
+            assertEquals(4, entries.size());
+            assertEquals("a.jar", entries.get(1).path.getName());
+            assertEquals("packed.jar", entries.get(2).path.getName());
+            assertEquals("b.jar", entries.get(3).path.getName());
+            assertFalse(new File(dir, "jet/build/lib/consolidated-1.jar").exists());
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+}
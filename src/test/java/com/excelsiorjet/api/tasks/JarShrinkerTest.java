@@ -0,0 +1,120 @@
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.tasks.config.ApplicationType;
+import com.excelsiorjet.api.tasks.config.JarStripRule;
+import com.excelsiorjet.api.util.Utils;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.EnumSet;
+import java.util.zip.ZipFile;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+public class JarShrinkerTest {
+
+    @Test
+    public void stripRules() {
+        JarShrinker shrinker = new JarShrinker(EnumSet.allOf(JarStripRule.class), null);
+        assertTrue(shrinker.isStripped("META-INF/SIGNER.SF"));
+        assertTrue(shrinker.isStripped("META-INF/signer.rsa"));
+        assertTrue(shrinker.isStripped("META-INF/SIG-SIGNER"));
+        assertTrue(shrinker.isStripped("a/A.java"));
+        assertTrue(shrinker.isStripped("META-INF/maven/g/a/pom.xml"));
+        assertTrue(shrinker.isStripped("META-INF/maven/g/a/pom.properties"));
+        assertTrue(shrinker.isStripped("module-info.class"));
+        assertTrue(shrinker.isStripped("META-INF/versions/9/module-info.class"));
+        assertFalse(shrinker.isStripped("META-INF/MANIFEST.MF"));
+        assertFalse(shrinker.isStripped("META-INF/sub/SIGNER.SF"));
+        assertFalse(shrinker.isStripped("a/A.class"));
+        assertFalse(shrinker.isStripped("a/module-info.class"));
+
+        JarShrinker sourcesOnly = new JarShrinker(EnumSet.of(JarStripRule.SOURCES), null);
+        assertTrue(sourcesOnly.isStripped("a/A.java"));
+        assertFalse(sourcesOnly.isStripped("META-INF/SIGNER.SF"));
+    }
+
+    @Test
+    public void trimmedCopiesAreCached() throws Exception {
+        File dir = Files.createTempDirectory("shrinking").toFile();
+        try {
+            File jar = new File(dir, "lib.jar");
+            File plain = new File(dir, "plain.jar");
+            ClasspathIndexTest.createJar(jar, null, "a/A.class", "a/A.java", "META-INF/maven/g/a/pom.xml");
+            ClasspathIndexTest.createJar(plain, null, "b/B.class");
+            File cache = new File(dir, "cache");
+            File stale = new File(cache, "0000000000000000-old.jar");
+            Utils.mkdir(cache);
+            assertTrue(stale.createNewFile());
+            assertTrue(stale.setLastModified(System.currentTimeMillis() - 60000));
+            // being written by a concurrent build
+            File inFlight = new File(cache, "0000000000000001-other.jar123.tmp");
+            assertTrue(inFlight.createNewFile());
+            assertTrue(inFlight.setLastModified(System.currentTimeMillis() - 60000));
+
+            JarShrinker shrinker = new JarShrinker(EnumSet.of(JarStripRule.SOURCES, JarStripRule.MAVEN_METADATA), cache);
+            // created by a concurrent build
+            File fresh = new File(cache, "0000000000000002-other.jar");
+            assertTrue(fresh.createNewFile());
+            assertTrue(fresh.setLastModified(System.currentTimeMillis() + 60000));
+            File trimmed = shrinker.shrink(jar);
+            assertEquals(cache, trimmed.getParentFile());
+            assertTrue(trimmed.getName().endsWith("-lib.jar"));
+            try (ZipFile zip = new ZipFile(trimmed)) {
+                assertNotNull(zip.getEntry("a/A.class"));
+                assertNull(zip.getEntry("a/A.java"));
+                assertNull(zip.getEntry("META-INF/maven/g/a/pom.xml"));
+            }
+            try (ZipFile zip = new ZipFile(jar)) {
+                assertNotNull(zip.getEntry("a/A.java"));
+            }
+            assertSame(plain, shrinker.shrink(plain));
+            shrinker.removeUnused();
+            assertFalse(stale.exists());
+            assertTrue(inFlight.exists());
+            assertTrue(fresh.exists());
+            assertTrue(trimmed.isFile());
+
+            // cached by the contents and the rules
+            long lastModified = trimmed.lastModified();
+            assertEquals(trimmed, new JarShrinker(EnumSet.of(JarStripRule.MAVEN_METADATA, JarStripRule.SOURCES), cache).shrink(jar));
+            assertEquals(lastModified, trimmed.lastModified());
+            assertFalse(trimmed.equals(new JarShrinker(EnumSet.of(JarStripRule.SOURCES), cache).shrink(jar)));
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    @Test
+    public void trimmedJarsAreStaged() throws Exception {
+        File dir = Files.createTempDirectory("shrinking").toFile();
+        try {
+            File app = new File(dir, "app.jar");
+            File dep = new File(dir, "dep.jar");
+            ClasspathIndexTest.createJar(app, null, "App.class");
+            ClasspathIndexTest.createJar(dep, null, "d/D.class", "META-INF/DEP.SF", "module-info.class");
+            JetProject prj = Tests.testProject(ApplicationType.PLAIN).
+                    mainJar(app).
+                    jetOutputDir(new File(dir, "jet")).
+                    jetBuildDir(new File(dir, "jet/build")).
+                    projectDependencies(singletonList(
+                            DependencyBuilder.testProjectDependency(dep).asProjectDependency())).
+                    jarStripRules(asList("signatures", "module-info"));
+            prj.processDependencies();
+            prj.copyClasspathEntries();
+
+            File staged = new File(dir, "jet/build/lib/dep.jar");
+            try (ZipFile zip = new ZipFile(staged)) {
+                assertNotNull(zip.getEntry("d/D.class"));
+                assertNull(zip.getEntry("META-INF/DEP.SF"));
+                assertNull(zip.getEntry("module-info.class"));
+            }
+            assertEquals(1, new File(dir, "jet/stripped").list().length);
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+}
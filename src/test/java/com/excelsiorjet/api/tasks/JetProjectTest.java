@@ -3,6 +3,13 @@ package com.excelsiorjet.api.tasks;
 import com.excelsiorjet.api.tasks.config.dependencies.DependencySettings;
 import com.excelsiorjet.api.tasks.config.dependencies.ProjectDependency;
 import com.excelsiorjet.api.tasks.config.ApplicationType;
+import com.excelsiorjet.api.tasks.config.PDBConfig;
+import com.excelsiorjet.api.tasks.config.TomcatConfig;
+import com.excelsiorjet.api.tasks.config.compiler.ExecProfilesConfig;
+import com.excelsiorjet.api.tasks.config.compiler.WindowsVersionInfoConfig;
+import com.excelsiorjet.api.tasks.config.excelsiorinstaller.ExcelsiorInstallerConfig;
+import com.excelsiorjet.api.tasks.config.runtime.RuntimeConfig;
+import com.excelsiorjet.api.tasks.config.windowsservice.WindowsServiceConfig;
 import com.excelsiorjet.api.util.Txt;
 import com.excelsiorjet.api.util.Utils;
 import org.junit.Test;
@@ -12,16 +19,21 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
 import static com.excelsiorjet.api.tasks.JetBuildTaskTest.mockUtilsClass;
 import static com.excelsiorjet.api.tasks.Tests.excelsiorJet;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 @RunWith(PowerMockRunner.class)
@@ -43,6 +55,38 @@ public class JetProjectTest {
         }
     }
 
+    @Test
+    public void explodedWarDeployment() throws Exception {
+        File dir = java.nio.file.Files.createTempDirectory("tomcat").toFile();
+        try {
+            File tomcatHome = new File(dir, "tomcat");
+            new File(tomcatHome, "webapps").mkdirs();
+            File war = new File(dir, "app.war");
+            ClasspathIndexTest.createJar(war, null, "WEB-INF/classes/App.class", "WEB-INF/lib/a.jar");
+            TomcatConfig tomcatConfig = new TomcatConfig();
+            tomcatConfig.tomcatHome = tomcatHome.getAbsolutePath();
+            tomcatConfig.warDeployName = "app.war";
+            tomcatConfig.explodeWar = true;
+            JetProject project = Tests.testProject(ApplicationType.TOMCAT).
+                    mainWar(war).
+                    tomcatConfiguration(tomcatConfig).
+                    jetBuildDir(new File(dir, "build"));
+            File webapps = new File(project.tomcatInBuildDir(), "webapps");
+
+            project.copyTomcatAndWar();
+            assertTrue(new File(webapps, "app/WEB-INF/lib/a.jar").isFile());
+            assertFalse(new File(webapps, "app.war").exists());
+            assertFalse(new File(webapps, "app.stamps.json").exists());
+
+            tomcatConfig.explodeWar = false;
+            project.copyTomcatAndWar();
+            assertTrue(new File(webapps, "app.war").isFile());
+            assertFalse(new File(webapps, "app").exists());
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
     @Test
     @PrepareForTest(value = {Utils.class})
     public void mainJarAddedToDependencies() throws Exception {
@@ -197,4 +241,71 @@ public class JetProjectTest {
         }
     }
 
+    @Test
+    public void testBuildInputsAndOutputs() throws Exception {
+        JetProject project = Tests.testProject(ApplicationType.PLAIN).excelsiorJetPackaging("zip");
+        project.validate(excelsiorJet(), true);
+
+        BuildInputs inputs = project.buildInputs(excelsiorJet());
+        assertTrue(inputs.files().contains(Tests.mainJar.toFile()));
+        assertTrue(inputs.files().contains(project.execProfiles().getUsg()));
+        assertEquals("zip", inputs.properties().get("packaging"));
+        assertTrue(inputs.properties().get("compiler.project").contains("-inline-"));
+
+        project.inlineExpansion("low").validate(excelsiorJet(), true);
+        assertFalse(inputs.properties().equals(project.buildInputs(excelsiorJet()).properties()));
+
+        assertEquals(asList(Tests.jetAppDir.toFile(), new File(project.jetOutputDir(), "test.zip")),
+                project.buildOutputs(excelsiorJet()));
+    }
+
+    private static JetProject checkout(File root, String creatorPlugin) throws Exception {
+        File target = new File(root, "target");
+        File jetResources = new File(root, "src/main/jetresources");
+        target.mkdirs();
+        jetResources.mkdirs();
+        File app = new File(target, "app.jar");
+        ClasspathIndexTest.createJar(app, null, "HelloWorld.class");
+        // referred to from the compiler project by absolute paths
+        Files.write(new File(jetResources, "icon.ico").toPath(), new byte[1]);
+        Files.write(new File(jetResources, "test.usg").toPath(), new byte[1]);
+        return new JetProject(creatorPlugin, "test", "prjGroup", "0.1", ApplicationType.PLAIN, target, jetResources).
+                inlineExpansion("tiny-methods-only").
+                runArgs(new String[0]).
+                addWindowsVersionInfo(false).
+                stackAllocation(true).
+                projectDependencies(emptyList()).
+                dependencies(emptyList()).
+                mainClass("HelloWorld").
+                mainJar(app).
+                packageFiles(emptyList()).
+                excelsiorInstallerConfiguration(new ExcelsiorInstallerConfig()).
+                windowsServiceConfiguration(new WindowsServiceConfig()).
+                windowsVersionInfoConfiguration(new WindowsVersionInfoConfig()).
+                runtimeConfiguration(new RuntimeConfig()).
+                execProfiles(new ExecProfilesConfig()).
+                outputName("test").
+                stackTraceSupport("minimal").
+                excelsiorJetPackaging("zip").
+                pdbConfiguration(new PDBConfig());
+    }
+
+    @Test
+    public void testBuildInputsDoNotDependOnCheckoutLocation() throws Exception {
+        File dir = Files.createTempDirectory("checkouts").toFile();
+        try {
+            JetProject first = checkout(new File(dir, "first"), "jet-maven-plugin 1.0");
+            JetProject second = checkout(new File(dir, "second"), "jet-maven-plugin 1.1");
+            first.validate(excelsiorJet(), true);
+            second.validate(excelsiorJet(), true);
+
+            Map<String, String> properties = first.buildInputs(excelsiorJet()).properties();
+            assertTrue(properties.get("compiler.project").contains("!module $(ProjectRoot)/src/main/jetresources/test.usg"));
+            assertFalse(properties.get("compiler.project").contains("jet-maven-plugin"));
+            assertEquals(properties, second.buildInputs(excelsiorJet()).properties());
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
 }
@@ -228,6 +228,8 @@ public class PackagerArgsGeneratorTest {
         ExcelsiorJet excelsiorJet = excelsiorJet();
         ExecProfilesConfig testRunExecProfiles = Mockito.mock(ExecProfilesConfig.class);
         Mockito.doReturn(fileSpy("test.usg")).when(testRunExecProfiles).getUsg();
+        Mockito.doCallRealMethod().when(testRunExecProfiles).getTestRunUsgs();
+        testRunExecProfiles.testRunScenarios = Collections.emptyList();
         prj = Mockito.spy(prj);
         Mockito.when(prj.execProfiles()).thenReturn(testRunExecProfiles);
         prj.validate(excelsiorJet, true);
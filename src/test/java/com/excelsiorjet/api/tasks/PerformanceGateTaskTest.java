@@ -0,0 +1,127 @@
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.tasks.config.ApplicationType;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.excelsiorjet.api.tasks.Tests.excelsiorJet;
+import static org.junit.Assert.*;
+
+public class PerformanceGateTaskTest {
+
+    private static Map<String, Long> metrics(long startup, long size) {
+        Map<String, Long> metrics = new TreeMap<>();
+        metrics.put(PerformanceGateTask.STARTUP_MEDIAN, startup);
+        metrics.put(PerformanceGateTask.APP_DIR_SIZE, size);
+        return metrics;
+    }
+
+    @Test
+    public void compare() throws Exception {
+        PerformanceGateTask gate = new PerformanceGateTask(excelsiorJet(), Tests.testProject(ApplicationType.PLAIN))
+                .defaultTolerance(10)
+                .tolerance(PerformanceGateTask.APP_DIR_SIZE, 1);
+        List<String> regressions = new ArrayList<>();
+        List<String> report = gate.compare(metrics(100, 1000), metrics(109, 1020), regressions);
+        assertEquals(2, report.size());
+        assertEquals(1, regressions.size());
+        assertTrue(regressions.get(0).startsWith(PerformanceGateTask.APP_DIR_SIZE));
+
+        regressions.clear();
+        gate.compare(metrics(100, 1000), metrics(111, 900), regressions);
+        assertEquals(1, regressions.size());
+        assertTrue(regressions.get(0).startsWith(PerformanceGateTask.STARTUP_MEDIAN));
+
+        regressions.clear();
+        Map<String, Long> current = metrics(100, 1000);
+        current.remove(PerformanceGateTask.STARTUP_MEDIAN);
+        gate.compare(metrics(100, 1000), current, regressions);
+        assertEquals(1, regressions.size());
+        assertTrue(regressions.get(0).startsWith(PerformanceGateTask.STARTUP_MEDIAN));
+    }
+
+    @Test
+    public void baselineLifecycle() throws Exception {
+        JetProject project = Tests.testProject(ApplicationType.PLAIN);
+        project.validate(excelsiorJet(), true);
+        File appDir = project.jetAppDir();
+        appDir.mkdirs();
+        File exe = new File(appDir, "test");
+        File startupResult = new File(project.jetOutputDir(), StartupBenchmarkTask.RESULT_FILE);
+        PerformanceGateTask gate = new PerformanceGateTask(excelsiorJet(), project);
+        File baseline = gate.baselineFile();
+        baseline.delete();
+        try {
+            Files.write(exe.toPath(), new byte[1000]);
+            Files.write(startupResult.toPath(), "{\"native\": {\"median\": 100, \"p90\": 120}}".getBytes());
+            gate.execute();
+            assertTrue(baseline.exists());
+            assertTrue(new String(Files.readAllBytes(baseline.toPath())).contains("\"startupMedianMillis\": 100"));
+
+            gate.execute();
+
+            Files.write(startupResult.toPath(), "{\"native\": {\"median\": 150, \"p90\": 120}}".getBytes());
+            try {
+                gate.execute();
+                fail("regression expected");
+            } catch (JetTaskFailureException e) {
+                assertTrue(e.getMessage().contains("startupMedianMillis: 100 -> 150"));
+            }
+
+            gate.updateBaseline(true).execute();
+            gate.updateBaseline(false).execute();
+
+            System.setProperty("jet.update.baseline", "false");
+            Files.write(startupResult.toPath(), "{\"native\": {\"median\": 200, \"p90\": 120}}".getBytes());
+            try {
+                gate.execute();
+                fail("regression expected");
+            } catch (JetTaskFailureException e) {
+                assertTrue(e.getMessage().contains("startupMedianMillis: 150 -> 200"));
+            }
+        } finally {
+            System.clearProperty("jet.update.baseline");
+            baseline.delete();
+            startupResult.delete();
+            exe.delete();
+        }
+    }
+
+    @Test
+    public void staleResults() throws Exception {
+        JetProject project = Tests.testProject(ApplicationType.PLAIN);
+        project.validate(excelsiorJet(), true);
+        File appDir = project.jetAppDir();
+        appDir.mkdirs();
+        File exe = new File(appDir, project.exeRelativePath(excelsiorJet()));
+        File startupResult = new File(project.jetOutputDir(), StartupBenchmarkTask.RESULT_FILE);
+        PerformanceGateTask gate = new PerformanceGateTask(excelsiorJet(), project);
+        File baseline = gate.baselineFile();
+        baseline.delete();
+        try {
+            Files.write(exe.toPath(), new byte[1000]);
+            Files.write(startupResult.toPath(), "{\"native\": {\"median\": 100, \"p90\": 120}}".getBytes());
+            gate.execute();
+            assertTrue(new String(Files.readAllBytes(baseline.toPath())).contains("\"startupMedianMillis\": 100"));
+
+            // the application has been rebuilt since the benchmark
+            assertTrue(startupResult.setLastModified(exe.lastModified() - 10000));
+            try {
+                gate.execute();
+                fail("missing metrics expected");
+            } catch (JetTaskFailureException e) {
+                assertTrue(e.getMessage().contains("startupMedianMillis: not measured"));
+            }
+        } finally {
+            baseline.delete();
+            startupResult.delete();
+            exe.delete();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.ExcelsiorJet;
+import com.excelsiorjet.api.tasks.config.ApplicationType;
+import com.excelsiorjet.api.util.Txt;
+import com.excelsiorjet.api.util.Utils;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class PgoPipelineTaskTest {
+
+    private static class Pipeline {
+        final JetProject project;
+        final PgoPipelineTask task;
+        final JetBuildTask instrumentedBuild = Mockito.mock(JetBuildTask.class);
+        final JetBuildTask optimizedBuild = Mockito.mock(JetBuildTask.class);
+        final File profilingImageDir;
+        final File jprof;
+
+        Pipeline(File dir, boolean collectProfile) throws Exception {
+            ExcelsiorJet excelsiorJet = Tests.excelsiorJet();
+            project = Mockito.spy(Tests.testProject(ApplicationType.PLAIN).
+                    jetBuildDir(new File(dir, "jet/build")));
+            Mockito.doNothing().when(project).validate(excelsiorJet, true);
+            // not created yet, as on a fresh project
+            project.execProfiles().outputDir = new File(dir, "src/main/jetresources");
+            project.execProfiles().outputName = "test";
+            project.execProfiles().profileLocally = true;
+            jprof = project.execProfiles().getJProfile();
+
+            profilingImageDir = new File(dir, "jet/appToProfile");
+            Mockito.doReturn(profilingImageDir).when(instrumentedBuild).buildImage(false);
+
+            task = Mockito.spy(new PgoPipelineTask(excelsiorJet, project));
+            Mockito.doReturn(instrumentedBuild).when(task).buildTask(true);
+            Mockito.doReturn(optimizedBuild).when(task).buildTask(false);
+            Mockito.doAnswer(invocation -> {
+                // the runtime writes the profile to the existing output directory only
+                assertTrue(jprof.getParentFile().isDirectory());
+                if (collectProfile) {
+                    Files.write(jprof.toPath(), "new".getBytes());
+                }
+                return null;
+            }).when(task).profilingRun(profilingImageDir);
+        }
+    }
+
+    private static void assertNoProfile(Pipeline pipeline) throws Exception {
+        try {
+            pipeline.task.execute();
+            fail("missing profile expected");
+        } catch (JetTaskFailureException e) {
+            assertEquals(Txt.s("PgoPipelineTask.NoProfile.Failure", pipeline.jprof.getAbsolutePath()), e.getMessage());
+        }
+    }
+
+    @Test
+    public void stagesRunInOrder() throws Exception {
+        File dir = Files.createTempDirectory("pgo").toFile();
+        try {
+            Pipeline pipeline = new Pipeline(dir, true);
+            pipeline.task.execute();
+
+            InOrder inOrder = Mockito.inOrder(pipeline.project, pipeline.instrumentedBuild, pipeline.task, pipeline.optimizedBuild);
+            inOrder.verify(pipeline.project).validate(Mockito.any(ExcelsiorJet.class), Mockito.eq(true));
+            inOrder.verify(pipeline.instrumentedBuild).stage();
+            inOrder.verify(pipeline.instrumentedBuild).buildImage(false);
+            inOrder.verify(pipeline.task).profilingRun(pipeline.profilingImageDir);
+            inOrder.verify(pipeline.optimizedBuild).execute(false);
+
+            // the project is validated and staged once for both builds
+            Mockito.verify(pipeline.project, Mockito.times(1)).validate(Mockito.any(ExcelsiorJet.class), Mockito.anyBoolean());
+            Mockito.verify(pipeline.instrumentedBuild, Mockito.times(1)).stage();
+            Mockito.verify(pipeline.optimizedBuild, Mockito.never()).stage();
+            Mockito.verify(pipeline.optimizedBuild, Mockito.never()).buildImage(true);
+
+            assertEquals("new", new String(Files.readAllBytes(pipeline.jprof.toPath())));
+            assertFalse(new File(pipeline.jprof.getPath() + ".prev").exists());
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    @Test
+    public void missingProfileFails() throws Exception {
+        File dir = Files.createTempDirectory("pgo").toFile();
+        try {
+            Pipeline pipeline = new Pipeline(dir, false);
+            assertNoProfile(pipeline);
+            Mockito.verify(pipeline.optimizedBuild, Mockito.never()).execute(Mockito.anyBoolean());
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    @Test
+    public void previousProfileIsRestored() throws Exception {
+        File dir = Files.createTempDirectory("pgo").toFile();
+        try {
+            Pipeline pipeline = new Pipeline(dir, false);
+            pipeline.jprof.getParentFile().mkdirs();
+            Files.write(pipeline.jprof.toPath(), "old".getBytes());
+            assertNoProfile(pipeline);
+            assertEquals("old", new String(Files.readAllBytes(pipeline.jprof.toPath())));
+            assertFalse(new File(pipeline.jprof.getPath() + ".prev").exists());
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+}
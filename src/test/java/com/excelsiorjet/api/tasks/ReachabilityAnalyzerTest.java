@@ -0,0 +1,232 @@
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.tasks.config.ApplicationType;
+import com.excelsiorjet.api.tasks.config.UnusedDependenciesPolicy;
+import com.excelsiorjet.api.tasks.config.dependencies.DependencySettings;
+import com.excelsiorjet.api.tasks.config.dependencies.OptimizationPreset;
+import com.excelsiorjet.api.util.Utils;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ReachabilityAnalyzerTest {
+
+    static class Root {
+        Used used;
+
+        void load() throws Exception {
+            Class.forName("com.excelsiorjet.api.tasks.ReachabilityAnalyzerTest$ByName");
+        }
+    }
+
+    static class Used {
+        List<Generic> generics;
+    }
+
+    static class Generic {
+    }
+
+    static class ByName {
+    }
+
+    static class Unused {
+    }
+
+    interface Plugin {
+    }
+
+    static String internalName(Class<?> cls) {
+        return cls.getName().replace('.', '/');
+    }
+
+    static byte[] classFile(Class<?> cls) throws IOException {
+        try (InputStream in = cls.getResourceAsStream(cls.getName().substring(cls.getName().lastIndexOf('.') + 1) + ".class")) {
+            byte[] buffer = new byte[64 * 1024];
+            int length = 0;
+            int n;
+            while ((n = in.read(buffer, length, buffer.length - length)) > 0) {
+                length += n;
+            }
+            return Arrays.copyOf(buffer, length);
+        }
+    }
+
+    private static void copyClass(Class<?> cls, File dir) throws IOException {
+        File file = new File(dir, internalName(cls) + ".class");
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), classFile(cls));
+    }
+
+    @Test
+    public void classReferences() throws Exception {
+        Set<String> refs = ClassReferences.of(classFile(Root.class));
+        assertTrue(refs.contains(internalName(Used.class)));
+        assertTrue(refs.contains(internalName(ByName.class)));
+        assertFalse(refs.contains(internalName(Unused.class)));
+        assertTrue(ClassReferences.of(classFile(Used.class)).contains(internalName(Generic.class)));
+    }
+
+    @Test
+    public void reachabilityShares() throws Exception {
+        File dir = Files.createTempDirectory("reachability").toFile();
+        try {
+            File app = new File(dir, "app");
+            copyClass(Root.class, app);
+            File lib = new File(dir, "lib");
+            for (Class<?> cls : Arrays.asList(Used.class, Generic.class, ByName.class, Unused.class)) {
+                copyClass(cls, lib);
+            }
+            File unusedLib = new File(dir, "unused");
+            copyClass(Unused.class, unusedLib);
+
+            List<File> entries = Arrays.asList(app, lib, unusedLib);
+            ClasspathIndex index = new ClasspathIndex();
+            ReachabilityAnalyzer analyzer = new ReachabilityAnalyzer(entries, index.scan(entries, null),
+                    Arrays.asList("", "", ""));
+            List<ReachabilityAnalyzer.Share> shares = analyzer.analyze(Collections.singletonList(internalName(Root.class)));
+            assertEquals(1, shares.get(0).reachable);
+            assertEquals(3, shares.get(1).reachable);
+            assertEquals(4, shares.get(1).total);
+            assertEquals(75, shares.get(1).percent());
+            // the class is loaded from the first entry on the classpath
+            assertEquals(0, shares.get(2).reachable);
+            assertEquals(1, shares.get(2).total);
+
+            DependencySettings hot = ReachabilityAnalyzer.proposal(shares.get(1), 30, false);
+            assertEquals("all", hot.optimize);
+            assertNull(hot.pack);
+            DependencySettings cold = ReachabilityAnalyzer.proposal(new ReachabilityAnalyzer.Share(1, 10), 30, false);
+            assertEquals("auto-detect", cold.optimize);
+            assertEquals("auto-detect", cold.pack);
+            assertNull(ReachabilityAnalyzer.proposal(new ReachabilityAnalyzer.Share(0, 10), 30, true).pack);
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    private static List<ReachabilityAnalyzer.Share> analyzeWithProvider(File dir, String service) throws IOException {
+        File app = new File(dir, "app");
+        copyClass(Root.class, app);
+        File lib = new File(dir, "lib");
+        copyClass(Used.class, lib);
+        copyClass(Plugin.class, lib);
+        File providers = new File(dir, "providers");
+        copyClass(Unused.class, providers);
+        File services = new File(providers, "META-INF/services/" + service);
+        services.getParentFile().mkdirs();
+        Files.write(services.toPath(), ("# provider\n" + Unused.class.getName() + "\n").getBytes("UTF-8"));
+
+        List<File> entries = Arrays.asList(app, lib, providers);
+        ReachabilityAnalyzer analyzer = new ReachabilityAnalyzer(entries, new ClasspathIndex().scan(entries, null),
+                Arrays.asList("", "", ""));
+        return analyzer.analyze(Collections.singletonList(internalName(Root.class)));
+    }
+
+    @Test
+    public void serviceProvidersOfReachableServicesAreReachable() throws Exception {
+        File dir = Files.createTempDirectory("reachability").toFile();
+        try {
+            assertEquals(1, analyzeWithProvider(dir, Used.class.getName()).get(2).reachable);
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    @Test
+    public void serviceProvidersOfUnreachableServicesAreUnused() throws Exception {
+        File dir = Files.createTempDirectory("reachability").toFile();
+        try {
+            assertEquals(0, analyzeWithProvider(dir, Plugin.class.getName()).get(2).reachable);
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    @Test
+    public void platformServiceProvidersAreReachable() throws Exception {
+        File dir = Files.createTempDirectory("reachability").toFile();
+        try {
+            assertEquals(1, analyzeWithProvider(dir, "java.sql.Driver").get(2).reachable);
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    private static void createJar(File jar, Class<?>... classes) throws IOException {
+        Map<String, byte[]> content = new LinkedHashMap<>();
+        for (Class<?> cls : classes) {
+            content.put(internalName(cls) + ".class", classFile(cls));
+        }
+        ClasspathIndexTest.createJar(jar, null, content);
+    }
+
+    private static List<String> prunedProjectEntries(File dir, List<String> allowlist) throws Exception {
+        File app = new File(dir, "app.jar");
+        createJar(app, Root.class);
+        File lib = new File(dir, "lib.jar");
+        createJar(lib, Used.class, Generic.class, ByName.class);
+        File unused = new File(dir, "unused.jar");
+        createJar(unused, Unused.class);
+        JetProject prj = Tests.testProject(ApplicationType.PLAIN)
+                .mainJar(app)
+                .mainClass(Root.class.getName())
+                .projectDependencies(Arrays.asList(
+                        DependencyBuilder.testProjectDependency(lib).artifactId("lib").asProjectDependency(),
+                        DependencyBuilder.testProjectDependency(unused).artifactId("unused").asProjectDependency()))
+                .unusedDependencies(UnusedDependenciesPolicy.PRUNE.toString())
+                .unusedDependenciesAllowlist(allowlist);
+        prj.processDependencies();
+        return prj.classpathEntries().stream()
+                .map(entry -> entry.path.getName())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void unusedDependenciesArePruned() throws Exception {
+        File dir = Files.createTempDirectory("reachability").toFile();
+        try {
+            assertEquals(Arrays.asList("app.jar", "lib.jar"), prunedProjectEntries(dir, Collections.emptyList()));
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    @Test
+    public void allowlistedDependenciesAreNotPruned() throws Exception {
+        File dir = Files.createTempDirectory("reachability").toFile();
+        try {
+            assertEquals(Arrays.asList("app.jar", "lib.jar", "unused.jar"),
+                    prunedProjectEntries(dir, Collections.singletonList("groupId:unused")));
+            assertEquals(Arrays.asList("app.jar", "lib.jar", "unused.jar"),
+                    prunedProjectEntries(dir, Collections.singletonList("unused.jar")));
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    @Test
+    public void proposalsAreDefaultsOnly() throws Exception {
+        DependencySettings userSettings = DependencyBuilder.groupDependencySettings("groupId").pack(ClasspathEntry.PackType.NONE).asDependencySettings();
+        DependencySettings proposal = ReachabilityAnalyzer.proposal(new ReachabilityAnalyzer.Share(1, 10), 30, false);
+        File path = new File("/dep");
+        DependencySettingsResolver resolver = new DependencySettingsResolver(
+                OptimizationPreset.TYPICAL, "prjGroupId",
+                Collections.singletonList(userSettings))
+                .proposals(Collections.singletonMap(path, proposal));
+        ClasspathEntry entry = resolver.resolve(DependencyBuilder.testProjectDependency(path).asProjectDependency());
+        assertEquals(ClasspathEntry.OptimizationType.AUTO_DETECT, entry.optimize);
+        assertEquals(ClasspathEntry.PackType.NONE, entry.pack);
+    }
+}
@@ -0,0 +1,65 @@
+package com.excelsiorjet.api.tasks;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ResourceAwareSchedulerTest {
+
+    @Test
+    public void testLimitedByCores() {
+        assertEquals(4, ResourceAwareScheduler.admissionLimit(10, 8, 2, 100000, 1024, 0));
+    }
+
+    @Test
+    public void testLimitedByMemory() {
+        assertEquals(3, ResourceAwareScheduler.admissionLimit(10, 16, 1, 7000, 2048, 0));
+    }
+
+    @Test
+    public void testLimitedByMaxParallel() {
+        assertEquals(2, ResourceAwareScheduler.admissionLimit(10, 16, 1, 100000, 1024, 2));
+    }
+
+    @Test
+    public void testLimitedByJobs() {
+        assertEquals(3, ResourceAwareScheduler.admissionLimit(3, 16, 1, 100000, 1024, 0));
+    }
+
+    @Test
+    public void testUnknownMemoryIsIgnored() {
+        assertEquals(8, ResourceAwareScheduler.admissionLimit(10, 8, 1, -1, 1024, 0));
+    }
+
+    @Test
+    public void testAtLeastOneJob() {
+        assertEquals(1, ResourceAwareScheduler.admissionLimit(10, 2, 4, 100, 1024, 0));
+    }
+
+    @Test
+    public void testRunKeepsOrderAndLimit() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Callable<Integer>> jobs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int n = i;
+            jobs.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                running.decrementAndGet();
+                return n;
+            });
+        }
+        List<Integer> results = ResourceAwareScheduler.run(jobs, 3);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, results.get(i).intValue());
+        }
+        assertTrue(maxRunning.get() <= 3);
+    }
+}
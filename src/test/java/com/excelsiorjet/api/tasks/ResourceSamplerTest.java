@@ -0,0 +1,63 @@
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.TestUtils;
+import com.excelsiorjet.api.log.StdOutLog;
+import com.excelsiorjet.api.util.ProcFs;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public class ResourceSamplerTest {
+
+    @Before
+    public void setUp() {
+        JetProject.configureEnvironment(new StdOutLog(), ResourceBundle.getBundle("Strings"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void summarize() {
+        Map<String, Object> summary = ResourceSampler.summarize(asList(
+                new ResourceSampler.Sample(0, 1000, 800, 10, 50),
+                new ResourceSampler.Sample(100, 3000, 2000, 20, 150)));
+        Map<String, Number> rss = (Map<String, Number>) summary.get("rssKB");
+        assertEquals(3000L, rss.get("peak"));
+        assertEquals(2000L, rss.get("average"));
+        Map<String, Number> threads = (Map<String, Number>) summary.get("threads");
+        assertEquals(20, threads.get("peak"));
+        assertEquals(15L, threads.get("average"));
+        Map<String, Number> cpu = (Map<String, Number>) summary.get("cpuPercent");
+        assertEquals(150.0, cpu.get("peak"));
+        assertEquals(100.0, cpu.get("average"));
+    }
+
+    @Test
+    public void sampleChildProcess() throws Exception {
+        Assume.assumeTrue(ProcFs.isAvailable());
+        File result = new File(TestUtils.workDir(), "resource-samples.json");
+        result.delete();
+        LaunchedProcess process = new LaunchedProcess();
+        ResourceSampler sampler = new ResourceSampler(50, process);
+        // not launched by the task, though from the same executable
+        Process other = new ProcessBuilder("sleep", "10").start();
+        Process child = new ProcessBuilder("sleep", "1").start();
+        process.started(child);
+        sampler.start();
+        child.waitFor();
+        sampler.finish(result);
+        other.destroy();
+        String json = new String(Files.readAllBytes(result.toPath()));
+        assertTrue(json.contains("\"rssKB\""));
+        assertTrue(json.contains("\"samples\""));
+        // the other child is not sampled
+        assertTrue(json.replaceAll("\\s", "").contains("\"threads\":{\"peak\":1,"));
+    }
+}
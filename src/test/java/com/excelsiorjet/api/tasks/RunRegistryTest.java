@@ -0,0 +1,161 @@
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.TestUtils;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class RunRegistryTest {
+
+    private RunRegistry registry(String name) throws Exception {
+        File dir = new File(TestUtils.workDir(), name);
+        dir.mkdirs();
+        return RunRegistry.of(dir);
+    }
+
+    @Test
+    public void lastRunning() throws Exception {
+        RunRegistry registry = registry("registryLastRunning");
+        assertEquals(-1, registry.lastRunning());
+        int id1 = registry.register(id -> {});
+        int id2 = registry.register(id -> {});
+        assertFalse(id1 == id2);
+        assertEquals(id2, registry.lastRunning());
+        registry.unregister(id2);
+        assertEquals(id1, registry.lastRunning());
+        registry.unregister(id1);
+        assertEquals(-1, registry.lastRunning());
+    }
+
+    @Test
+    public void lastRunningOutOfOrder() throws Exception {
+        RunRegistry registry = registry("registryOutOfOrder");
+        int id1 = registry.register(id -> {});
+        int id2 = registry.register(id -> {});
+        int id3 = registry.register(id -> {});
+        registry.unregister(id2);
+        assertEquals(id3, registry.lastRunning());
+        registry.unregister(id3);
+        assertEquals(id1, registry.lastRunning());
+        registry.unregister(id1);
+        assertEquals(-1, registry.lastRunning());
+    }
+
+    @Test
+    public void lastRunningAfterSlotReuse() throws Exception {
+        RunRegistry registry = registry("registrySlotReuse");
+        int first = registry.register(id -> {});
+        int previous = registry.register(id -> {});
+        // reuse all the other slots, breaking the started-before link of the first task
+        for (int i = 0; i < RunRegistry.SLOTS; i++) {
+            int id = registry.register(id1 -> {});
+            registry.unregister(previous);
+            previous = id;
+        }
+        registry.unregister(previous);
+        assertEquals(first, registry.lastRunning());
+        registry.unregister(first);
+        assertEquals(-1, registry.lastRunning());
+    }
+
+    @Test
+    public void fileIsClosedWithoutRunningTasks() throws Exception {
+        RunRegistry registry = registry("registryClosed");
+        int id = registry.register(id1 -> {});
+        assertTrue(registry.isOpen());
+        registry.lastRunning();
+        assertTrue(registry.isOpen());
+        registry.unregister(id);
+        assertFalse(registry.isOpen());
+        registry.lastRunning();
+        assertFalse(registry.isOpen());
+    }
+
+    @Test
+    public void concurrentRegistration() throws Exception {
+        RunRegistry registry = registry("registryConcurrent");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(executor.submit(() -> registry.register(id -> {})));
+            }
+            Set<Integer> ids = new HashSet<>();
+            for (Future<Integer> future : futures) {
+                int id = future.get();
+                assertTrue(id >= 0);
+                assertTrue(ids.add(id));
+            }
+            for (int id : ids) {
+                registry.unregister(id);
+            }
+            assertEquals(-1, registry.lastRunning());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void allSlotsBusy() throws Exception {
+        RunRegistry registry = registry("registryFull");
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < RunRegistry.SLOTS; i++) {
+            ids.add(registry.register(id -> {}));
+        }
+        assertEquals(-1, registry.register(id -> {}));
+        registry.unregister(ids.get(0));
+        assertTrue(registry.register(id -> {}) >= 0);
+    }
+
+    /**
+     * Registers a task in the registry of the given directory, prints its id and keeps it running until stdin is closed.
+     */
+    public static class RegisteringProcess {
+        public static void main(String[] args) throws Exception {
+            RunRegistry registry = RunRegistry.of(new File(args[0]));
+            int id = registry.register(id1 -> {});
+            System.out.println(id);
+            System.out.flush();
+            while (System.in.read() >= 0) {
+            }
+            registry.unregister(id);
+        }
+    }
+
+    @Test
+    public void slotsOfAnotherProcessAreReadable() throws Exception {
+        File dir = new File(TestUtils.workDir(), "registryOtherProcess");
+        dir.mkdirs();
+        RunRegistry registry = RunRegistry.of(dir);
+        Process child = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getAbsolutePath(),
+                "-cp", System.getProperty("java.class.path"), RegisteringProcess.class.getName(), dir.getAbsolutePath())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try {
+            int id = Integer.parseInt(new BufferedReader(new InputStreamReader(child.getInputStream())).readLine().trim());
+            assertEquals(id, registry.lastRunning());
+
+            // the running task must not lock the slot table, which would make it unreadable with mandatory locks
+            try (FileChannel channel = FileChannel.open(new File(dir, "registry").toPath(),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock lock = channel.tryLock(0, RunRegistry.HEADER_SIZE + RunRegistry.SLOTS * RunRegistry.SLOT_SIZE, false)) {
+                assertNotNull(lock);
+            }
+
+            child.getOutputStream().close();
+            assertTrue(child.waitFor(10, TimeUnit.SECONDS));
+            assertEquals(-1, registry.lastRunning());
+        } finally {
+            child.destroyForcibly();
+        }
+    }
+}
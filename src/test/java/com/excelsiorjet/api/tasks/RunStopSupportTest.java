@@ -1,10 +1,14 @@
 package com.excelsiorjet.api.tasks;
 
 import com.excelsiorjet.TestUtils;
+import com.excelsiorjet.api.log.Log;
+import com.excelsiorjet.api.log.StdOutLog;
 import com.excelsiorjet.api.util.Txt;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 import java.io.File;
+import java.util.ResourceBundle;
 
 import static org.junit.Assert.*;
 
@@ -79,6 +83,8 @@ public class RunStopSupportTest {
         } catch (JetTaskFailureException e) {
             fail(e.getMessage());
         }
+        // stopRunTask() returns as soon as the task has finished, give its thread a moment to exit
+        expectedToStop.join(1000);
         assertTrue(expectedToStop.isCompleted());
     }
 
@@ -142,4 +148,32 @@ public class RunStopSupportTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void stopTimeout() throws JetTaskFailureException {
+        RunStopSupport running = runStopSupport(false);
+        running.prepareToRunTask();
+        try {
+            runStopSupport(true).stopTimeout(1).stopRunTask();
+            fail("Stopped task that does not react to the termination file");
+        } catch (JetTaskFailureException e) {
+            assertEquals(Txt.s("StopTask.StopTimeout.Error"), e.getMessage());
+        } finally {
+            running.taskFinished();
+        }
+    }
+
+    @Test
+    public void malformedStopTimeoutProperty() {
+        Log log = Mockito.mock(Log.class);
+        JetProject.configureEnvironment(log, ResourceBundle.getBundle("Strings"));
+        System.setProperty("jet.stop.timeout", "1s");
+        try {
+            assertEquals(60, RunStopSupport.defaultStopTimeout());
+            Mockito.verify(log).warn(Txt.s("StopTask.InvalidStopTimeout.Warning", "jet.stop.timeout", "1s", "60"));
+        } finally {
+            System.clearProperty("jet.stop.timeout");
+            JetProject.configureEnvironment(new StdOutLog(), ResourceBundle.getBundle("Strings"));
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.tasks.config.BuildVariant;
+import com.excelsiorjet.api.tasks.config.TuningGrid;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TuningTaskTest {
+
+    @Test
+    public void gridExpansion() {
+        TuningGrid grid = new TuningGrid();
+        assertEquals(1, TuningTask.variants(grid).size());
+        assertEquals("base", TuningTask.variants(grid).get(0).name);
+
+        grid.optimizationPresets = Arrays.asList("typical", "smart");
+        grid.stackAllocation = Arrays.asList(true, false);
+        grid.flavors = Arrays.asList("desktop", "server", "classic");
+        List<BuildVariant> variants = TuningTask.variants(grid);
+        assertEquals(12, variants.size());
+        assertEquals("typical_sa_desktop", variants.get(0).name);
+        assertEquals("smart_no-sa_classic", variants.get(11).name);
+        assertNull(variants.get(11).globalOptimizer);
+        assertEquals(12, variants.stream().map(v -> v.name).distinct().count());
+    }
+
+    private static TuningTask.Candidate candidate(String name, double score, long size, long buildTime) {
+        TuningTask.Candidate candidate = new TuningTask.Candidate(new BuildVariant(name));
+        candidate.score = score;
+        candidate.executableSize = size;
+        candidate.buildTimeMillis = buildTime;
+        return candidate;
+    }
+
+    @Test
+    public void paretoFront() {
+        TuningTask.Candidate fast = candidate("fast", 100, 3000, 60);
+        TuningTask.Candidate small = candidate("small", 80, 2000, 60);
+        TuningTask.Candidate dominated = candidate("dominated", 70, 2500, 70);
+        TuningTask.Candidate failed = candidate("failed", 1000, 1, 1);
+        failed.error = "error";
+        List<TuningTask.Candidate> candidates = Arrays.asList(fast, small, dominated, failed);
+
+        TuningTask.markParetoFront(candidates, true);
+        assertTrue(fast.pareto);
+        assertTrue(small.pareto);
+        assertFalse(dominated.pareto);
+        assertFalse(failed.pareto);
+        assertSame(fast, TuningTask.best(candidates, true));
+
+        // lower startup time is better
+        TuningTask.markParetoFront(candidates, false);
+        assertFalse(fast.pareto);
+        assertTrue(dominated.pareto);
+        assertSame(dominated, TuningTask.best(candidates, false));
+    }
+
+    @Test
+    public void snippet() {
+        BuildVariant variant = new BuildVariant("v");
+        variant.optimizationPreset = "smart";
+        variant.stackAllocation = false;
+        variant.flavor = "server";
+        assertEquals("<optimizationPreset>smart</optimizationPreset>\n" +
+                "<stackAllocation>false</stackAllocation>\n" +
+                "<runtime>\n    <flavor>server</flavor>\n</runtime>\n", TuningTask.snippet(variant, false));
+        assertEquals("optimizationPreset = 'smart'\n" +
+                "stackAllocation = false\n" +
+                "runtime {\n    flavor = 'server'\n}\n", TuningTask.snippet(variant, true));
+    }
+
+    @Test
+    public void parseScore() throws Exception {
+        assertEquals(42.5, TuningTask.parseScore(Arrays.asList("warming up", "42.5", ""), new File("log")), 0);
+        try {
+            TuningTask.parseScore(Arrays.asList("42", "done"), new File("log"));
+            fail("no score expected");
+        } catch (JetTaskFailureException expected) {
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.api.ExcelsiorJet;
+import com.excelsiorjet.api.tasks.config.ApplicationType;
+import com.excelsiorjet.api.tasks.config.BuildVariant;
+import com.excelsiorjet.api.tasks.config.PDBConfig;
+import com.excelsiorjet.api.tasks.config.compiler.InlineExpansionType;
+import com.excelsiorjet.api.util.Txt;
+import com.excelsiorjet.api.util.Utils;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+public class VariantBuildTaskTest {
+
+    private static BuildVariant variant(String name) {
+        return new BuildVariant(name);
+    }
+
+    private static JetProject project(File dir) throws Exception {
+        File app = new File(dir, "app.jar");
+        ClasspathIndexTest.createJar(app, null, "HelloWorld.class");
+        PDBConfig pdbConfig = new PDBConfig();
+        pdbConfig.specificLocation = new File(dir, "pdb");
+        return Tests.testProject(ApplicationType.PLAIN).
+                mainJar(app).
+                jetOutputDir(new File(dir, "jet")).
+                jetBuildDir(new File(dir, "jet/build")).
+                jetAppDir(new File(dir, "jet/app")).
+                pdbConfiguration(pdbConfig);
+    }
+
+    @Test
+    public void invalidVariantNames() throws Exception {
+        JetProject prj = Tests.testProject(ApplicationType.PLAIN);
+        for (String name : new String[]{"../x", "a/b", "a\\b", "..", ".hidden"}) {
+            Tests.assertThrows(() -> new VariantBuildTask(Tests.excelsiorJet(), prj, singletonList(variant(name))).checkVariants(),
+                    Txt.s("VariantBuildTask.InvalidName.Failure", name));
+        }
+        Tests.assertThrows(() -> new VariantBuildTask(Tests.excelsiorJet(), prj, asList(variant("a"), variant("a"))).checkVariants(),
+                Txt.s("VariantBuildTask.DuplicateName.Failure", "a"));
+        Tests.assertThrows(() -> new VariantBuildTask(Tests.excelsiorJet(), prj, singletonList(variant(""))).checkVariants(),
+                Txt.s("VariantBuildTask.NoName.Failure"));
+        Tests.assertNotThrows(() -> new VariantBuildTask(Tests.excelsiorJet(), prj,
+                asList(variant("fast-1.0"), variant("small_2"))).checkVariants());
+    }
+
+    @Test
+    public void variantProject() throws Exception {
+        File dir = Files.createTempDirectory("variants").toFile();
+        try {
+            JetProject prj = project(dir);
+            ExcelsiorJet excelsiorJet = Tests.excelsiorJet();
+            Mockito.doReturn(true).when(excelsiorJet).isSmartSupported();
+            prj.validate(excelsiorJet, true);
+            BuildVariant variant = variant("fast");
+            variant.inlineExpansion = "aggressive";
+            variant.stackAllocation = false;
+            JetProject variantProject = new VariantBuildTask(excelsiorJet, prj, singletonList(variant)).variantProject(variant);
+
+            File variantDir = new File(dir, "jet/variants/fast");
+            assertEquals(variantDir, variantProject.jetOutputDir());
+            assertEquals(new File(variantDir, "build"), variantProject.jetBuildDir());
+            assertEquals(new File(variantDir, "app"), variantProject.jetAppDir());
+            assertEquals(new File(dir, "pdb-fast").getAbsolutePath(),
+                    variantProject.pdbConfiguration().pdbLocation().getAbsolutePath());
+            assertEquals(InlineExpansionType.AGGRESSIVE, variantProject.inlineExpansion());
+            assertFalse(variantProject.stackAllocation());
+            // the base project is not changed
+            assertEquals(InlineExpansionType.TINY_METHODS_ONLY, prj.inlineExpansion());
+            assertTrue(prj.stackAllocation());
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+
+    @Test
+    public void failedVariantsAreReported() throws Exception {
+        File dir = Files.createTempDirectory("variants").toFile();
+        try {
+            JetProject prj = project(dir);
+            ExcelsiorJet excelsiorJet = Tests.excelsiorJet();
+            // the compilation fails in every variant build directory
+            Mockito.when(excelsiorJet.compile(Mockito.any(File.class), Mockito.<String>anyVararg())).thenReturn(1);
+            VariantBuildTask task = new VariantBuildTask(excelsiorJet, prj, asList(variant("a"), variant("b")))
+                    .maxParallelBuilds(2).memoryPerBuildMB(1);
+            List<VariantBuildResult> results = task.buildAll();
+            assertEquals(2, results.size());
+            assertEquals("a", results.get(0).name);
+            assertEquals("b", results.get(1).name);
+            for (VariantBuildResult result : results) {
+                assertFalse(result.succeeded());
+                // the staged application is linked or copied to the variant build directory
+                assertTrue(new File(result.outputDir, "build/app.jar").isFile());
+            }
+            try {
+                task.execute();
+                fail("variant build failure expected");
+            } catch (JetTaskFailureException e) {
+                assertEquals(Txt.s("VariantBuildTask.VariantsFailed.Failure", "a, b"), e.getMessage());
+            }
+        } finally {
+            Utils.cleanDirectory(dir);
+        }
+    }
+}
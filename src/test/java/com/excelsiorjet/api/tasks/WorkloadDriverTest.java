@@ -0,0 +1,118 @@
+package com.excelsiorjet.api.tasks;
+
+import com.excelsiorjet.TestUtils;
+import com.excelsiorjet.api.log.StdOutLog;
+import com.excelsiorjet.api.tasks.config.compiler.WorkloadConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class WorkloadDriverTest {
+
+    private HttpServer server;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger posts = new AtomicInteger();
+
+    @Before
+    public void startServer() throws Exception {
+        JetProject.configureEnvironment(new StdOutLog(), ResourceBundle.getBundle("Strings"));
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            hits.incrementAndGet();
+            if ("POST".equals(exchange.getRequestMethod())) {
+                posts.incrementAndGet();
+            }
+            int status = exchange.getRequestURI().getPath().equals("/missing") ? 404 : 200;
+            byte[] body = "ok".getBytes();
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private WorkloadConfig workload(String... requests) throws Exception {
+        WorkloadConfig config = new WorkloadConfig();
+        config.requests = requests;
+        config.concurrency = 2;
+        config.duration = 1;
+        config.readinessTimeout = 5;
+        config.fillDefaults();
+        return config;
+    }
+
+    @Test
+    public void drive() throws Exception {
+        WorkloadDriver driver = new WorkloadDriver(workload(url("/a"), "POST " + url("/b"), url("/missing")));
+        assertTrue(driver.awaitReady(System.currentTimeMillis() + 5000));
+        WorkloadDriver.Result result = driver.drive();
+        assertTrue(result.requests > 0);
+        assertTrue(result.failures > 0);
+        assertTrue(result.failures < result.requests);
+        assertTrue(posts.get() > 0);
+        assertTrue(hits.get() >= result.requests);
+    }
+
+    @Test
+    public void notReady() throws Exception {
+        WorkloadConfig config = workload(url("/a"));
+        config.readinessUrl = "http://127.0.0.1:1/";
+        config.readinessTimeout = 0;
+        assertFalse(new WorkloadDriver(config).run());
+        assertEquals(0, hits.get());
+    }
+
+    @Test
+    public void stopsRunningTask() throws Exception {
+        File dir = new File(TestUtils.workDir(), "workload");
+        RunStopSupport runStopSupport = new RunStopSupport(dir, false);
+        File termFile = runStopSupport.prepareToRunTask();
+        try {
+            WorkloadDriver.startIfDefined(workload(url("/a")), termFile);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!termFile.exists() && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(100);
+            }
+            assertTrue(termFile.exists());
+            assertTrue(hits.get() > 0);
+        } finally {
+            runStopSupport.taskFinished();
+        }
+    }
+
+    @Test
+    public void finishedDriverDoesNotStopTask() throws Exception {
+        File termFile = new File(TestUtils.workDir(), "workloadFinished.term");
+        termFile.delete();
+        WorkloadConfig config = workload(url("/a"));
+        // never becomes ready, as if the application has exited before serving requests
+        config.readinessUrl = "http://127.0.0.1:1/";
+        config.readinessTimeout = 60;
+        WorkloadDriver driver = WorkloadDriver.startIfDefined(config, termFile);
+        driver.finish();
+        driver.join(10000);
+        assertFalse(termFile.exists());
+    }
+
+    @Test(expected = JetTaskFailureException.class)
+    public void invalidUrl() throws Exception {
+        workload("localhost:8080/a");
+    }
+}
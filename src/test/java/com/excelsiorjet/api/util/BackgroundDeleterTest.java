@@ -0,0 +1,65 @@
+package com.excelsiorjet.api.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class BackgroundDeleterTest {
+
+    private static void createTree(Path dir) throws IOException {
+        for (int i = 0; i < 5; i++) {
+            Path sub = Files.createDirectories(dir.resolve("sub" + i).resolve("nested"));
+            for (int j = 0; j < 10; j++) {
+                Files.write(sub.resolve("file" + j), new byte[]{1, 2, 3});
+            }
+        }
+    }
+
+    private static long entries(Path dir) throws IOException {
+        try (Stream<Path> list = Files.list(dir)) {
+            return list.count();
+        }
+    }
+
+    @Test
+    public void testDeleteInBackground() throws IOException {
+        Path parent = Files.createTempDirectory("jet-delete");
+        Path app = parent.resolve("app");
+        createTree(app);
+
+        Utils.cleanDirectoryInBackground(app.toFile());
+        assertFalse(Files.exists(app));
+
+        assertTrue(BackgroundDeleter.awaitPending(1, TimeUnit.MINUTES));
+        assertEquals(0, entries(parent));
+        Files.delete(parent);
+    }
+
+    @Test
+    public void testReapLeftoverTrash() throws IOException {
+        Path parent = Files.createTempDirectory("jet-delete");
+        createTree(parent.resolve(".app.jet-trash-interrupted"));
+        Path app = parent.resolve("app");
+        createTree(app);
+
+        Utils.cleanDirectoryInBackground(app.toFile());
+
+        assertTrue(BackgroundDeleter.awaitPending(1, TimeUnit.MINUTES));
+        assertEquals(0, entries(parent));
+        Files.delete(parent);
+    }
+
+    @Test
+    public void testMissingDirectory() throws IOException {
+        Path parent = Files.createTempDirectory("jet-delete");
+        Utils.cleanDirectoryInBackground(parent.resolve("app").toFile());
+        assertTrue(BackgroundDeleter.awaitPending(1, TimeUnit.MINUTES));
+        Files.delete(parent);
+    }
+}
@@ -0,0 +1,37 @@
+package com.excelsiorjet.api.util;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class FileUpdaterTest {
+
+    @Test
+    public void testWriteIfChanged() throws IOException {
+        Path dir = Files.createTempDirectory("jet-prj");
+        File prj = dir.resolve("test.prj").toFile();
+
+        assertTrue(FileUpdater.writeIfChanged(prj, out -> out.println("-main=Main")));
+        assertEquals("-main=Main" + System.lineSeparator(), new String(Files.readAllBytes(prj.toPath())));
+
+        assertTrue(prj.setLastModified(1000_000L));
+        assertFalse(FileUpdater.writeIfChanged(prj, out -> out.println("-main=Main")));
+        assertEquals(1000_000L, prj.lastModified());
+
+        assertTrue(FileUpdater.writeIfChanged(prj, out -> out.println("-main=Main2")));
+        assertEquals("-main=Main2" + System.lineSeparator(), new String(Files.readAllBytes(prj.toPath())));
+
+        // no temporary files are left
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+        Files.delete(prj.toPath());
+        Files.delete(dir);
+    }
+}
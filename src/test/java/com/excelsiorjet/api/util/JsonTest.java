@@ -0,0 +1,52 @@
+package com.excelsiorjet.api.util;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+public class JsonTest {
+
+    @Test
+    public void toJson() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", "a \"quoted\"\n\\string");
+        map.put("times", asList(1, 2L));
+        map.put("empty", Collections.emptyList());
+        map.put("ratio", 1.5);
+        map.put("none", null);
+        String nl = System.lineSeparator();
+        assertEquals("{" + nl +
+                "  \"name\": \"a \\\"quoted\\\"\\n\\\\string\"," + nl +
+                "  \"times\": [" + nl +
+                "    1," + nl +
+                "    2" + nl +
+                "  ]," + nl +
+                "  \"empty\": []," + nl +
+                "  \"ratio\": 1.5," + nl +
+                "  \"none\": null" + nl +
+                "}" + nl, Json.toJson(map));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void parse() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", "a \"quoted\"\n\\string");
+        map.put("times", asList(1L, -2L));
+        map.put("nested", Collections.singletonMap("ratio", 1.5));
+        map.put("flag", true);
+        map.put("none", null);
+        assertEquals(map, Json.parse(Json.toJson(map)));
+        assertEquals("\u00e9", Json.parse("\"\\u00e9\""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseInvalid() {
+        Json.parse("{\"a\": 1,}");
+    }
+}
@@ -0,0 +1,25 @@
+package com.excelsiorjet.api.util;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ProcFsTest {
+
+    @Test
+    public void childProcess() throws Exception {
+        Assume.assumeTrue(ProcFs.isAvailable());
+        Process child = new ProcessBuilder("sleep", "10").start();
+        try {
+            assertFalse(ProcFs.descendants(ProcFs.currentPid()).isEmpty());
+            int pid = ProcFs.pid(child);
+            assertTrue(ProcFs.descendants(ProcFs.currentPid()).contains(pid));
+            assertTrue(ProcFs.cpuTicks(pid) >= 0);
+            assertTrue(ProcFs.treeRssKb(pid) > 0);
+        } finally {
+            child.destroy();
+            child.waitFor();
+        }
+    }
+}
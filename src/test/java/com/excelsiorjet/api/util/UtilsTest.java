@@ -7,6 +7,7 @@ import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
 
 import static org.junit.Assert.*;
 
@@ -47,4 +48,25 @@ public class UtilsTest {
         assertArrayEquals(new String[]{"", ""}, args);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testLinkOrCopyKeepsCopiedSubtreesApart() throws IOException {
+        Path source = Files.createTempDirectory("source");
+        Path target = Files.createTempDirectory("target");
+        try {
+            Path conf = source.resolve("conf");
+            Files.createDirectories(conf);
+            Files.write(conf.resolve("server.xml"), "original".getBytes());
+            Files.write(source.resolve("app.jar"), "jar".getBytes());
+
+            Utils.linkOrCopy(source, target, Collections.singletonList(conf));
+            Files.write(target.resolve("conf").resolve("server.xml"), "rewritten".getBytes());
+
+            assertEquals("original", new String(Files.readAllBytes(conf.resolve("server.xml"))));
+            assertEquals("jar", new String(Files.readAllBytes(target.resolve("app.jar"))));
+        } finally {
+            Utils.cleanDirectory(source.toFile());
+            Utils.cleanDirectory(target.toFile());
+        }
+    }
+
+}